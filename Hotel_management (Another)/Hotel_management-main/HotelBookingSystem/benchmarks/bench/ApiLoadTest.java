@@ -0,0 +1,122 @@
+package bench;
+
+import db.LatencyHistogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test for api.ApiServer: keeps `concurrency` requests in flight until
+ * `requests` have completed, mixing room searches with bookings (and a payment
+ * or cancel for each booking that succeeds). Reports throughput, status codes
+ * and p50/p99/max latency per endpoint. 409s are expected: many clients race for
+ * the same rooms and the locked overlap check must turn all but one away.
+ *
+ * usage: java -cp out:src/lib/mysql-connector-j-9.4.0.jar bench.ApiLoadTest [baseUrl] [concurrency] [requests]
+ *   defaults: http://localhost:8080 2000 50000
+ *   -Dbench.users=N -Dbench.rooms=N   id ranges to pick users/rooms from (defaults 100, 50)
+ */
+public class ApiLoadTest {
+    private final String baseUrl;
+    private final int users = Integer.getInteger("bench.users", 100);
+    private final int rooms = Integer.getInteger("bench.rooms", 50);
+    private final HttpClient client;
+    private final Map<String, LatencyHistogram> latency = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> statuses = new ConcurrentHashMap<>();
+    private final AtomicLong errors = new AtomicLong();
+
+    ApiLoadTest(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+        new ApiLoadTest(baseUrl).run(concurrency, requests);
+    }
+
+    void run(int concurrency, int requests) throws Exception {
+        System.out.printf("%d requests, %d in flight, against %s%n", requests, concurrency, baseUrl);
+        Semaphore inFlight = new Semaphore(concurrency);
+        CompletableFuture<?>[] all = new CompletableFuture<?>[requests];
+        Random rnd = new Random(42);
+        LocalDate base = LocalDate.now().plusDays(30);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            LocalDate start = base.plusDays(rnd.nextInt(365));
+            LocalDate end = start.plusDays(1 + rnd.nextInt(5));
+            CompletableFuture<?> f;
+            if (rnd.nextInt(10) < 6) {
+                f = send("rooms", HttpRequest.newBuilder(URI.create(baseUrl + "/api/rooms?from=" + start + "&to=" + end)).GET());
+            } else {
+                int userId = 1 + rnd.nextInt(users);
+                String body = String.format("{\"userId\":%d,\"roomId\":%d,\"start\":\"%s\",\"end\":\"%s\"}",
+                        userId, 1 + rnd.nextInt(rooms), start, end);
+                boolean pay = rnd.nextBoolean();
+                f = send("book", post("/api/bookings", body)).thenCompose(res -> {
+                    if (res.statusCode() != 201) return CompletableFuture.completedFuture(null);
+                    int bookingId = Integer.parseInt(res.body().replaceAll(".*\"bookingId\":(\\d+).*", "$1"));
+                    return pay
+                            ? send("pay", post("/api/payments", String.format("{\"userId\":%d,\"bookingId\":%d,\"paymentMethod\":\"CASH\"}", userId, bookingId)))
+                            : send("cancel", post("/api/bookings/" + bookingId + "/cancel", ""));
+                });
+            }
+            all[i] = f.whenComplete((r, ex) -> inFlight.release());
+        }
+        CompletableFuture.allOf(all).exceptionally(ex -> null).join();
+        double secs = (System.nanoTime() - t0) / 1e9;
+        report(requests, secs);
+    }
+
+    private HttpRequest.Builder post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(String endpoint, HttpRequest.Builder req) {
+        long t0 = System.nanoTime();
+        return client.sendAsync(req.timeout(Duration.ofSeconds(60)).build(), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((res, ex) -> {
+                    latency.computeIfAbsent(endpoint, k -> new LatencyHistogram()).recordNanos(System.nanoTime() - t0);
+                    String code = ex != null ? "error" : String.valueOf(res.statusCode());
+                    if (ex != null) errors.incrementAndGet();
+                    statuses.computeIfAbsent(endpoint + " " + code, k -> new AtomicLong()).incrementAndGet();
+                });
+    }
+
+    private void report(int requests, double secs) {
+        long calls = 0;
+        for (LatencyHistogram h : latency.values()) calls += h.getCount();
+        System.out.printf("%n%d top-level requests (%d HTTP calls) in %.1f s: %.0f calls/s, %d transport errors%n",
+                requests, calls, secs, calls / secs, errors.get());
+        System.out.printf("%-8s %10s %10s %10s %10s %10s%n", "endpoint", "count", "p50 ms", "p99 ms", "max ms", "mean ms");
+        for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(latency).entrySet()) {
+            LatencyHistogram h = e.getValue();
+            System.out.printf("%-8s %10d %10.1f %10.1f %10.1f %10.1f%n", e.getKey(), h.getCount(),
+                    h.percentileMicros(50) / 1000.0, h.percentileMicros(99) / 1000.0,
+                    h.getMaxMicros() / 1000.0, h.getMeanMicros() / 1000.0);
+        }
+        System.out.println();
+        for (Map.Entry<String, AtomicLong> e : new TreeMap<>(statuses).entrySet()) {
+            System.out.printf("%-16s %d%n", e.getKey(), e.getValue().get());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal benchmark runner: warm-up iterations, then timed rounds of a batch of
+ * operations, reporting the best and median ns/op. Results can be written to a
+ * CSV and compared against a previous run to catch regressions.
+ */
+public class Bench {
+    // results are folded into this field so the JIT cannot drop the benchmarked work
+    public static volatile long sink;
+
+    public interface Op {
+        long run(int i) throws Exception;
+    }
+
+    private final int warmupRounds;
+    private final int measureRounds;
+    private final List<Result> results = new ArrayList<>();
+
+    public Bench(int warmupRounds, int measureRounds) {
+        this.warmupRounds = warmupRounds;
+        this.measureRounds = measureRounds;
+    }
+
+    public static class Result {
+        final String name;
+        final String dataset;
+        final double nsPerOp;
+        final double medianNsPerOp;
+
+        Result(String name, String dataset, double nsPerOp, double medianNsPerOp) {
+            this.name = name;
+            this.dataset = dataset;
+            this.nsPerOp = nsPerOp;
+            this.medianNsPerOp = medianNsPerOp;
+        }
+
+        String key() { return name + "@" + dataset; }
+    }
+
+    /** Times opsPerRound calls of op(i) per round; op returns a value that is consumed. */
+    public Result run(String name, String dataset, int opsPerRound, Op op) throws Exception {
+        long acc = 0;
+        for (int r = 0; r < warmupRounds; r++) for (int i = 0; i < opsPerRound; i++) acc += op.run(i);
+        double[] perOp = new double[measureRounds];
+        for (int r = 0; r < measureRounds; r++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < opsPerRound; i++) acc += op.run(i);
+            perOp[r] = (System.nanoTime() - t0) / (double) opsPerRound;
+        }
+        sink += acc;
+        Arrays.sort(perOp);
+        Result res = new Result(name, dataset, perOp[0], perOp[perOp.length / 2]);
+        results.add(res);
+        System.out.printf("%-34s %-8s %14.1f ns/op (median %12.1f) %14.0f ops/s%n",
+                name, dataset, res.nsPerOp, res.medianNsPerOp, 1e9 / res.nsPerOp);
+        return res;
+    }
+
+    public void writeCsv(String path) throws IOException {
+        try (PrintWriter w = new PrintWriter(new FileWriter(path))) {
+            w.println("benchmark,dataset,best_ns_per_op,median_ns_per_op");
+            for (Result r : results) w.printf("%s,%s,%.1f,%.1f%n", r.name, r.dataset, r.nsPerOp, r.medianNsPerOp);
+        }
+    }
+
+    /** Prints benchmarks whose median got slower than the baseline by more than tolerance; returns how many. */
+    public int compareWith(String baselinePath, double tolerance) throws IOException {
+        Map<String, Double> baseline = new HashMap<>();
+        try (BufferedReader r = new BufferedReader(new FileReader(baselinePath))) {
+            String line = r.readLine();
+            while ((line = r.readLine()) != null) {
+                String[] f = line.split(",");
+                if (f.length >= 4) baseline.put(f[0] + "@" + f[1], Double.parseDouble(f[3]));
+            }
+        }
+        int regressions = 0;
+        for (Result res : results) {
+            Double before = baseline.get(res.key());
+            if (before == null) continue;
+            double change = (res.medianNsPerOp - before) / before;
+            if (change > tolerance) {
+                regressions++;
+                System.out.printf("REGRESSION %-34s %-8s %.1f -> %.1f ns/op (+%.0f%%)%n",
+                        res.name, res.dataset, before, res.medianNsPerOp, change * 100);
+            }
+        }
+        return regressions;
+    }
+}
@@ -0,0 +1,70 @@
+package bench;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic hotel data: the same size always produces the same
+ * users, rooms and bookings, so runs on different machines/commits compare.
+ */
+public class Dataset {
+    static final String[] TYPES = {"Single", "Double", "Suite", "Deluxe"};
+    static final long[] TYPE_PRICE_CENTS = {5_000, 8_000, 15_000, 22_000};
+
+    public final String label;
+    public final int rooms;
+    public final int users;
+    public final int bookings;
+
+    // rooms
+    public final String[] roomNumber;
+    public final int[] roomType;
+    public final long[] roomPriceCents;
+    // users
+    public final String[] username;
+    public final String[] password;
+    // bookings, epoch-day dates
+    public final int[] bookingRoom;
+    public final int[] bookingUser;
+    public final int[] bookingStart;
+    public final int[] bookingEnd;
+
+    public final int firstDay;
+    public final int daySpan = 730;
+
+    public Dataset(int bookings) {
+        this.bookings = bookings;
+        this.label = bookings >= 1_000_000 ? (bookings / 1_000_000) + "M" : bookings >= 1_000 ? (bookings / 1_000) + "k" : String.valueOf(bookings);
+        this.rooms = Math.max(50, Math.min(5_000, bookings / 500));
+        this.users = bookings / 10 + 1;
+        this.firstDay = (int) LocalDate.of(2024, 1, 1).toEpochDay();
+        Random rnd = new Random(42L + bookings);
+
+        roomNumber = new String[rooms];
+        roomType = new int[rooms];
+        roomPriceCents = new long[rooms];
+        for (int i = 0; i < rooms; i++) {
+            roomNumber[i] = String.valueOf(100 + i);
+            roomType[i] = rnd.nextInt(TYPES.length);
+            roomPriceCents[i] = TYPE_PRICE_CENTS[roomType[i]] + rnd.nextInt(20) * 100L;
+        }
+
+        username = new String[users];
+        password = new String[users];
+        for (int i = 0; i < users; i++) {
+            username[i] = "user" + i;
+            password[i] = "pw" + Integer.toHexString(rnd.nextInt());
+        }
+
+        bookingRoom = new int[bookings];
+        bookingUser = new int[bookings];
+        bookingStart = new int[bookings];
+        bookingEnd = new int[bookings];
+        for (int i = 0; i < bookings; i++) {
+            bookingRoom[i] = rnd.nextInt(rooms) + 1;
+            bookingUser[i] = rnd.nextInt(users) + 1;
+            bookingStart[i] = firstDay + rnd.nextInt(daySpan);
+            bookingEnd[i] = bookingStart[i] + 1 + rnd.nextInt(14);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package bench;
+
+import db.Database;
+import model.Booking;
+import model.Money;
+import model.Room;
+import repo.CompactBookingStore;
+import repo.MemoryStore;
+import repo.Repositories;
+import service.AnalyticsEngine;
+import service.AvailabilityIndex;
+import service.BookingService;
+import service.PricingEngine;
+import service.RatingStore;
+import service.RoomSearchIndex;
+import javax.swing.table.DefaultTableModel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Benchmarks the flows behind CustomerDashboard and OwnerDashboardClean.
+ *
+ * By default everything runs in-process against generated datasets (1k, 100k
+ * and 1M bookings, or the sizes given as arguments): the availability index is
+ * exercised directly and the SQL round trips are replaced by in-memory stand-ins
+ * holding the same rows. With -Dbench.jdbc=true the same flows also run through
+ * db.Database against the configured MySQL instance.
+ *
+ * -Dbench.out=file.csv writes the results; -Dbench.baseline=file.csv compares
+ * against an earlier run and exits with status 1 on a regression larger than
+ * -Dbench.tolerance (default 0.10).
+ */
+public class HotPathBenchmarks {
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length == 0 ? new int[]{1_000, 100_000, 1_000_000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i].replace("_", ""));
+
+        Bench bench = new Bench(Integer.getInteger("bench.warmup", 5), Integer.getInteger("bench.rounds", 10));
+        for (int size : sizes) {
+            Dataset d = new Dataset(size);
+            System.out.println("== dataset " + d.label + ": " + d.rooms + " rooms, " + d.users + " users, " + d.bookings + " bookings");
+            runInProcess(bench, d);
+        }
+        if (Boolean.getBoolean("bench.jdbc")) runJdbc(bench);
+
+        String out = System.getProperty("bench.out");
+        if (out != null) bench.writeCsv(out);
+        String baseline = System.getProperty("bench.baseline");
+        if (baseline != null) {
+            double tolerance = Double.parseDouble(System.getProperty("bench.tolerance", "0.10"));
+            if (bench.compareWith(baseline, tolerance) > 0) System.exit(1);
+        }
+    }
+
+    static void runInProcess(Bench bench, Dataset d) throws Exception {
+        // login lookup: users WHERE username=? AND password=? AND user_type=?
+        Map<String, Integer> userIds = new HashMap<>(d.users * 2);
+        for (int i = 0; i < d.users; i++) userIds.put(d.username[i], i);
+        bench.run("login.lookup", d.label, 10_000, i -> {
+            int u = (i * 7919) % d.users;
+            Integer id = userIds.get(d.username[u]);
+            return id != null && d.password[id].equals(d.password[u]) ? id : -1;
+        });
+
+        // room availability search over a date range
+        AvailabilityIndex index = new AvailabilityIndex();
+        List<Integer> roomIds = new ArrayList<>(d.rooms);
+        for (int r = 1; r <= d.rooms; r++) roomIds.add(r);
+        List<int[]> bookings = new ArrayList<>(d.bookings);
+        for (int b = 0; b < d.bookings; b++) bookings.add(new int[]{b + 1, d.bookingRoom[b], d.bookingStart[b], d.bookingEnd[b]});
+        long t0 = System.nanoTime();
+        index.load(roomIds, bookings);
+        System.out.printf("%-34s %-8s %14.1f ms%n", "availability.load", d.label, (System.nanoTime() - t0) / 1e6);
+        bench.run("availability.freeRooms", d.label, 200, i -> {
+            LocalDate s = LocalDate.ofEpochDay(d.firstDay + (i * 37) % d.daySpan);
+            return index.freeRooms(s, s.plusDays(1 + i % 7)).size();
+        });
+        bench.run("availability.isFree", d.label, 100_000, i -> {
+            LocalDate s = LocalDate.ofEpochDay(d.firstDay + (i * 37) % d.daySpan);
+            return index.isFree(1 + i % d.rooms, s, s.plusDays(3)) ? 1 : 0;
+        });
+
+        // customer room search: type + price range + dates, and the unfiltered date-only listing
+        RoomSearchIndex search = new RoomSearchIndex(index, new RatingStore());
+        List<Room> catalogue = new ArrayList<>(d.rooms);
+        for (int r = 0; r < d.rooms; r++) catalogue.add(new Room(r + 1, d.roomNumber[r], Dataset.TYPES[d.roomType[r]], Money.ofCents(d.roomPriceCents[r]), true));
+        search.load(catalogue);
+        bench.run("rooms.search[type+price+dates]", d.label, 1_000, i -> {
+            LocalDate s = LocalDate.ofEpochDay(d.firstDay + (i * 37) % d.daySpan);
+            long min = Dataset.TYPE_PRICE_CENTS[i % Dataset.TYPES.length];
+            return search.search(new RoomSearchIndex.Query().type(Dataset.TYPES[i % Dataset.TYPES.length])
+                    .price(Money.ofCents(min), Money.ofCents(min + 1_000)).dates(s, s.plusDays(3))).size();
+        });
+        bench.run("rooms.search[dates, by number]", d.label, 200, i -> {
+            LocalDate s = LocalDate.ofEpochDay(d.firstDay + (i * 37) % d.daySpan);
+            return search.search(new RoomSearchIndex.Query().dates(s, s.plusDays(3)).sort(RoomSearchIndex.Sort.ROOM_NUMBER)).size();
+        });
+
+        // booking insert: overlap check + index insert, undone so the dataset stays the same size
+        int[] nextId = {d.bookings + 1};
+        bench.run("booking.insert", d.label, 10_000, i -> {
+            int room = 1 + (i * 31) % d.rooms;
+            LocalDate s = LocalDate.ofEpochDay(d.firstDay + d.daySpan + i % 365);
+            LocalDate e = s.plusDays(2);
+            if (!index.isFree(room, s, e)) return 0;
+            int id = nextId[0]++;
+            index.add(room, id, s, e);
+            index.remove(id);
+            return id;
+        });
+
+        // the dataset's bookings in the column store the in-memory engine uses
+        CompactBookingStore compact = new CompactBookingStore(d.bookings);
+        for (int b = 0; b < d.bookings; b++) {
+            compact.append(d.bookingUser[b], d.bookingRoom[b], d.bookingStart[b], d.bookingEnd[b], CompactBookingStore.BOOKED, CompactBookingStore.PENDING, d.bookingStart[b] * 86_400L, 0);
+        }
+        System.out.printf("%-34s %-8s %14.1f MB%n", "bookings.compact.heap", d.label, compact.arrayBytes() / 1e6);
+        bench.run("bookings.compact.countActive", d.label, 10, i -> compact.countActive(d.firstDay + (i * 37) % d.daySpan));
+
+        // the same reservation through the in-memory storage engine (-Dhotel.storage=memory), cancelled again
+        Repositories memory = Repositories.memory(new MemoryStore());
+        for (int r = 0; r < d.rooms; r++) memory.rooms().insert(new Room(0, "R" + r, "Standard", Money.ofCents(d.roomPriceCents[r]), true));
+        bench.run("repo.memory.reserveCancel", d.label, 10_000, i -> {
+            int room = 1 + (i * 31) % d.rooms;
+            LocalDate s = LocalDate.ofEpochDay(d.firstDay + i % 365);
+            Booking b = new Booking(0, 1 + i % d.users, room, s, s.plusDays(2), "BOOKED", null);
+            if (!memory.bookings().reserve(b, rm -> null)) return 0;
+            memory.bookings().cancel(b.getId());
+            return b.getId();
+        });
+
+        // payment insert: the row CustomerDashboard writes, appended to an in-memory table
+        List<Object[]> payments = new ArrayList<>();
+        bench.run("payment.insert", d.label, 10_000, i -> {
+            if (payments.size() > 1_000_000) payments.clear();
+            payments.add(new Object[]{i % d.users, i % d.bookings, Money.ofCents(d.roomPriceCents[i % d.rooms]).toBigDecimal(), "PAID", "CASH", null, null, null});
+            return payments.size();
+        });
+
+        // stay quotes from a weekend/seasonal/length-of-stay plan; 2099 stays fall outside the
+        // precomputed rate tables and are summed night by night
+        PricingEngine pricing = new PricingEngine(samplePlans(), LocalDate.ofEpochDay(d.firstDay));
+        for (int nights : new int[]{3, 28, 365}) {
+            bench.run("pricing.quote[" + nights + "n]", d.label, 100_000, i -> {
+                int room = i % d.rooms;
+                int s = d.firstDay + i % 365;
+                return pricing.quoteCents(Dataset.TYPES[d.roomType[room]], d.roomPriceCents[room], s, s + nights);
+            });
+        }
+        int farDay = (int) LocalDate.of(2099, 1, 1).toEpochDay();
+        bench.run("pricing.quotePerNight[365n]", d.label, 1_000, i -> {
+            int room = i % d.rooms;
+            int s = farDay + i % 365;
+            return pricing.quoteCents(Dataset.TYPES[d.roomType[room]], d.roomPriceCents[room], s, s + 365);
+        });
+
+        // owner Reports tab: one pass over every booking, then monthly/daily reports from the prefix sums
+        AnalyticsEngine.Rollup[] rollup = new AnalyticsEngine.Rollup[1];
+        bench.run("analytics.build", d.label, 1, i -> {
+            AnalyticsEngine.Rollup r = new AnalyticsEngine.Rollup();
+            for (int room = 0; room < d.rooms; room++) r.addRoom(room + 1, Dataset.TYPES[d.roomType[room]]);
+            for (int b = 0; b < d.bookings; b++) {
+                int room = d.bookingRoom[b];
+                r.addStay(room, d.bookingStart[b], d.bookingEnd[b], d.roomPriceCents[room - 1] * (d.bookingEnd[b] - d.bookingStart[b]));
+            }
+            rollup[0] = r;
+            return d.bookings;
+        });
+        LocalDate reportFrom = LocalDate.ofEpochDay(d.firstDay), reportTo = reportFrom.plusDays(d.daySpan - 1);
+        bench.run("analytics.report[month]", d.label, 1_000, i -> rollup[0].report(reportFrom, reportTo, AnalyticsEngine.Period.MONTH).size());
+        bench.run("analytics.report[day]", d.label, 10, i -> rollup[0].report(reportFrom, reportTo, AnalyticsEngine.Period.DAY).size());
+
+        // dashboard population: rows as the ResultSet yields them, copied into a DefaultTableModel
+        int rows = Math.min(d.bookings, 100_000);
+        Object[][] resultRows = new Object[rows][];
+        for (int b = 0; b < rows; b++) {
+            resultRows[b] = new Object[]{b + 1, d.username[d.bookingUser[b] - 1], d.roomNumber[d.bookingRoom[b] - 1],
+                    java.sql.Date.valueOf(LocalDate.ofEpochDay(d.bookingStart[b])), java.sql.Date.valueOf(LocalDate.ofEpochDay(d.bookingEnd[b]))};
+        }
+        bench.run("dashboard.populate[" + rows + "]", d.label, 1, i -> {
+            DefaultTableModel m = new DefaultTableModel(new String[]{"ID","User","Room#","Start","End"}, 0);
+            for (Object[] r : resultRows) m.addRow(r);
+            return m.getRowCount();
+        });
+    }
+
+    static Properties samplePlans() {
+        Properties p = new Properties();
+        p.setProperty("weekendPercent", "120");
+        p.setProperty("season.summer", "06-15..08-31:125");
+        p.setProperty("season.holidays", "12-20..01-05:150");
+        p.setProperty("stayDiscount.7", "10");
+        p.setProperty("stayDiscount.28", "20");
+        p.setProperty("type.Suite.weekendPercent", "130");
+        return p;
+    }
+
+    static void runJdbc(Bench bench) throws Exception {
+        System.out.println("== mysql via db.Database");
+        Database.warmUp();
+        bench.run("jdbc.login.lookup", "mysql", 200, i -> {
+            try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement("SELECT * FROM users WHERE username=? AND password=? AND user_type=?")) {
+                ps.setString(1, "customer"); ps.setString(2, "customerpass"); ps.setString(3, "CUSTOMER");
+                try (ResultSet rs = ps.executeQuery()) { return rs.next() ? rs.getInt("id") : 0; }
+            }
+        });
+        AvailabilityIndex index = AvailabilityIndex.get();
+        bench.run("jdbc.rooms.search", "mysql", 200, i -> {
+            LocalDate s = LocalDate.now().plusDays(i % 30);
+            long n = 0;
+            try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement("SELECT id, room_number, type, price FROM rooms ORDER BY room_number"); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) if (index.isFree(rs.getInt(1), s, s.plusDays(2))) n++;
+            }
+            return n;
+        });
+        bench.run("jdbc.dashboard.bookingsPage", "mysql", 100, i -> {
+            DefaultTableModel m = new DefaultTableModel(new String[]{"ID","User","Room#","Start","End"}, 0);
+            try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement("SELECT b.id, u.username, r.room_number, b.start_date, b.end_date FROM bookings b JOIN users u ON b.user_id=u.id JOIN rooms r ON b.room_id=r.id ORDER BY b.id DESC LIMIT 200"); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) m.addRow(new Object[]{rs.getInt(1), rs.getString(2), rs.getString(3), rs.getDate(4), rs.getDate(5)});
+            }
+            return m.getRowCount();
+        });
+        // payments are inserted inside a transaction that is rolled back, so the database is left as it was
+        bench.run("jdbc.payment.insert", "mysql", 100, i -> {
+            try (Connection c = Database.connect()) {
+                c.setAutoCommit(false);
+                try (PreparedStatement ps = c.prepareStatement("INSERT INTO payments(user_id, booking_id, amount, status, payment_method, googlepay_number, qr_code, pin) SELECT user_id, id, 1.00, 'PAID', 'CASH', NULL, NULL, NULL FROM bookings ORDER BY id LIMIT 1")) {
+                    return ps.executeUpdate();
+                } finally {
+                    c.rollback();
+                }
+            }
+        });
+        // reserve + cancel far in the future on the first room (leaves CANCELLED rows dated 2099 behind)
+        int roomId;
+        int userId;
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement("SELECT (SELECT MIN(id) FROM rooms), (SELECT MIN(id) FROM users WHERE user_type='CUSTOMER')"); ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            roomId = rs.getInt(1);
+            userId = rs.getInt(2);
+        }
+        LocalDate base = LocalDate.of(2099, 1, 1);
+        bench.run("jdbc.booking.reserveCancel", "mysql", 50, i -> {
+            LocalDate s = base.plusDays(i * 3L);
+            BookingService.Reservation r = BookingService.get().reserve(userId, roomId, s, s.plusDays(1), null, null);
+            BookingService.get().cancel(r.getBookingId());
+            return r.getBookingId();
+        });
+        System.out.println("pool: " + Database.poolStats());
+        System.out.println("bookings: " + BookingService.get());
+    }
+}
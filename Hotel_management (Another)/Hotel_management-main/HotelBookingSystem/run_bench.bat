@@ -0,0 +1,17 @@
+@echo off
+REM run_bench.bat - compile the app and benchmarks, then run the hot-path benchmarks
+REM usage: run_bench.bat [bookings...]   e.g. run_bench.bat 1000 100000
+cd /d "%~dp0"
+
+del bench_sources.txt 2>nul
+for /f "delims=" %%F in ('dir /s /b src\*.java benchmarks\*.java ^| findstr /v /i "OwnerDashboard.java"') do @echo "%%~fF" >> bench_sources.txt
+
+set JAR=src\lib\mysql-connector-j-9.4.0.jar
+javac -d out -cp "%JAR%" @bench_sources.txt
+if %errorlevel% neq 0 (
+	echo javac failed with %errorlevel%
+	pause
+	exit /b %errorlevel%
+)
+java -Dbench.out=bench_results.csv -cp out;"%JAR%" bench.HotPathBenchmarks %*
+pause
@@ -1,5 +1,7 @@
 -- Schema for Hotel Booking System
 -- Creates database `hotel_db` and tables `users`, `rooms`, `bookings`.
+-- Later changes are applied at startup by db.Migrations (tracked in `schema_version`);
+-- the definitions below already include them.
 
 CREATE DATABASE IF NOT EXISTS hotel_db;
 USE hotel_db;
@@ -13,6 +15,7 @@ CREATE TABLE IF NOT EXISTS users (
   email VARCHAR(150),
   phone VARCHAR(30),
   user_type ENUM('CUSTOMER','OWNER') NOT NULL DEFAULT 'CUSTOMER',
+  created_by_owner BOOLEAN NOT NULL DEFAULT FALSE,
   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
@@ -36,6 +39,11 @@ CREATE TABLE IF NOT EXISTS bookings (
   status VARCHAR(30) NOT NULL DEFAULT 'BOOKED',
   payment_status VARCHAR(30) NOT NULL DEFAULT 'PENDING',
   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  -- set only while a customer's unpaid booking is held for payment; PendingBookingSweeper cancels it after this
+  hold_expires_at DATETIME NULL,
+  INDEX idx_bookings_user (user_id),
+  INDEX idx_bookings_room_dates (room_id, start_date, end_date),
+  INDEX idx_bookings_hold (payment_status, hold_expires_at),
   FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
   FOREIGN KEY (room_id) REFERENCES rooms(id) ON DELETE CASCADE
 );
@@ -60,6 +68,8 @@ CREATE TABLE IF NOT EXISTS reviews (
   review_text TEXT,
   rating INT,
   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  INDEX idx_reviews_room_created (room_id, created_at),
+  INDEX idx_reviews_created (created_at),
   FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
   FOREIGN KEY (room_id) REFERENCES rooms(id) ON DELETE CASCADE
 );
@@ -76,6 +86,9 @@ CREATE TABLE IF NOT EXISTS payments (
   qr_code TEXT,
   pin VARCHAR(20),
   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  idempotency_key VARCHAR(64) NULL,
+  INDEX idx_payments_created (created_at),
+  UNIQUE INDEX uq_payments_idempotency_key (idempotency_key),
   FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
   FOREIGN KEY (booking_id) REFERENCES bookings(id) ON DELETE CASCADE
 );
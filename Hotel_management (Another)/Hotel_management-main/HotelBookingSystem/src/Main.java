@@ -1,7 +1,32 @@
+import db.Database;
+import db.Migrations;
+import repo.Repositories;
+import service.AvailabilityIndex;
+import service.EventBus;
+import service.PendingBookingSweeper;
 import ui.LoginForm;
+import javax.swing.JOptionPane;
 
 public class Main {
     public static void main(String[] args) {
+        // login and the dashboards query MySQL directly; on the in-memory engine their tables and the services' would disagree
+        if (Repositories.get().isInMemory()) {
+            String msg = "The desktop app needs MySQL storage; -Dhotel.storage=memory is only supported by api.ApiServer and the benchmarks";
+            System.err.println(msg);
+            JOptionPane.showMessageDialog(null, msg, "Hotel Booking", JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+        }
+        // open pooled connections, migrate the schema, load the availability index, start expiring unpaid bookings and join the
+        // other processes' event bus while the login form is on screen
+        Thread warmUp = new Thread(() -> {
+            Database.warmUp();
+            try { Migrations.apply(); } catch (Exception ex) { System.err.println("Schema migration failed: " + ex.getMessage()); }
+            try { AvailabilityIndex.get(); } catch (Exception ex) { System.err.println("Availability index load failed: " + ex.getMessage()); }
+            PendingBookingSweeper.get().start();
+            EventBus.get().start();
+        }, "db-warm-up");
+        warmUp.setDaemon(true);
+        warmUp.start();
         new LoginForm();
     }
 }
@@ -0,0 +1,421 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import db.Database;
+import db.Migrations;
+import db.PoolStats;
+import model.Booking;
+import model.Money;
+import model.Room;
+import repo.Repositories;
+import service.AvailabilityIndex;
+import service.BookingConflictException;
+import service.BookingService;
+import service.EventBus;
+import service.PaymentService;
+import service.PendingBookingSweeper;
+import service.RatingStore;
+import service.ReviewService;
+import service.RoomSearchIndex;
+import service.RoomService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Headless JSON API over the same services the Swing dashboards use, so web
+ * front ends and kiosks book through BookingService's locked transaction too.
+ *
+ *   GET  /api/health
+ *   GET  /api/rooms?from=YYYY-MM-DD&amp;to=YYYY-MM-DD[&amp;type=&amp;minPrice=&amp;maxPrice=&amp;minRating=&amp;sort=PRICE_ASC|PRICE_DESC|ROOM_NUMBER|RATING]
+ *   POST /api/bookings              {userId, roomId, start, end, paymentMethod?, googlePayNumber?}
+ *   POST /api/bookings/{id}/cancel  {userId}
+ *   POST /api/payments              {userId, bookingId, paymentMethod, googlePayNumber?}
+ *   POST /api/reviews               {userId, roomId | bookingId, rating, text}
+ *
+ * Each request runs on its own virtual thread when the JVM has them (Java 21+)
+ * and on a fixed pool of platform threads otherwise; either way the JDBC pool
+ * (-Dhotel.pool.maxSize) is what bounds concurrent database work.
+ *
+ * Run: java -cp out;src/lib/mysql-connector-j-9.4.0.jar api.ApiServer [port]
+ */
+public class ApiServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 4096;
+    private static final int FALLBACK_THREADS = Integer.getInteger("hotel.api.threads", 200);
+    // every request body is a small JSON object; anything larger is refused before it is buffered
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private static final Pattern CANCEL_PATH = Pattern.compile("/api/bookings/(\\d+)/cancel");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public ApiServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/health", ex -> handle(ex, "GET", this::health));
+        server.createContext("/api/rooms", ex -> handle(ex, "GET", this::rooms));
+        server.createContext("/api/bookings", ex -> handle(ex, "POST", this::bookings));
+        server.createContext("/api/payments", ex -> handle(ex, "POST", this::payments));
+        server.createContext("/api/reviews", ex -> handle(ex, "POST", this::reviews));
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Booking API listening on port " + server.getAddress().getPort());
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        if (Repositories.get().isInMemory()) {
+            System.out.println("Booking API: in-memory storage, starting from the schema.sql sample rows");
+        } else {
+            Database.warmUp();
+            Migrations.apply();
+        }
+        AvailabilityIndex.get();
+        RatingStore.get();
+        RoomSearchIndex.get();
+        PendingBookingSweeper.get().start();
+        EventBus.get().start();
+        ApiServer api = new ApiServer(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(api::stop, "api-shutdown"));
+        api.start();
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively so the
+    // module still builds and runs on Java 17
+    static ExecutorService newRequestExecutor() {
+        try {
+            ExecutorService vt = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            System.out.println("Booking API: one virtual thread per request");
+            return vt;
+        } catch (ReflectiveOperationException ex) {
+            System.out.println("Booking API: virtual threads unavailable, using " + FALLBACK_THREADS + " worker threads");
+            return Executors.newFixedThreadPool(FALLBACK_THREADS, r -> {
+                Thread t = new Thread(r, "api-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    interface Handler {
+        Object handle(HttpExchange ex) throws Exception;
+    }
+
+    // Runs a handler and maps its outcome to a status code:
+    // 400 bad input, 403 someone else's booking, 404 unknown, 409 booking conflict / already paid, 413 body too large, 500 anything else
+    private void handle(HttpExchange ex, String method, Handler handler) throws IOException {
+        try {
+            if (!method.equalsIgnoreCase(ex.getRequestMethod())) {
+                send(ex, 405, error("Method not allowed"));
+                return;
+            }
+            Object body = handler.handle(ex);
+            send(ex, "POST".equals(method) ? 201 : 200, body);
+        } catch (NotFoundException nf) {
+            send(ex, 404, error(nf.getMessage()));
+        } catch (ForbiddenException no) {
+            send(ex, 403, error(no.getMessage()));
+        } catch (TooLargeException big) {
+            send(ex, 413, error(big.getMessage()));
+        } catch (BookingConflictException | IllegalStateException conflict) {
+            send(ex, 409, error(conflict.getMessage()));
+        } catch (IllegalArgumentException | DateTimeParseException bad) {
+            send(ex, 400, error(bad.getMessage()));
+        } catch (Exception err) {
+            err.printStackTrace();
+            send(ex, 500, error("Internal error: " + err.getMessage()));
+        } finally {
+            ex.close();
+        }
+    }
+
+    private Object health(HttpExchange ex) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("status", "UP");
+        PoolStats pool = Database.poolStats();
+        if (pool != null) {
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("maxSize", pool.getMaxSize());
+            p.put("active", pool.getActive());
+            p.put("idle", pool.getIdle());
+            p.put("waiting", pool.getWaiting());
+            p.put("timeouts", pool.getTimeouts());
+            p.put("statementCacheHitRate", pool.getStatementHitRate());
+            out.put("pool", p);
+        }
+        BookingService bookings = BookingService.get();
+        Map<String, Object> b = new LinkedHashMap<>();
+        b.put("attempts", bookings.getAttempts());
+        b.put("committed", bookings.getCommitted());
+        b.put("conflicts", bookings.getConflicts());
+        b.put("failures", bookings.getFailures());
+        b.put("avgReserveMillis", bookings.getAvgReserveMillis());
+        out.put("bookings", b);
+        PendingBookingSweeper sweeper = PendingBookingSweeper.get();
+        Map<String, Object> sw = new LinkedHashMap<>();
+        sw.put("sweeps", sweeper.getSweeps());
+        sw.put("expired", sweeper.getExpired());
+        sw.put("roomsReclaimed", sweeper.getRoomsReclaimed());
+        sw.put("nightsReclaimed", sweeper.getNightsReclaimed());
+        sw.put("failures", sweeper.getFailures());
+        sw.put("meanSweepMicros", sweeper.getMeanSweepMicros());
+        sw.put("maxSweepMicros", sweeper.getMaxSweepMicros());
+        out.put("sweeper", sw);
+        PaymentService payments = PaymentService.get();
+        Map<String, Object> pay = new LinkedHashMap<>();
+        pay.put("replays", payments.getReplayCount());
+        pay.put("dedupeCacheHits", payments.getCacheHitCount());
+        out.put("payments", pay);
+        EventBus bus = EventBus.get();
+        Map<String, Object> ev = new LinkedHashMap<>();
+        ev.put("published", bus.getPublished());
+        ev.put("received", bus.getReceived());
+        ev.put("peers", bus.getPeerCount());
+        ev.put("relaying", bus.isRelaying());
+        out.put("events", ev);
+        RoomSearchIndex search = RoomSearchIndex.ifLoaded();
+        if (search != null) {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("searches", search.getSearchCount());
+            s.put("meanMicros", search.getMeanSearchMicros());
+            s.put("p99Micros", search.getSearchP99Micros());
+            s.put("maxMicros", search.getMaxSearchMicros());
+            out.put("roomSearch", s);
+        }
+        return out;
+    }
+
+    private Object rooms(HttpExchange ex) throws Exception {
+        Map<String, String> q = query(ex);
+        LocalDate from = LocalDate.parse(required(q, "from"));
+        LocalDate to = LocalDate.parse(required(q, "to"));
+        RoomSearchIndex.Query search = new RoomSearchIndex.Query().dates(from, to)
+                .type(q.get("type"))
+                .price(q.containsKey("minPrice") ? Money.parse(q.get("minPrice")) : null, q.containsKey("maxPrice") ? Money.parse(q.get("maxPrice")) : null)
+                .sort(RoomSearchIndex.Sort.valueOf(q.getOrDefault("sort", "ROOM_NUMBER").toUpperCase(Locale.ROOT)));
+        if (q.containsKey("minRating")) search.minRating(Double.parseDouble(q.get("minRating")));
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (Room room : RoomService.get().search(search)) {
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("id", room.getId());
+            r.put("roomNumber", room.getRoomNumber());
+            r.put("type", room.getType());
+            r.put("price", room.getPrice().toBigDecimal());
+            r.put("rating", room.getRating());
+            r.put("reviewCount", room.getReviewCount());
+            out.add(r);
+        }
+        return out;
+    }
+
+    private Object bookings(HttpExchange ex) throws Exception {
+        String path = ex.getRequestURI().getPath();
+        Matcher m = CANCEL_PATH.matcher(path);
+        if (m.matches()) {
+            int bookingId = Integer.parseInt(m.group(1));
+            int userId = intField(Json.parseObject(body(ex)), "userId");
+            Booking booking = Repositories.get().bookings().find(bookingId);
+            if (booking == null) throw new NotFoundException("No booking " + bookingId);
+            if (booking.getUserId() != userId) throw new ForbiddenException("Booking " + bookingId + " does not belong to user " + userId);
+            if (!BookingService.get().cancel(bookingId)) throw new NotFoundException("No active booking " + bookingId);
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("bookingId", bookingId);
+            out.put("status", "CANCELLED");
+            return out;
+        }
+        if (!"/api/bookings".equals(path)) throw new NotFoundException("No such resource: " + path);
+
+        Map<String, Object> in = Json.parseObject(body(ex));
+        int userId = intField(in, "userId");
+        int roomId = intField(in, "roomId");
+        LocalDate start = LocalDate.parse(stringField(in, "start"));
+        LocalDate end = LocalDate.parse(stringField(in, "end"));
+        String method = optionalString(in, "paymentMethod");
+        String gpn = optionalString(in, "googlePayNumber");
+        BookingService.Reservation res = BookingService.get().holdForPayment(userId, roomId, start, end, method, gpn);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("bookingId", res.getBookingId());
+        out.put("nights", res.getNights());
+        out.put("total", res.getTotal().toBigDecimal());
+        out.put("paymentStatus", method == null ? "PENDING" : "PAID");
+        return out;
+    }
+
+    private Object payments(HttpExchange ex) throws Exception {
+        Map<String, Object> in = Json.parseObject(body(ex));
+        int userId = intField(in, "userId");
+        int bookingId = intField(in, "bookingId");
+        String method = stringField(in, "paymentMethod");
+        String gpn = optionalString(in, "googlePayNumber");
+        if ("GOOGLEPAY".equals(method) && (gpn == null || gpn.trim().isEmpty())) throw new IllegalArgumentException("googlePayNumber required");
+
+        PaymentService payments = PaymentService.get();
+        PaymentService.Quote quote;
+        try {
+            quote = payments.quote(bookingId);
+        } catch (IllegalArgumentException notFound) {
+            throw new NotFoundException(notFound.getMessage());
+        }
+        if (quote.getUserId() != userId) throw new ForbiddenException("Booking " + bookingId + " does not belong to user " + userId);
+        // a client retrying a timed-out request sends the same key and gets the original payment back;
+        // an already-paid booking is rejected under the booking's lock, after the key is checked
+        String key = ex.getRequestHeaders().getFirst("Idempotency-Key");
+        if (key == null) key = optionalString(in, "idempotencyKey");
+        PaymentService.Receipt receipt = payments.pay(userId, bookingId, quote.getTotal(), method, gpn, key);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("paymentId", receipt.getPaymentId());
+        out.put("bookingId", bookingId);
+        out.put("amount", receipt.getPayment().getAmount().toBigDecimal());
+        out.put("status", "PAID");
+        out.put("replayed", receipt.isReplayed());
+        return out;
+    }
+
+    private Object reviews(HttpExchange ex) throws Exception {
+        Map<String, Object> in = Json.parseObject(body(ex));
+        ReviewService reviews = ReviewService.get();
+        int userId = intField(in, "userId");
+        int roomId;
+        if (in.get("roomId") != null) {
+            roomId = intField(in, "roomId");
+        } else {
+            int bookingId = intField(in, "bookingId");
+            Booking booking = Repositories.get().bookings().find(bookingId);
+            if (booking == null) throw new NotFoundException("Booking " + bookingId + " not found");
+            if (booking.getUserId() != userId) throw new ForbiddenException("Booking " + bookingId + " does not belong to user " + userId);
+            roomId = booking.getRoomId();
+        }
+        int rating = in.get("rating") == null ? 5 : intField(in, "rating");
+        int reviewId = reviews.submit(userId, roomId, stringField(in, "text"), rating);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("reviewId", reviewId);
+        out.put("roomId", roomId);
+        out.put("rating", ReviewService.clampRating(rating));
+        return out;
+    }
+
+    // ---- request/response helpers ----
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("error", message == null ? "error" : message);
+        return out;
+    }
+
+    private static void send(HttpExchange ex, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static String body(HttpExchange ex) throws IOException, TooLargeException {
+        String length = ex.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && Long.parseLong(length.trim()) > MAX_BODY_BYTES) throw new TooLargeException();
+        try (InputStream in = ex.getRequestBody()) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                // chunked bodies have no Content-Length, so the limit is enforced while reading too
+                if (buf.size() + n > MAX_BODY_BYTES) throw new TooLargeException();
+                buf.write(chunk, 0, n);
+            }
+            return buf.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> out = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null) return out;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            out.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    private static String required(Map<String, String> q, String name) {
+        String v = q.get(name);
+        if (v == null || v.isEmpty()) throw new IllegalArgumentException("Missing query parameter: " + name);
+        return v;
+    }
+
+    private static int intField(Map<String, Object> in, String name) {
+        Object v = in.get(name);
+        if (v instanceof Number) return ((Number) v).intValue();
+        if (v instanceof String) {
+            try {
+                return Integer.parseInt(((String) v).trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Field " + name + " must be a number");
+            }
+        }
+        throw new IllegalArgumentException("Missing field: " + name);
+    }
+
+    private static String stringField(Map<String, Object> in, String name) {
+        String v = optionalString(in, name);
+        if (v == null || v.trim().isEmpty()) throw new IllegalArgumentException("Missing field: " + name);
+        return v;
+    }
+
+    private static String optionalString(Map<String, Object> in, String name) {
+        Object v = in.get(name);
+        return v == null ? null : v.toString();
+    }
+
+    static final class NotFoundException extends Exception {
+        NotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    static final class ForbiddenException extends Exception {
+        ForbiddenException(String message) {
+            super(message);
+        }
+    }
+
+    static final class TooLargeException extends Exception {
+        TooLargeException() {
+            super("Request body over " + MAX_BODY_BYTES + " bytes");
+        }
+    }
+}
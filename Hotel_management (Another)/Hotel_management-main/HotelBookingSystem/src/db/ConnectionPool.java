@@ -0,0 +1,307 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small bounded JDBC connection pool used behind {@link Database#connect()}.
+ * Connections handed out are proxies: calling close() returns the physical
+ * connection to the pool instead of closing it. Each pooled connection keeps
+ * its own {@link StatementCache}, so prepareStatement(sql) on a handle reuses
+ * a statement prepared by an earlier borrower of the same connection.
+ */
+public class ConnectionPool {
+	private final String url;
+	private final String user;
+	private final String pass;
+	private final int maxSize;
+	private final int minIdle;
+	private final long borrowTimeoutMs;
+	private final long idleTimeoutMs;
+	private final long maxLifetimeMs;
+	private final long leakThresholdMs;
+	private final int statementCacheSize;
+
+	private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+	private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+	private final Semaphore permits;
+	private final ScheduledExecutorService housekeeper;
+	private final AtomicBoolean closed = new AtomicBoolean();
+	// physical connections open or being opened, wherever they are
+	private final AtomicInteger total = new AtomicInteger();
+	// set while prewarm cannot reach the database, so the outage is logged once
+	private final AtomicBoolean prewarmFailing = new AtomicBoolean();
+
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong createdCount = new AtomicLong();
+	private final AtomicLong destroyedCount = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	private final AtomicLong leakCount = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong statementHits = new AtomicLong();
+	private final AtomicLong statementMisses = new AtomicLong();
+	private final AtomicLong statementEvictions = new AtomicLong();
+
+	public ConnectionPool(String url, String user, String pass, int maxSize, int minIdle,
+			long borrowTimeoutMs, long idleTimeoutMs, long maxLifetimeMs, long leakThresholdMs, int statementCacheSize) {
+		this.url = url;
+		this.user = user;
+		this.pass = pass;
+		this.maxSize = maxSize;
+		this.minIdle = Math.min(minIdle, maxSize);
+		this.borrowTimeoutMs = borrowTimeoutMs;
+		this.idleTimeoutMs = idleTimeoutMs;
+		this.maxLifetimeMs = maxLifetimeMs;
+		this.leakThresholdMs = leakThresholdMs;
+		this.statementCacheSize = statementCacheSize;
+		this.permits = new Semaphore(maxSize, true);
+		this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "db-pool-housekeeper");
+			t.setDaemon(true);
+			return t;
+		});
+		housekeeper.scheduleWithFixedDelay(this::housekeep, 5, 5, TimeUnit.SECONDS);
+	}
+
+	// Opens connections until the pool holds minIdle
+	public void prewarm() {
+		while (!closed.get()) {
+			int n = total.get();
+			if (n >= minIdle) return;
+			// claim the slot first so a concurrent borrow or prewarm cannot overshoot
+			if (!total.compareAndSet(n, n + 1)) continue;
+			PooledConnection pc;
+			try {
+				pc = connect();
+			} catch (SQLException ex) {
+				total.decrementAndGet();
+				if (prewarmFailing.compareAndSet(false, true)) System.err.println("Connection pool prewarm failed: " + ex.getMessage());
+				return;
+			}
+			if (prewarmFailing.compareAndSet(true, false)) System.err.println("Connection pool: database reachable again");
+			idle.offerLast(pc);
+		}
+	}
+
+	public Connection borrow() throws SQLException {
+		if (closed.get()) throw new SQLException("Connection pool is closed");
+		long t0 = System.nanoTime();
+		try {
+			if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+				timeoutCount.incrementAndGet();
+				throw new SQLTimeoutException("Timed out after " + borrowTimeoutMs + " ms waiting for a database connection (" + stats() + ")");
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection", ie);
+		}
+		long waited = System.nanoTime() - t0;
+		totalWaitNanos.addAndGet(waited);
+		maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+		try {
+			PooledConnection pc;
+			while ((pc = idle.pollFirst()) != null) {
+				if (pc.isExpired(System.currentTimeMillis()) || !pc.validate()) {
+					destroy(pc);
+					continue;
+				}
+				break;
+			}
+			if (pc == null) pc = open();
+			pc.lease(leakThresholdMs > 0 ? new Exception("Connection borrowed here") : null);
+			active.add(pc);
+			borrowCount.incrementAndGet();
+			return pc.newHandle();
+		} catch (SQLException | RuntimeException ex) {
+			permits.release();
+			throw ex;
+		}
+	}
+
+	private PooledConnection open() throws SQLException {
+		total.incrementAndGet();
+		try {
+			return connect();
+		} catch (SQLException ex) {
+			total.decrementAndGet();
+			throw ex;
+		}
+	}
+
+	private PooledConnection connect() throws SQLException {
+		Connection raw = DriverManager.getConnection(url, user, pass);
+		createdCount.incrementAndGet();
+		return new PooledConnection(raw);
+	}
+
+	private void release(PooledConnection pc) {
+		active.remove(pc);
+		try {
+			boolean healthy = !closed.get() && !pc.raw.isClosed() && !pc.isExpired(System.currentTimeMillis());
+			if (healthy) healthy = pc.reset();
+			if (healthy) {
+				pc.lastUsed = System.currentTimeMillis();
+				idle.offerFirst(pc);
+			} else {
+				destroy(pc);
+			}
+		} catch (SQLException ex) {
+			destroy(pc);
+		} finally {
+			permits.release();
+		}
+	}
+
+	private void destroy(PooledConnection pc) {
+		destroyedCount.incrementAndGet();
+		total.decrementAndGet();
+		pc.statements.close();
+		try { pc.raw.close(); } catch (SQLException ignore) {}
+	}
+
+	// Evicts idle connections past idleTimeout/maxLifetime and reports leaked connections
+	private void housekeep() {
+		long now = System.currentTimeMillis();
+		for (PooledConnection pc : idle) {
+			boolean idleTooLong = now - pc.lastUsed > idleTimeoutMs && idle.size() > minIdle;
+			if ((idleTooLong || pc.isExpired(now)) && idle.remove(pc)) destroy(pc);
+		}
+		if (leakThresholdMs > 0) {
+			for (PooledConnection pc : active) {
+				if (!pc.leakReported && now - pc.borrowedAt > leakThresholdMs) {
+					pc.leakReported = true;
+					leakCount.incrementAndGet();
+					System.err.println("Possible connection leak: connection held for " + (now - pc.borrowedAt) + " ms");
+					if (pc.borrowTrace != null) pc.borrowTrace.printStackTrace();
+				}
+			}
+		}
+		prewarm();
+	}
+
+	public PoolStats stats() {
+		long borrows = borrowCount.get();
+		return new PoolStats(maxSize, active.size(), idle.size(), permits.getQueueLength(), borrows,
+				createdCount.get(), destroyedCount.get(), timeoutCount.get(), leakCount.get(),
+				borrows == 0 ? 0 : totalWaitNanos.get() / borrows, maxWaitNanos.get(),
+				statementHits.get(), statementMisses.get(), statementEvictions.get());
+	}
+
+	public void close() {
+		if (!closed.compareAndSet(false, true)) return;
+		housekeeper.shutdownNow();
+		PooledConnection pc;
+		while ((pc = idle.pollFirst()) != null) destroy(pc);
+	}
+
+	private final class PooledConnection {
+		final Connection raw;
+		final StatementCache statements;
+		final long createdAt = System.currentTimeMillis();
+		volatile long lastUsed = createdAt;
+		volatile long borrowedAt;
+		volatile Exception borrowTrace;
+		volatile boolean leakReported;
+
+		PooledConnection(Connection raw) {
+			this.raw = raw;
+			this.statements = new StatementCache(raw, statementCacheSize, statementHits, statementMisses, statementEvictions);
+		}
+
+		boolean isExpired(long now) {
+			return maxLifetimeMs > 0 && now - createdAt > maxLifetimeMs;
+		}
+
+		// Skip the network round trip for connections that were used very recently
+		boolean validate() {
+			try {
+				if (System.currentTimeMillis() - lastUsed < 500) return !raw.isClosed();
+				return raw.isValid(2);
+			} catch (SQLException ex) {
+				return false;
+			}
+		}
+
+		void lease(Exception trace) {
+			borrowedAt = System.currentTimeMillis();
+			borrowTrace = trace;
+			leakReported = false;
+		}
+
+		// Undo per-borrow state so the next borrower sees a clean connection
+		boolean reset() throws SQLException {
+			if (!raw.getAutoCommit()) {
+				raw.rollback();
+				raw.setAutoCommit(true);
+			}
+			if (raw.isReadOnly()) raw.setReadOnly(false);
+			raw.clearWarnings();
+			return true;
+		}
+
+		Connection newHandle() {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[]{Connection.class}, new Handle(this));
+		}
+	}
+
+	private final class Handle implements InvocationHandler {
+		private final PooledConnection pc;
+		private volatile boolean handleClosed;
+
+		Handle(PooledConnection pc) {
+			this.pc = pc;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+				case "close":
+					if (!handleClosed) {
+						handleClosed = true;
+						release(pc);
+					}
+					return null;
+				case "isClosed":
+					return handleClosed || pc.raw.isClosed();
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "PooledConnection[" + pc.raw + "]";
+				case "unwrap":
+				case "isWrapperFor":
+					break;
+				default:
+					if (handleClosed) throw new SQLException("Connection is closed");
+			}
+			if (statementCacheSize > 0 && StatementCache.cacheable(method, args)) {
+				return pc.statements.prepare((Connection) proxy, args);
+			}
+			try {
+				return method.invoke(pc.raw, args);
+			} catch (InvocationTargetException ite) {
+				throw ite.getCause();
+			}
+		}
+	}
+}
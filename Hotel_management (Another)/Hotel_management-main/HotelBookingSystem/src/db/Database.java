@@ -1,7 +1,6 @@
 package db;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 
 public class Database {
 	// Update these constants if your DB runs with different credentials/host
@@ -11,10 +10,58 @@ public class Database {
 	private static final String USER = "root";
 	private static final String PASS = "";
 
-	// Returns a Connection to jdbc:mysql://HOST:PORT/DB_NAME
+	// Connection pool sizing and timeouts; the HTTP API raises the size with -Dhotel.pool.maxSize
+	private static final int POOL_MAX_SIZE = Integer.getInteger("hotel.pool.maxSize", 10);
+	private static final int POOL_MIN_IDLE = Integer.getInteger("hotel.pool.minIdle", 2);
+	private static final long BORROW_TIMEOUT_MS = 5_000;
+	private static final long IDLE_TIMEOUT_MS = 5 * 60_000;
+	private static final long MAX_LIFETIME_MS = 30 * 60_000;
+	private static final long LEAK_THRESHOLD_MS = 30_000;
+	// Prepared statements kept open per pooled connection (0 disables the cache)
+	private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("hotel.db.stmtCacheSize", 64);
+
+	private static volatile ConnectionPool pool;
+
+	// Returns a pooled Connection to jdbc:mysql://HOST:PORT/DB_NAME; close() hands it back to the pool.
+	// Every statement run on it is timed by SqlMetrics.
 	public static Connection connect() throws Exception {
-		Class.forName("com.mysql.cj.jdbc.Driver");
-		String url = String.format("jdbc:mysql://%s:%d/%s?useSSL=false&serverTimezone=UTC", HOST, PORT, DB_NAME);
-		return DriverManager.getConnection(url, USER, PASS);
+		return SqlMetrics.get().wrap(pool().borrow());
+	}
+
+	// Opens the minimum idle connections up front so the first click does not pay for the handshake
+	public static void warmUp() {
+		try {
+			pool().prewarm();
+		} catch (Exception ex) {
+			System.err.println("Database warm-up failed: " + ex.getMessage());
+		}
+	}
+
+	public static PoolStats poolStats() {
+		ConnectionPool p = pool;
+		return p == null ? null : p.stats();
+	}
+
+	public static synchronized void shutdown() {
+		if (pool != null) {
+			pool.close();
+			pool = null;
+			SchemaInfo.invalidate();
+		}
+	}
+
+	private static ConnectionPool pool() throws ClassNotFoundException {
+		ConnectionPool p = pool;
+		if (p != null) return p;
+		synchronized (Database.class) {
+			if (pool == null) {
+				Class.forName("com.mysql.cj.jdbc.Driver");
+				String url = String.format("jdbc:mysql://%s:%d/%s?useSSL=false&serverTimezone=UTC&useServerPrepStmts=true&rewriteBatchedStatements=true", HOST, PORT, DB_NAME);
+				pool = new ConnectionPool(url, USER, PASS, POOL_MAX_SIZE, POOL_MIN_IDLE,
+						BORROW_TIMEOUT_MS, IDLE_TIMEOUT_MS, MAX_LIFETIME_MS, LEAK_THRESHOLD_MS, STATEMENT_CACHE_SIZE);
+				Runtime.getRuntime().addShutdownHook(new Thread(Database::shutdown, "db-pool-shutdown"));
+			}
+			return pool;
+		}
 	}
-}
\ No newline at end of file
+}
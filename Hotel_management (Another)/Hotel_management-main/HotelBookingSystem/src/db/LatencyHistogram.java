@@ -0,0 +1,67 @@
+package db;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear latency histogram in the spirit of HdrHistogram: each
+ * power-of-two range of microseconds is split into 16 linear sub-buckets, so
+ * percentiles are accurate to about 6% from 1 us up to ~9 hours.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BITS = 4;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int RANGES = 32;
+
+	private final AtomicLongArray counts = new AtomicLongArray(RANGES * SUB_COUNT);
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong sumMicros = new AtomicLong();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	public void recordNanos(long nanos) {
+		long micros = Math.max(0, nanos / 1_000);
+		counts.incrementAndGet(indexOf(micros));
+		total.incrementAndGet();
+		sumMicros.addAndGet(micros);
+		maxMicros.accumulateAndGet(micros, Math::max);
+	}
+
+	static int indexOf(long micros) {
+		if (micros < SUB_COUNT) return (int) micros;
+		int range = 63 - Long.numberOfLeadingZeros(micros) - SUB_BITS + 1;
+		if (range >= RANGES) return RANGES * SUB_COUNT - 1;
+		int sub = (int) (micros >>> (range - 1)) & (SUB_COUNT - 1);
+		return range * SUB_COUNT + sub;
+	}
+
+	// Upper bound (inclusive) of the values that fall into bucket index
+	static long upperBound(int index) {
+		int range = index / SUB_COUNT;
+		int sub = index % SUB_COUNT;
+		if (range == 0) return sub;
+		long base = (long) SUB_COUNT << (range - 1);
+		long width = 1L << (range - 1);
+		return base + (sub + 1) * width - 1;
+	}
+
+	public long getCount() { return total.get(); }
+	public long getMaxMicros() { return maxMicros.get(); }
+
+	public double getMeanMicros() {
+		long n = total.get();
+		return n == 0 ? 0 : (double) sumMicros.get() / n;
+	}
+
+	// Value at the given percentile (0-100) in microseconds
+	public long percentileMicros(double percentile) {
+		long n = total.get();
+		if (n == 0) return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if (seen >= rank) return Math.min(upperBound(i), maxMicros.get());
+		}
+		return maxMicros.get();
+	}
+}
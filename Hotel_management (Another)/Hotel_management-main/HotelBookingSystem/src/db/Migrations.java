@@ -0,0 +1,156 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Versioned schema migrations, applied once at startup. Applied versions are
+ * recorded in schema_version; a MySQL named lock keeps two clients starting at
+ * the same time from racing each other. Add new steps to the end of MIGRATIONS
+ * with the next version number and never edit one that has shipped.
+ *
+ * Steps check the catalog before adding columns/indexes so that databases
+ * created from an up-to-date schema.sql (or patched by hand) migrate cleanly.
+ */
+public class Migrations {
+	interface Step {
+		void apply(Connection conn) throws SQLException;
+	}
+
+	static final class Migration {
+		final int version;
+		final String description;
+		final Step step;
+
+		Migration(int version, String description, Step step) {
+			this.version = version;
+			this.description = description;
+			this.step = step;
+		}
+	}
+
+	private static final List<Migration> MIGRATIONS = Arrays.asList(
+		new Migration(1, "users.created_by_owner for spot-booked customers",
+			conn -> addColumnIfMissing(conn, "users", "created_by_owner", "BOOLEAN NOT NULL DEFAULT FALSE")),
+		new Migration(2, "indexes for dashboard queries", conn -> {
+			createIndexIfMissing(conn, "bookings", "idx_bookings_user", "user_id");
+			createIndexIfMissing(conn, "bookings", "idx_bookings_room_dates", "room_id, start_date, end_date");
+			createIndexIfMissing(conn, "payments", "idx_payments_created", "created_at");
+			createIndexIfMissing(conn, "reviews", "idx_reviews_room_created", "room_id, created_at");
+			createIndexIfMissing(conn, "reviews", "idx_reviews_created", "created_at");
+		}),
+		new Migration(3, "index for expiring unpaid bookings",
+			conn -> createIndexIfMissing(conn, "bookings", "idx_bookings_pending", "payment_status, created_at")),
+		new Migration(4, "payments.idempotency_key, unique so a retried payment is stored once", conn -> {
+			addColumnIfMissing(conn, "payments", "idempotency_key", "VARCHAR(64) NULL");
+			createUniqueIndexIfMissing(conn, "payments", "uq_payments_idempotency_key", "idempotency_key");
+		}),
+		new Migration(5, "bookings.hold_expires_at so only unpaid customer holds expire", conn -> {
+			addColumnIfMissing(conn, "bookings", "hold_expires_at", "DATETIME NULL");
+			createIndexIfMissing(conn, "bookings", "idx_bookings_hold", "payment_status, hold_expires_at");
+			dropIndexIfExists(conn, "bookings", "idx_bookings_pending");
+		})
+	);
+
+	private static volatile boolean applied;
+
+	// Applies pending migrations once per JVM; later calls return immediately
+	public static synchronized void apply() throws Exception {
+		if (applied) return;
+		try (Connection conn = Database.connect()) {
+			apply(conn);
+		}
+		applied = true;
+	}
+
+	static void apply(Connection conn) throws SQLException {
+		try (Statement st = conn.createStatement()) {
+			st.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (version INT PRIMARY KEY, description VARCHAR(200) NOT NULL, applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+		}
+		lock(conn);
+		try {
+			Set<Integer> done = new HashSet<>();
+			try (PreparedStatement ps = conn.prepareStatement("SELECT version FROM schema_version"); ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) done.add(rs.getInt(1));
+			}
+			int count = 0;
+			for (Migration m : MIGRATIONS) {
+				if (done.contains(m.version)) continue;
+				System.out.println("Applying migration " + m.version + ": " + m.description);
+				m.step.apply(conn);
+				try (PreparedStatement ps = conn.prepareStatement("INSERT INTO schema_version(version, description) VALUES(?,?)")) {
+					ps.setInt(1, m.version);
+					ps.setString(2, m.description);
+					ps.executeUpdate();
+				}
+				count++;
+			}
+			if (count > 0) System.out.println("Applied " + count + " migration(s)");
+		} finally {
+			unlock(conn);
+			SchemaInfo.invalidate();
+		}
+	}
+
+	private static void lock(Connection conn) throws SQLException {
+		try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK('hotel_db_migrations', 30)"); ResultSet rs = ps.executeQuery()) {
+			if (!rs.next() || rs.getInt(1) != 1) throw new SQLException("Could not acquire migration lock");
+		}
+	}
+
+	private static void unlock(Connection conn) {
+		try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK('hotel_db_migrations')"); ResultSet rs = ps.executeQuery()) {
+			rs.next();
+		} catch (SQLException ex) {
+			ex.printStackTrace();
+		}
+	}
+
+	static void addColumnIfMissing(Connection conn, String table, String column, String definition) throws SQLException {
+		DatabaseMetaData md = conn.getMetaData();
+		try (ResultSet rs = md.getColumns(conn.getCatalog(), null, table, column)) {
+			if (rs.next()) return;
+		}
+		try (Statement st = conn.createStatement()) {
+			st.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+		}
+	}
+
+	static void createIndexIfMissing(Connection conn, String table, String index, String columns) throws SQLException {
+		createIndexIfMissing(conn, table, index, columns, "CREATE INDEX ");
+	}
+
+	static void createUniqueIndexIfMissing(Connection conn, String table, String index, String columns) throws SQLException {
+		createIndexIfMissing(conn, table, index, columns, "CREATE UNIQUE INDEX ");
+	}
+
+	static void dropIndexIfExists(Connection conn, String table, String index) throws SQLException {
+		if (!hasIndex(conn, table, index)) return;
+		try (Statement st = conn.createStatement()) {
+			st.executeUpdate("DROP INDEX " + index + " ON " + table);
+		}
+	}
+
+	private static void createIndexIfMissing(Connection conn, String table, String index, String columns, String create) throws SQLException {
+		if (hasIndex(conn, table, index)) return;
+		try (Statement st = conn.createStatement()) {
+			st.executeUpdate(create + index + " ON " + table + "(" + columns + ")");
+		}
+	}
+
+	private static boolean hasIndex(Connection conn, String table, String index) throws SQLException {
+		DatabaseMetaData md = conn.getMetaData();
+		try (ResultSet rs = md.getIndexInfo(conn.getCatalog(), null, table, false, true)) {
+			while (rs.next()) if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,67 @@
+package db;
+
+// Point-in-time snapshot of ConnectionPool counters
+public class PoolStats {
+	private final int maxSize;
+	private final int active;
+	private final int idle;
+	private final int waiting;
+	private final long borrows;
+	private final long created;
+	private final long destroyed;
+	private final long timeouts;
+	private final long leaks;
+	private final long avgWaitNanos;
+	private final long maxWaitNanos;
+	private final long statementHits;
+	private final long statementMisses;
+	private final long statementEvictions;
+
+	public PoolStats(int maxSize, int active, int idle, int waiting, long borrows, long created,
+			long destroyed, long timeouts, long leaks, long avgWaitNanos, long maxWaitNanos,
+			long statementHits, long statementMisses, long statementEvictions) {
+		this.maxSize = maxSize;
+		this.active = active;
+		this.idle = idle;
+		this.waiting = waiting;
+		this.borrows = borrows;
+		this.created = created;
+		this.destroyed = destroyed;
+		this.timeouts = timeouts;
+		this.leaks = leaks;
+		this.avgWaitNanos = avgWaitNanos;
+		this.maxWaitNanos = maxWaitNanos;
+		this.statementHits = statementHits;
+		this.statementMisses = statementMisses;
+		this.statementEvictions = statementEvictions;
+	}
+
+	public int getMaxSize() { return maxSize; }
+	public int getActive() { return active; }
+	public int getIdle() { return idle; }
+	public int getWaiting() { return waiting; }
+	public long getBorrows() { return borrows; }
+	public long getCreated() { return created; }
+	public long getDestroyed() { return destroyed; }
+	public long getTimeouts() { return timeouts; }
+	public long getLeaks() { return leaks; }
+	public long getAvgWaitNanos() { return avgWaitNanos; }
+	public long getMaxWaitNanos() { return maxWaitNanos; }
+	public long getStatementHits() { return statementHits; }
+	public long getStatementMisses() { return statementMisses; }
+	public long getStatementEvictions() { return statementEvictions; }
+
+	// Fraction of prepareStatement calls served from a connection's statement cache
+	public double getStatementHitRate() {
+		long n = statementHits + statementMisses;
+		return n == 0 ? 0 : (double) statementHits / n;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("active=%d idle=%d max=%d waiting=%d borrows=%d created=%d destroyed=%d timeouts=%d leaks=%d avgWait=%.2fms maxWait=%.2fms stmtCache hits=%d misses=%d evictions=%d hitRate=%.1f%%",
+				active, idle, maxSize, waiting, borrows, created, destroyed, timeouts, leaks,
+				avgWaitNanos / 1_000_000.0, maxWaitNanos / 1_000_000.0,
+				statementHits, statementMisses, statementEvictions, getStatementHitRate() * 100);
+	}
+}
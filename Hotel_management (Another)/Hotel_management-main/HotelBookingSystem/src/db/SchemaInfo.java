@@ -0,0 +1,64 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cached view of which tables and columns exist in hotel_db, read once from
+ * DatabaseMetaData so queries can be chosen up front instead of by trial and
+ * SQLException. Invalidated after migrations and when the pool shuts down.
+ */
+public class SchemaInfo {
+	private static volatile SchemaInfo cached;
+
+	// lower-case table name -> lower-case column names
+	private final Map<String, Set<String>> columns;
+
+	private SchemaInfo(Map<String, Set<String>> columns) {
+		this.columns = columns;
+	}
+
+	public static SchemaInfo get() throws Exception {
+		SchemaInfo s = cached;
+		if (s != null) return s;
+		synchronized (SchemaInfo.class) {
+			if (cached == null) {
+				try (Connection conn = Database.connect()) {
+					cached = load(conn);
+				}
+			}
+			return cached;
+		}
+	}
+
+	public static void invalidate() {
+		cached = null;
+	}
+
+	static SchemaInfo load(Connection conn) throws Exception {
+		Map<String, Set<String>> cols = new HashMap<>();
+		DatabaseMetaData md = conn.getMetaData();
+		try (ResultSet rs = md.getColumns(conn.getCatalog(), null, "%", "%")) {
+			while (rs.next()) {
+				String table = rs.getString("TABLE_NAME").toLowerCase(Locale.ROOT);
+				cols.computeIfAbsent(table, k -> new HashSet<>()).add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+			}
+		}
+		return new SchemaInfo(cols);
+	}
+
+	public boolean hasTable(String table) {
+		return columns.containsKey(table.toLowerCase(Locale.ROOT));
+	}
+
+	public boolean hasColumn(String table, String column) {
+		return columns.getOrDefault(table.toLowerCase(Locale.ROOT), Collections.emptySet()).contains(column.toLowerCase(Locale.ROOT));
+	}
+}
@@ -0,0 +1,328 @@
+package db;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import javax.management.ObjectName;
+
+/**
+ * Per-statement timing for every query issued through {@link Database#connect()}.
+ * Connections are wrapped so that each execute call is timed into a latency
+ * histogram keyed by normalized SQL, together with row and error counts.
+ * Statements slower than the threshold are logged with the calling UI/service
+ * method. Exposed over JMX and dumped to stdout periodically.
+ *
+ * System properties: hotel.sql.slowMs (default 200), hotel.sql.dumpIntervalSec
+ * (default 300, 0 disables the periodic dump).
+ */
+public class SqlMetrics implements SqlMetricsMBean {
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:''|[^'\\\\]|\\\\.)*'");
+	private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	private static final int MAX_STATEMENTS = 1_000;
+	private static final SqlMetrics INSTANCE = new SqlMetrics();
+
+	private final Map<String, StatementStats> stats = new ConcurrentHashMap<>();
+	// raw SQL -> normalized SQL; the UI only uses a few hundred distinct strings
+	private final Map<String, String> normalized = new ConcurrentHashMap<>();
+	private final AtomicLong slowCount = new AtomicLong();
+	private volatile long slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong("hotel.sql.slowMs", 200));
+
+	public static SqlMetrics get() {
+		return INSTANCE;
+	}
+
+	private SqlMetrics() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("hotel.db:type=SqlMetrics"));
+		} catch (Exception ex) {
+			System.err.println("SqlMetrics JMX registration failed: " + ex.getMessage());
+		}
+		long dumpSecs = Long.getLong("hotel.sql.dumpIntervalSec", 300);
+		if (dumpSecs > 0) {
+			ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "sql-metrics-dump");
+				t.setDaemon(true);
+				return t;
+			});
+			dumper.scheduleAtFixedRate(() -> {
+				if (!stats.isEmpty()) System.out.println(dump());
+			}, dumpSecs, dumpSecs, TimeUnit.SECONDS);
+		}
+	}
+
+	public static class StatementStats {
+		private final String sql;
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final AtomicLong rows = new AtomicLong();
+		private final AtomicLong errors = new AtomicLong();
+		private final AtomicLong slow = new AtomicLong();
+
+		StatementStats(String sql) {
+			this.sql = sql;
+		}
+
+		public String getSql() { return sql; }
+		public LatencyHistogram getLatency() { return latency; }
+		public long getRows() { return rows.get(); }
+		public long getErrors() { return errors.get(); }
+		public long getSlow() { return slow.get(); }
+
+		@Override
+		public String toString() {
+			return String.format("n=%d p50=%.2fms p99=%.2fms max=%.2fms rows=%d errors=%d slow=%d  %s",
+					latency.getCount(), latency.percentileMicros(50) / 1000.0, latency.percentileMicros(99) / 1000.0,
+					latency.getMaxMicros() / 1000.0, rows.get(), errors.get(), slow.get(), sql);
+		}
+	}
+
+	public Connection wrap(Connection conn) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[]{Connection.class}, new ConnectionHandler(conn));
+	}
+
+	public StatementStats statsFor(String rawSql) {
+		return stats.get(normalize(rawSql));
+	}
+
+	public List<StatementStats> snapshot() {
+		List<StatementStats> list = new ArrayList<>(stats.values());
+		list.sort((a, b) -> Long.compare(b.latency.percentileMicros(99), a.latency.percentileMicros(99)));
+		return list;
+	}
+
+	static String normalizeSql(String sql) {
+		String s = STRING_LITERAL.matcher(sql).replaceAll("?");
+		s = NUMBER_LITERAL.matcher(s).replaceAll("?");
+		return WHITESPACE.matcher(s).replaceAll(" ").trim();
+	}
+
+	private String normalize(String sql) {
+		String n = normalized.get(sql);
+		if (n == null) {
+			n = normalizeSql(sql);
+			if (normalized.size() < MAX_STATEMENTS * 10) normalized.put(sql, n);
+		}
+		return n;
+	}
+
+	private StatementStats stats(String rawSql) {
+		String key = normalize(rawSql);
+		StatementStats s = stats.get(key);
+		if (s == null) {
+			if (stats.size() >= MAX_STATEMENTS) key = "(other)";
+			s = stats.computeIfAbsent(key, StatementStats::new);
+		}
+		return s;
+	}
+
+	void record(String sql, long nanos, long rows, boolean error) {
+		StatementStats s = stats(sql);
+		s.latency.recordNanos(nanos);
+		if (rows > 0) s.rows.addAndGet(rows);
+		if (error) s.errors.incrementAndGet();
+		if (nanos >= slowThresholdNanos) {
+			s.slow.incrementAndGet();
+			slowCount.incrementAndGet();
+			System.err.printf("SLOW SQL %.1f ms [%s] %s%n", nanos / 1e6, caller(), s.sql);
+		}
+	}
+
+	void addRows(String sql, long rows) {
+		if (rows > 0) stats(sql).rows.addAndGet(rows);
+	}
+
+	// First ui/service frame on the stack, with lambda bodies mapped back to their enclosing method
+	private static String caller() {
+		return StackWalker.getInstance().walk(frames -> frames
+				.filter(f -> f.getClassName().startsWith("ui.") || f.getClassName().startsWith("service.") || f.getClassName().startsWith("api."))
+				.findFirst()
+				.map(f -> {
+					String m = f.getMethodName();
+					if (m.startsWith("lambda$")) {
+						int end = m.indexOf('$', 7);
+						m = end > 7 ? m.substring(7, end) : m;
+					}
+					return f.getClassName() + "." + m + ":" + f.getLineNumber();
+				})
+				.orElse("?"));
+	}
+
+	// ---- JMX ----
+
+	@Override public int getStatementCount() { return stats.size(); }
+
+	@Override
+	public long getTotalExecutions() {
+		long n = 0;
+		for (StatementStats s : stats.values()) n += s.latency.getCount();
+		return n;
+	}
+
+	@Override
+	public long getTotalErrors() {
+		long n = 0;
+		for (StatementStats s : stats.values()) n += s.errors.get();
+		return n;
+	}
+
+	@Override public long getSlowQueryCount() { return slowCount.get(); }
+	@Override public long getSlowThresholdMs() { return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos); }
+	@Override public void setSlowThresholdMs(long millis) { slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(millis); }
+
+	@Override
+	public String[] getStatementSummaries() {
+		List<StatementStats> list = snapshot();
+		String[] out = new String[list.size()];
+		for (int i = 0; i < out.length; i++) out[i] = list.get(i).toString();
+		return out;
+	}
+
+	// Pool counters including the prepared-statement cache hit rate
+	@Override
+	public String getPoolStats() {
+		PoolStats p = Database.poolStats();
+		return p == null ? "pool not started" : p.toString();
+	}
+
+	@Override
+	public String dump() {
+		StringBuilder sb = new StringBuilder("SQL metrics (slowest p99 first):\n");
+		for (String line : getStatementSummaries()) sb.append("  ").append(line).append('\n');
+		sb.append("  pool: ").append(getPoolStats()).append('\n');
+		return sb.toString();
+	}
+
+	@Override
+	public void reset() {
+		stats.clear();
+		slowCount.set(0);
+	}
+
+	// ---- proxies ----
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException ite) {
+			throw ite.getCause();
+		}
+	}
+
+	private final class ConnectionHandler implements InvocationHandler {
+		private final Connection conn;
+
+		ConnectionHandler(Connection conn) {
+			this.conn = conn;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("equals")) return proxy == args[0];
+			if (name.equals("hashCode")) return System.identityHashCode(proxy);
+			Object result = SqlMetrics.invoke(conn, method, args);
+			if (result instanceof Statement) {
+				String sql = (name.equals("prepareStatement") || name.equals("prepareCall")) ? (String) args[0] : null;
+				Class<?> iface = name.equals("prepareCall") ? CallableStatement.class
+						: name.equals("prepareStatement") ? PreparedStatement.class : Statement.class;
+				return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{iface},
+						new StatementHandler((Statement) result, sql));
+			}
+			return result;
+		}
+	}
+
+	private final class StatementHandler implements InvocationHandler {
+		private final Statement stmt;
+		private final String preparedSql;
+		private String lastBatchSql;
+
+		StatementHandler(Statement stmt, String preparedSql) {
+			this.stmt = stmt;
+			this.preparedSql = preparedSql;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("equals")) return proxy == args[0];
+			if (name.equals("hashCode")) return System.identityHashCode(proxy);
+			if (name.equals("addBatch") && args != null && args.length == 1) lastBatchSql = (String) args[0];
+			if (!name.startsWith("execute")) {
+				Object r = SqlMetrics.invoke(stmt, method, args);
+				if (r instanceof ResultSet && name.equals("getResultSet")) return wrapResultSet((ResultSet) r, sqlFor(args, name));
+				return r;
+			}
+			String sql = sqlFor(args, name);
+			long t0 = System.nanoTime();
+			Object result;
+			try {
+				result = SqlMetrics.invoke(stmt, method, args);
+			} catch (Throwable t) {
+				record(sql, System.nanoTime() - t0, 0, true);
+				throw t;
+			}
+			long elapsed = System.nanoTime() - t0;
+			long rows = 0;
+			if (result instanceof Integer) rows = (Integer) result;
+			else if (result instanceof Long) rows = (Long) result;
+			else if (result instanceof int[]) for (int c : (int[]) result) rows += Math.max(c, 0);
+			else if (result instanceof long[]) for (long c : (long[]) result) rows += Math.max(c, 0);
+			record(sql, elapsed, rows, false);
+			if (result instanceof ResultSet) return wrapResultSet((ResultSet) result, sql);
+			return result;
+		}
+
+		private String sqlFor(Object[] args, String name) {
+			if (args != null && args.length > 0 && args[0] instanceof String) return (String) args[0];
+			if (preparedSql != null) return preparedSql;
+			return name.equals("executeBatch") && lastBatchSql != null ? lastBatchSql : "(batch)";
+		}
+	}
+
+	private ResultSet wrapResultSet(ResultSet rs, String sql) {
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+				new InvocationHandler() {
+					private long rows;
+					private boolean reported;
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+						if (name.equals("equals")) return proxy == args[0];
+						if (name.equals("hashCode")) return System.identityHashCode(proxy);
+						Object r = SqlMetrics.invoke(rs, method, args);
+						if (name.equals("next")) {
+							if ((Boolean) r) rows++;
+							else report();
+						} else if (name.equals("close")) {
+							report();
+						}
+						return r;
+					}
+
+					private void report() {
+						if (reported) return;
+						reported = true;
+						addRows(sql, rows);
+					}
+				});
+	}
+}
@@ -0,0 +1,15 @@
+package db;
+
+// JMX view of SqlMetrics, registered as hotel.db:type=SqlMetrics
+public interface SqlMetricsMBean {
+	int getStatementCount();
+	long getTotalExecutions();
+	long getTotalErrors();
+	long getSlowQueryCount();
+	long getSlowThresholdMs();
+	void setSlowThresholdMs(long millis);
+	String[] getStatementSummaries();
+	String getPoolStats();
+	String dump();
+	void reset();
+}
@@ -0,0 +1,177 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for one pooled connection, keyed by SQL.
+ * With useServerPrepStmts the statement handle lives on the MySQL server, so
+ * reusing it skips the parse/plan round trip on every dashboard refresh.
+ *
+ * prepare() checks a statement out of the cache (or prepares a new one); the
+ * caller gets a proxy whose close() clears parameters and puts the statement
+ * back instead of deallocating it. A statement is never shared while checked
+ * out. Statements whose fetch size, row limits or timeouts were changed are
+ * closed for real rather than cached, so the next user gets default settings.
+ */
+class StatementCache {
+	// Statement settings that outlive one use; touching any of them disqualifies the statement from reuse
+	private static final Set<String> STICKY_SETTERS = new HashSet<>(Arrays.asList(
+		"setFetchSize", "setFetchDirection", "setMaxRows", "setLargeMaxRows", "setMaxFieldSize",
+		"setQueryTimeout", "setEscapeProcessing", "setCursorName", "setPoolable", "closeOnCompletion"));
+
+	private final Connection raw;
+	private final int capacity;
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+	private final AtomicLong evictions;
+	private final LinkedHashMap<String, PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+	private boolean closed;
+
+	StatementCache(Connection raw, int capacity, AtomicLong hits, AtomicLong misses, AtomicLong evictions) {
+		this.raw = raw;
+		this.capacity = capacity;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+	}
+
+	// Only the plain prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) forms are cached
+	static boolean cacheable(Method method, Object[] args) {
+		if (!method.getName().equals("prepareStatement") || args == null) return false;
+		if (args.length == 1) return true;
+		return args.length == 2 && args[1] instanceof Integer;
+	}
+
+	PreparedStatement prepare(Connection owner, Object[] args) throws SQLException {
+		String sql = (String) args[0];
+		int autoKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+		String key = autoKeys + ":" + sql;
+		PreparedStatement ps;
+		synchronized (this) {
+			ps = idle.remove(key);
+		}
+		if (ps != null && !ps.isClosed()) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+			ps = raw.prepareStatement(sql, autoKeys);
+		}
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[]{PreparedStatement.class}, new Lease(owner, ps, key));
+	}
+
+	// Returns a statement to the cache, evicting the least recently used one if full
+	private void checkIn(String key, PreparedStatement ps) {
+		PreparedStatement displaced = null;
+		PreparedStatement evicted = null;
+		synchronized (this) {
+			if (!closed) {
+				displaced = idle.put(key, ps);
+				if (idle.size() > capacity) {
+					Iterator<PreparedStatement> it = idle.values().iterator();
+					evicted = it.next();
+					it.remove();
+				}
+				ps = null;
+			}
+		}
+		if (ps != null) closeQuietly(ps);
+		if (displaced != null) closeQuietly(displaced);
+		if (evicted != null) {
+			evictions.incrementAndGet();
+			closeQuietly(evicted);
+		}
+	}
+
+	// Closes every cached statement; statements still checked out are closed when returned
+	void close() {
+		PreparedStatement[] all;
+		synchronized (this) {
+			closed = true;
+			all = idle.values().toArray(new PreparedStatement[0]);
+			idle.clear();
+		}
+		for (PreparedStatement ps : all) closeQuietly(ps);
+	}
+
+	private static void closeQuietly(PreparedStatement ps) {
+		try { ps.close(); } catch (SQLException ignore) {}
+	}
+
+	private final class Lease implements InvocationHandler {
+		private final Connection owner;
+		private final PreparedStatement ps;
+		private final String key;
+		private boolean released;
+		private boolean sticky;
+		private boolean batched;
+
+		Lease(Connection owner, PreparedStatement ps, String key) {
+			this.owner = owner;
+			this.ps = ps;
+			this.key = key;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			switch (name) {
+				case "close":
+					if (!released) {
+						released = true;
+						release();
+					}
+					return null;
+				case "isClosed":
+					return released || ps.isClosed();
+				case "getConnection":
+					return owner;
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				default:
+					if (released) throw new SQLException("Statement is closed");
+			}
+			if (STICKY_SETTERS.contains(name)) sticky = true;
+			else if (name.equals("addBatch")) batched = true;
+			try {
+				return method.invoke(ps, args);
+			} catch (InvocationTargetException ite) {
+				throw ite.getCause();
+			}
+		}
+
+		private void release() throws SQLException {
+			if (sticky || ps.isClosed()) {
+				ps.close();
+				return;
+			}
+			try {
+				ResultSet open = ps.getResultSet();
+				if (open != null) open.close();
+				ps.clearParameters();
+				if (batched) ps.clearBatch();
+				ps.clearWarnings();
+			} catch (SQLException ex) {
+				closeQuietly(ps);
+				return;
+			}
+			checkIn(key, ps);
+		}
+	}
+}
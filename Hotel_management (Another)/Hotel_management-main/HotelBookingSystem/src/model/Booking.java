@@ -1,22 +1,35 @@
 package model;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
 public class Booking {
     private int id;
     private int userId;
     private int roomId;
-    private String startDate;
-    private String endDate;
+    private LocalDate startDate;
+    private LocalDate endDate;
     private String status; // "BOOKED", "CANCELLED", etc.
+    private String paymentStatus; // "PENDING", "PAID" or "CANCELLED"
+    private LocalDateTime createdAt;
+    private LocalDateTime holdExpiresAt; // unpaid customer bookings only; null means never expires
 
     public Booking() {}
 
-    public Booking(int id, int userId, int roomId, String startDate, String endDate, String status) {
+    public Booking(int id, int userId, int roomId, LocalDate startDate, LocalDate endDate, String status, String paymentStatus) {
         this.id = id;
         this.userId = userId;
         this.roomId = roomId;
         this.startDate = startDate;
         this.endDate = endDate;
         this.status = status;
+        this.paymentStatus = paymentStatus;
+    }
+
+    public Booking(Booking other) {
+        this(other.id, other.userId, other.roomId, other.startDate, other.endDate, other.status, other.paymentStatus);
+        this.createdAt = other.createdAt;
+        this.holdExpiresAt = other.holdExpiresAt;
     }
 
     // Getters and Setters
@@ -29,12 +42,23 @@ public class Booking {
     public int getRoomId() { return roomId; }
     public void setRoomId(int roomId) { this.roomId = roomId; }
 
-    public String getStartDate() { return startDate; }
-    public void setStartDate(String startDate) { this.startDate = startDate; }
+    public LocalDate getStartDate() { return startDate; }
+    public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
 
-    public String getEndDate() { return endDate; }
-    public void setEndDate(String endDate) { this.endDate = endDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
 
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
+
+    public String getPaymentStatus() { return paymentStatus; }
+    public void setPaymentStatus(String paymentStatus) { this.paymentStatus = paymentStatus; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getHoldExpiresAt() { return holdExpiresAt; }
+    public void setHoldExpiresAt(LocalDateTime holdExpiresAt) { this.holdExpiresAt = holdExpiresAt; }
+
+    public boolean isCancelled() { return "CANCELLED".equals(status); }
 }
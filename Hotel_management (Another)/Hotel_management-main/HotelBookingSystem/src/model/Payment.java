@@ -0,0 +1,61 @@
+package model;
+
+import java.time.LocalDateTime;
+
+public class Payment {
+    private int id;
+    private int userId;
+    private int bookingId;
+    private Money amount;
+    private String status; // "PAID" or "PENDING"
+    private String method; // "CASH", "GOOGLEPAY", "QR", ...
+    private String googlePayNumber;
+    private LocalDateTime createdAt;
+    private String idempotencyKey; // client-chosen, one per payment attempt; null if none was given
+
+    public Payment() {}
+
+    public Payment(int id, int userId, int bookingId, Money amount, String status, String method, String googlePayNumber, LocalDateTime createdAt) {
+        this.id = id;
+        this.userId = userId;
+        this.bookingId = bookingId;
+        this.amount = amount;
+        this.status = status;
+        this.method = method;
+        this.googlePayNumber = googlePayNumber;
+        this.createdAt = createdAt;
+    }
+
+    public Payment(Payment other) {
+        this(other.id, other.userId, other.bookingId, other.amount, other.status, other.method, other.googlePayNumber, other.createdAt);
+        this.idempotencyKey = other.idempotencyKey;
+    }
+
+    // Getters and Setters
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public int getUserId() { return userId; }
+    public void setUserId(int userId) { this.userId = userId; }
+
+    public int getBookingId() { return bookingId; }
+    public void setBookingId(int bookingId) { this.bookingId = bookingId; }
+
+    public Money getAmount() { return amount; }
+    public void setAmount(Money amount) { this.amount = amount; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getMethod() { return method; }
+    public void setMethod(String method) { this.method = method; }
+
+    public String getGooglePayNumber() { return googlePayNumber; }
+    public void setGooglePayNumber(String googlePayNumber) { this.googlePayNumber = googlePayNumber; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+}
@@ -0,0 +1,46 @@
+package model;
+
+import java.time.LocalDateTime;
+
+public class Review {
+    private int id;
+    private int userId;
+    private int roomId;
+    private String text;
+    private int rating; // 1-5
+    private LocalDateTime createdAt;
+
+    public Review() {}
+
+    public Review(int id, int userId, int roomId, String text, int rating, LocalDateTime createdAt) {
+        this.id = id;
+        this.userId = userId;
+        this.roomId = roomId;
+        this.text = text;
+        this.rating = rating;
+        this.createdAt = createdAt;
+    }
+
+    public Review(Review other) {
+        this(other.id, other.userId, other.roomId, other.text, other.rating, other.createdAt);
+    }
+
+    // Getters and Setters
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public int getUserId() { return userId; }
+    public void setUserId(int userId) { this.userId = userId; }
+
+    public int getRoomId() { return roomId; }
+    public void setRoomId(int roomId) { this.roomId = roomId; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public int getRating() { return rating; }
+    public void setRating(int rating) { this.rating = rating; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -4,12 +4,15 @@ public class Room {
     private int id;
     private String roomNumber;
     private String type;
-    private double price;
+    private Money price;
     private boolean available;
+    // average stars and number of reviews, filled in by room searches
+    private double rating;
+    private int reviewCount;
 
     public Room() {}
 
-    public Room(int id, String roomNumber, String type, double price, boolean available) {
+    public Room(int id, String roomNumber, String type, Money price, boolean available) {
         this.id = id;
         this.roomNumber = roomNumber;
         this.type = type;
@@ -17,6 +20,12 @@ public class Room {
         this.available = available;
     }
 
+    public Room(Room other) {
+        this(other.id, other.roomNumber, other.type, other.price, other.available);
+        this.rating = other.rating;
+        this.reviewCount = other.reviewCount;
+    }
+
     // Getters and Setters
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
@@ -27,12 +36,18 @@ public class Room {
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
 
-    public double getPrice() { return price; }
-    public void setPrice(double price) { this.price = price; }
+    public Money getPrice() { return price; }
+    public void setPrice(Money price) { this.price = price; }
 
     public boolean isAvailable() { return available; }
     public void setAvailable(boolean available) { this.available = available; }
 
+    public double getRating() { return rating; }
+    public void setRating(double rating) { this.rating = rating; }
+
+    public int getReviewCount() { return reviewCount; }
+    public void setReviewCount(int reviewCount) { this.reviewCount = reviewCount; }
+
     @Override
     public String toString() {
         return roomNumber + " - " + type + " - $" + price;
@@ -21,6 +21,10 @@ public class User {
         this.userType = userType;
     }
 
+    public User(User other) {
+        this(other.id, other.name, other.username, other.password, other.email, other.phone, other.userType);
+    }
+
     // Getters and Setters
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
@@ -0,0 +1,47 @@
+package repo;
+
+import model.Booking;
+import model.Payment;
+import model.Room;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BookingRepository {
+    /** Called with the room locked; returns the payment to store with the booking, or null. */
+    interface Charge {
+        Payment apply(Room room) throws Exception;
+    }
+
+    // null if there is no such booking
+    Booking find(int id) throws Exception;
+
+    List<Booking> findByUser(int userId) throws Exception;
+
+    // Bookings that are not cancelled and end on or after the given day
+    List<Booking> findActive(LocalDate endingFrom) throws Exception;
+
+    /**
+     * Stores the booking unless an active booking of the same room overlaps its
+     * dates, in which case nothing is stored and false is returned. The overlap
+     * check, the charge and both inserts happen atomically; the booking (and the
+     * payment, if any) get their ids and the booking its payment status; a
+     * booking that is paid here loses its payment hold.
+     */
+    boolean reserve(Booking booking, Charge charge) throws Exception;
+
+    // false if the booking does not exist or was already cancelled
+    boolean cancel(int id) throws Exception;
+
+    /**
+     * Cancels up to limit bookings whose payment is still PENDING and whose
+     * payment hold ran out before cutoff, oldest first, and returns them as
+     * cancelled. Bookings without a hold (owner spot bookings, imports) never
+     * expire. Bookings another transaction is working on are skipped until a
+     * later call.
+     */
+    List<Booking> expirePending(LocalDateTime cutoff, int limit) throws Exception;
+
+    // Sets payment_status to PAID without a payment row; false if the booking does not exist or was cancelled
+    boolean markPaid(int id) throws Exception;
+}
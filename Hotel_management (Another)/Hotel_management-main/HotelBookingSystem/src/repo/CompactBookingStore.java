@@ -0,0 +1,287 @@
+package repo;
+
+import model.Booking;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Bookings held as parallel primitive arrays (struct-of-arrays) instead of one
+ * Booking object per row: user and room ids and the dates as int epoch-days,
+ * status and payment status as byte codes, creation time and payment hold
+ * expiry as epoch seconds. A booking costs 34 bytes of array space rather than a Booking, three date
+ * objects and their headers, and scans walk a few contiguous arrays.
+ *
+ * Ids are assigned here, sequentially from 1, and a booking's id is its slot
+ * + 1, so lookups are array reads. Rows are read through a flyweight Row
+ * positioned on a slot, or converted to and from Booking at the edges. A
+ * read-write lock guards the arrays: scans and lookups share it, appends and
+ * status changes take it exclusively for a few array stores.
+ */
+public final class CompactBookingStore {
+    // status codes; names seen later (other databases, imports) get the next free code
+    public static final byte BOOKED = 0;
+    public static final byte CANCELLED = 1;
+    // payment status codes
+    public static final byte PENDING = 0;
+    public static final byte PAID = 1;
+    public static final byte PAYMENT_CANCELLED = 2;
+
+    private final Codes statusCodes = new Codes("BOOKED", "CANCELLED");
+    private final Codes paymentCodes = new Codes("PENDING", "PAID", "CANCELLED");
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[] userIds;
+    private int[] roomIds;
+    private int[] startDays;
+    private int[] endDays;
+    private byte[] statuses;
+    private byte[] payments;
+    // creation time as LocalDateTime.toEpochSecond(UTC), i.e. local wall-clock seconds
+    private long[] createdSeconds;
+    // payment hold expiry in the same seconds, 0 for bookings that are not held (owner spot bookings, imports, paid)
+    private long[] holdSeconds;
+    private int size;
+    // no booking below this slot is a PENDING hold; payment status never returns to PENDING, so it only moves up
+    private final AtomicInteger pendingFloor = new AtomicInteger();
+
+    public CompactBookingStore() {
+        this(1024);
+    }
+
+    public CompactBookingStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        userIds = new int[capacity];
+        roomIds = new int[capacity];
+        startDays = new int[capacity];
+        endDays = new int[capacity];
+        statuses = new byte[capacity];
+        payments = new byte[capacity];
+        createdSeconds = new long[capacity];
+        holdSeconds = new long[capacity];
+    }
+
+    /** Stores the booking under the next id, which is set on it and returned; a missing creation time means now. */
+    public int add(Booking b) {
+        if (b.getCreatedAt() == null) b.setCreatedAt(LocalDateTime.now().withNano(0));
+        long hold = b.getHoldExpiresAt() != null ? b.getHoldExpiresAt().toEpochSecond(ZoneOffset.UTC) : 0;
+        int id = append(b.getUserId(), b.getRoomId(), (int) b.getStartDate().toEpochDay(), (int) b.getEndDate().toEpochDay(),
+                statusCodes.code(b.getStatus()), paymentCodes.code(b.getPaymentStatus()), b.getCreatedAt().toEpochSecond(ZoneOffset.UTC), hold);
+        b.setId(id);
+        return id;
+    }
+
+    public int append(int userId, int roomId, int startDay, int endDay, byte status, byte paymentStatus, long createdSecond, long holdSecond) {
+        lock.writeLock().lock();
+        try {
+            if (size == userIds.length) grow();
+            int i = size++;
+            userIds[i] = userId;
+            roomIds[i] = roomId;
+            startDays[i] = startDay;
+            endDays[i] = endDay;
+            statuses[i] = status;
+            payments[i] = paymentStatus;
+            createdSeconds[i] = createdSecond;
+            holdSeconds[i] = holdSecond;
+            return i + 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A copy of the booking, or null if there is none with this id
+    public Booking get(int id) {
+        lock.readLock().lock();
+        try {
+            return exists(id) ? toBooking(id - 1) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The booking's room, or -1 if there is no such booking
+    public int roomOf(int id) {
+        lock.readLock().lock();
+        try {
+            return exists(id) ? roomIds[id - 1] : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int endDayOf(int id) {
+        lock.readLock().lock();
+        try {
+            return endDays[id - 1];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Overwrites both status columns; false if there is no such booking
+    public boolean setStatus(int id, String status, String paymentStatus) {
+        byte s = statusCodes.code(status), p = paymentCodes.code(paymentStatus);
+        lock.writeLock().lock();
+        try {
+            if (!exists(id)) return false;
+            statuses[id - 1] = s;
+            payments[id - 1] = p;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Calls visitor once per booking in id order with the same Row, repositioned each time; the Row must not escape. */
+    public void scan(Consumer<Row> visitor) {
+        lock.readLock().lock();
+        try {
+            Row row = new Row();
+            for (int i = 0; i < size; i++) {
+                row.slot = i;
+                visitor.accept(row);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Active bookings ending on or after the given epoch day, counted straight off the arrays
+    public int countActive(int endingFromDay) {
+        lock.readLock().lock();
+        try {
+            int n = 0;
+            for (int i = 0; i < size; i++) if (statuses[i] != CANCELLED && endDays[i] >= endingFromDay) n++;
+            return n;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of up to limit bookings still PENDING payment whose hold expired
+     * before cutoffSecond, oldest first. Every hold is the same length and
+     * bookings are appended in creation order, so the scan starts at the
+     * lowest slot that may still be held and stops at the first hold that is
+     * still running.
+     */
+    public int[] holdsExpiredBefore(long cutoffSecond, int limit) {
+        lock.readLock().lock();
+        try {
+            int[] ids = new int[Math.min(limit, size)];
+            int n = 0;
+            int firstPending = -1;
+            int i = pendingFloor.get();
+            for (; i < size && n < ids.length; i++) {
+                if (payments[i] != PENDING || holdSeconds[i] == 0) continue;
+                if (firstPending < 0) firstPending = i;
+                if (holdSeconds[i] >= cutoffSecond) break;
+                ids[n++] = i + 1;
+            }
+            int floor = firstPending >= 0 ? firstPending : i;
+            pendingFloor.accumulateAndGet(floor, Math::max);
+            return Arrays.copyOf(ids, n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bytes held by the column arrays, including spare capacity
+    public long arrayBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) userIds.length * (4 * 4 + 2 + 8 + 8);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean exists(int id) {
+        return id >= 1 && id <= size;
+    }
+
+    private Booking toBooking(int i) {
+        Booking b = new Booking(i + 1, userIds[i], roomIds[i], LocalDate.ofEpochDay(startDays[i]), LocalDate.ofEpochDay(endDays[i]),
+                statusCodes.name(statuses[i]), paymentCodes.name(payments[i]));
+        b.setCreatedAt(LocalDateTime.ofEpochSecond(createdSeconds[i], 0, ZoneOffset.UTC));
+        if (holdSeconds[i] != 0) b.setHoldExpiresAt(LocalDateTime.ofEpochSecond(holdSeconds[i], 0, ZoneOffset.UTC));
+        return b;
+    }
+
+    private void grow() {
+        int n = userIds.length * 2;
+        userIds = Arrays.copyOf(userIds, n);
+        roomIds = Arrays.copyOf(roomIds, n);
+        startDays = Arrays.copyOf(startDays, n);
+        endDays = Arrays.copyOf(endDays, n);
+        statuses = Arrays.copyOf(statuses, n);
+        payments = Arrays.copyOf(payments, n);
+        createdSeconds = Arrays.copyOf(createdSeconds, n);
+        holdSeconds = Arrays.copyOf(holdSeconds, n);
+    }
+
+    /** Flyweight view of one booking; only valid inside the scan callback that handed it out. */
+    public final class Row {
+        private int slot;
+
+        private Row() {}
+
+        public int getId() { return slot + 1; }
+        public int getUserId() { return userIds[slot]; }
+        public int getRoomId() { return roomIds[slot]; }
+        public int getStartDay() { return startDays[slot]; }
+        public int getEndDay() { return endDays[slot]; }
+        public byte getStatusCode() { return statuses[slot]; }
+        public byte getPaymentCode() { return payments[slot]; }
+        public long getCreatedSecond() { return createdSeconds[slot]; }
+        public long getHoldSecond() { return holdSeconds[slot]; }
+        public boolean isCancelled() { return statuses[slot] == CANCELLED; }
+        public LocalDate getStartDate() { return LocalDate.ofEpochDay(startDays[slot]); }
+        public LocalDate getEndDate() { return LocalDate.ofEpochDay(endDays[slot]); }
+        public String getStatus() { return statusCodes.name(statuses[slot]); }
+        public String getPaymentStatus() { return paymentCodes.name(payments[slot]); }
+        public Booking toBooking() { return CompactBookingStore.this.toBooking(slot); }
+    }
+
+    // Byte code <-> name for one status column; codes are never reused
+    private static final class Codes {
+        private volatile String[] names;
+
+        Codes(String... known) {
+            names = known;
+        }
+
+        byte code(String name) {
+            if (name == null) throw new IllegalArgumentException("Status required");
+            String[] n = names;
+            for (int i = 0; i < n.length; i++) if (n[i].equals(name)) return (byte) i;
+            synchronized (this) {
+                n = names;
+                for (int i = 0; i < n.length; i++) if (n[i].equals(name)) return (byte) i;
+                if (n.length == Byte.MAX_VALUE + 1) throw new IllegalStateException("Too many distinct status values");
+                String[] next = Arrays.copyOf(n, n.length + 1);
+                next[n.length] = name;
+                names = next;
+                return (byte) n.length;
+            }
+        }
+
+        String name(byte code) {
+            return names[code];
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package repo;
+
+import db.Database;
+import model.Booking;
+import model.Payment;
+import model.Room;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bookings in MySQL. A reservation is one transaction: the room row is locked
+ * FOR UPDATE while the overlap check, booking insert and optional payment
+ * insert run, so two clerks can never book the same room for overlapping dates.
+ */
+class JdbcBookingRepository implements BookingRepository {
+    private static final String COLUMNS = "SELECT id, user_id, room_id, start_date, end_date, status, payment_status, created_at, hold_expires_at FROM bookings";
+    // lapsed payment holds, oldest first, a range scan of idx_bookings_hold; rows a payment is holding are left for the next sweep
+    private static final String EXPIRED_SQL = COLUMNS + " WHERE payment_status='PENDING' AND hold_expires_at<? ORDER BY hold_expires_at LIMIT ? FOR UPDATE SKIP LOCKED";
+    // room lookup, lock and overlap check in a single round trip
+    private static final String LOCK_ROOM_SQL =
+            "SELECT r.id, r.room_number, r.type, r.price, r.available, " +
+            "EXISTS(SELECT 1 FROM bookings b WHERE b.room_id=r.id AND b.status<>'CANCELLED' AND b.start_date<? AND b.end_date>?) AS taken " +
+            "FROM rooms r WHERE r.id=? FOR UPDATE";
+    private static final String INSERT_BOOKING_SQL =
+            "INSERT INTO bookings(user_id, room_id, start_date, end_date, status, payment_status, hold_expires_at) VALUES(?,?,?,?,?,?,?)";
+    private static final String CANCEL_SQL =
+            "UPDATE bookings SET status='CANCELLED', payment_status='CANCELLED' WHERE id=? AND status<>'CANCELLED'";
+    private static final String MARK_PAID_SQL =
+            "UPDATE bookings SET payment_status='PAID' WHERE id=? AND status<>'CANCELLED' AND payment_status<>'CANCELLED'";
+
+    @Override
+    public Booking find(int id) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(COLUMNS + " WHERE id=?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? read(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public List<Booking> findByUser(int userId) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(COLUMNS + " WHERE user_id=? ORDER BY start_date DESC")) {
+            ps.setInt(1, userId);
+            return list(ps);
+        }
+    }
+
+    @Override
+    public List<Booking> findActive(LocalDate endingFrom) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(COLUMNS + " WHERE status<>'CANCELLED' AND end_date>=?")) {
+            ps.setDate(1, Date.valueOf(endingFrom));
+            return list(ps);
+        }
+    }
+
+    @Override
+    public boolean reserve(Booking booking, Charge charge) throws Exception {
+        try (Connection conn = Database.connect()) {
+            conn.setAutoCommit(false);
+            try {
+                Room room;
+                try (PreparedStatement ps = conn.prepareStatement(LOCK_ROOM_SQL)) {
+                    ps.setDate(1, Date.valueOf(booking.getEndDate()));
+                    ps.setDate(2, Date.valueOf(booking.getStartDate()));
+                    ps.setInt(3, booking.getRoomId());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) throw new IllegalArgumentException("Room " + booking.getRoomId() + " not found");
+                        if (rs.getBoolean("taken")) {
+                            conn.rollback();
+                            return false;
+                        }
+                        room = JdbcRoomRepository.read(rs);
+                    }
+                }
+                Payment payment = charge.apply(room);
+                booking.setPaymentStatus(payment != null ? "PAID" : "PENDING");
+                if (payment != null) booking.setHoldExpiresAt(null);
+
+                try (PreparedStatement ps = conn.prepareStatement(INSERT_BOOKING_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setInt(1, booking.getUserId());
+                    ps.setInt(2, booking.getRoomId());
+                    ps.setDate(3, Date.valueOf(booking.getStartDate()));
+                    ps.setDate(4, Date.valueOf(booking.getEndDate()));
+                    ps.setString(5, booking.getStatus());
+                    ps.setString(6, booking.getPaymentStatus());
+                    ps.setTimestamp(7, booking.getHoldExpiresAt() != null ? Timestamp.valueOf(booking.getHoldExpiresAt()) : null);
+                    ps.executeUpdate();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        if (!keys.next()) throw new IllegalStateException("No id generated for booking");
+                        booking.setId(keys.getInt(1));
+                    }
+                }
+                if (payment != null) {
+                    payment.setBookingId(booking.getId());
+                    JdbcPaymentRepository.insert(conn, payment);
+                }
+                conn.commit();
+                return true;
+            } catch (Exception ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    @Override
+    public boolean cancel(int id) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(CANCEL_SQL)) {
+            ps.setInt(1, id);
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    public List<Booking> expirePending(LocalDateTime cutoff, int limit) throws Exception {
+        try (Connection conn = Database.connect()) {
+            conn.setAutoCommit(false);
+            try {
+                List<Booking> expired;
+                try (PreparedStatement ps = conn.prepareStatement(EXPIRED_SQL)) {
+                    ps.setTimestamp(1, Timestamp.valueOf(cutoff));
+                    ps.setInt(2, limit);
+                    expired = list(ps);
+                }
+                if (!expired.isEmpty()) {
+                    StringBuilder sql = new StringBuilder("UPDATE bookings SET status='CANCELLED', payment_status='CANCELLED' WHERE id IN (");
+                    for (int i = 0; i < expired.size(); i++) sql.append(i == 0 ? "?" : ",?");
+                    sql.append(')');
+                    try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                        for (int i = 0; i < expired.size(); i++) ps.setInt(i + 1, expired.get(i).getId());
+                        ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+                for (Booking b : expired) {
+                    b.setStatus("CANCELLED");
+                    b.setPaymentStatus("CANCELLED");
+                }
+                return expired;
+            } catch (Exception ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    @Override
+    public boolean markPaid(int id) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(MARK_PAID_SQL)) {
+            ps.setInt(1, id);
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    private static List<Booking> list(PreparedStatement ps) throws Exception {
+        try (ResultSet rs = ps.executeQuery()) {
+            List<Booking> out = new ArrayList<>();
+            while (rs.next()) out.add(read(rs));
+            return out;
+        }
+    }
+
+    private static Booking read(ResultSet rs) throws Exception {
+        Booking b = new Booking(rs.getInt("id"), rs.getInt("user_id"), rs.getInt("room_id"), rs.getDate("start_date").toLocalDate(),
+                rs.getDate("end_date").toLocalDate(), rs.getString("status"), rs.getString("payment_status"));
+        Timestamp created = rs.getTimestamp("created_at");
+        if (created != null) b.setCreatedAt(created.toLocalDateTime());
+        Timestamp hold = rs.getTimestamp("hold_expires_at");
+        if (hold != null) b.setHoldExpiresAt(hold.toLocalDateTime());
+        return b;
+    }
+}
@@ -0,0 +1,135 @@
+package repo;
+
+import db.Database;
+import model.Money;
+import model.Payment;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+class JdbcPaymentRepository implements PaymentRepository {
+    private static final String COLUMNS = "SELECT id, user_id, booking_id, amount, status, payment_method, googlepay_number, created_at, idempotency_key FROM payments";
+    private static final String INSERT_PAYMENT_SQL =
+            "INSERT INTO payments(user_id, booking_id, amount, status, payment_method, googlepay_number, qr_code, pin, idempotency_key) VALUES(?,?,?,?,?,?,?,?,?)";
+    // attempts to pay one booking, retries included, take turns on its row
+    private static final String LOCK_BOOKING_SQL = "SELECT status, payment_status FROM bookings WHERE id=? FOR UPDATE";
+    private static final String PAY_BOOKING_SQL = "UPDATE bookings SET payment_status='PAID' WHERE id=?";
+
+    @Override
+    public Payment find(int id) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(COLUMNS + " WHERE id=?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? read(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public List<Payment> findByBooking(int bookingId) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(COLUMNS + " WHERE booking_id=? ORDER BY id")) {
+            ps.setInt(1, bookingId);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<Payment> out = new ArrayList<>();
+                while (rs.next()) out.add(read(rs));
+                return out;
+            }
+        }
+    }
+
+    @Override
+    public Payment findByIdempotencyKey(String key) throws Exception {
+        if (key == null) return null;
+        try (Connection c = Database.connect()) {
+            return findByIdempotencyKey(c, key);
+        }
+    }
+
+    @Override
+    public Payment pay(Payment payment) throws Exception {
+        try (Connection conn = Database.connect()) {
+            conn.setAutoCommit(false);
+            try {
+                Payment stored = pay(conn, payment);
+                conn.commit();
+                return stored;
+            } catch (SQLIntegrityConstraintViolationException ex) {
+                // the key was claimed meanwhile by a payment for another booking
+                conn.rollback();
+                Payment earlier = payment.getIdempotencyKey() == null ? null : findByIdempotencyKey(conn, payment.getIdempotencyKey());
+                if (earlier == null) throw ex;
+                return earlier;
+            } catch (Exception ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    private static Payment pay(Connection conn, Payment payment) throws Exception {
+        String status, paymentStatus;
+        try (PreparedStatement ps = conn.prepareStatement(LOCK_BOOKING_SQL)) {
+            ps.setInt(1, payment.getBookingId());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) throw new IllegalArgumentException("Booking " + payment.getBookingId() + " not found");
+                status = rs.getString(1);
+                paymentStatus = rs.getString(2);
+            }
+        }
+        // checked under the lock, so a retry queued behind the first attempt sees its payment
+        if (payment.getIdempotencyKey() != null) {
+            Payment earlier = findByIdempotencyKey(conn, payment.getIdempotencyKey());
+            if (earlier != null) return earlier;
+        }
+        if ("CANCELLED".equalsIgnoreCase(status)) throw new IllegalStateException("Booking " + payment.getBookingId() + " was cancelled");
+        if ("PAID".equalsIgnoreCase(paymentStatus)) throw new IllegalStateException("Booking " + payment.getBookingId() + " is already paid");
+        insert(conn, payment);
+        try (PreparedStatement ps = conn.prepareStatement(PAY_BOOKING_SQL)) {
+            ps.setInt(1, payment.getBookingId());
+            ps.executeUpdate();
+        }
+        return payment;
+    }
+
+    private static Payment findByIdempotencyKey(Connection conn, String key) throws Exception {
+        try (PreparedStatement ps = conn.prepareStatement(COLUMNS + " WHERE idempotency_key=?")) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? read(rs) : null;
+            }
+        }
+    }
+
+    // Inserts on the caller's connection (and transaction) and sets the payment's id
+    static void insert(Connection conn, Payment payment) throws Exception {
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_PAYMENT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setInt(1, payment.getUserId());
+            ps.setInt(2, payment.getBookingId());
+            ps.setBigDecimal(3, payment.getAmount().toBigDecimal());
+            ps.setString(4, payment.getStatus());
+            ps.setString(5, payment.getMethod());
+            ps.setString(6, payment.getGooglePayNumber());
+            ps.setString(7, null);
+            ps.setString(8, null);
+            ps.setString(9, payment.getIdempotencyKey());
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next()) payment.setId(keys.getInt(1));
+            }
+        }
+    }
+
+    private static Payment read(ResultSet rs) throws Exception {
+        Timestamp created = rs.getTimestamp("created_at");
+        Payment p = new Payment(rs.getInt("id"), rs.getInt("user_id"), rs.getInt("booking_id"), Money.of(rs.getBigDecimal("amount")),
+                rs.getString("status"), rs.getString("payment_method"), rs.getString("googlepay_number"),
+                created == null ? null : created.toLocalDateTime());
+        p.setIdempotencyKey(rs.getString("idempotency_key"));
+        return p;
+    }
+}
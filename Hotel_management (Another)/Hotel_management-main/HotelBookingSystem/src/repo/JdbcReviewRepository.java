@@ -0,0 +1,83 @@
+package repo;
+
+import db.Database;
+import db.SchemaInfo;
+import model.Review;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+class JdbcReviewRepository implements ReviewRepository {
+    @Override
+    public Review find(int id) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(select() + " WHERE id=?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? read(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public List<Review> findByRoom(int roomId) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(select() + " WHERE room_id=? ORDER BY created_at DESC, id DESC")) {
+            ps.setInt(1, roomId);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<Review> out = new ArrayList<>();
+                while (rs.next()) out.add(read(rs));
+                return out;
+            }
+        }
+    }
+
+    @Override
+    public int insert(Review review) throws Exception {
+        try (Connection c = Database.connect();
+             PreparedStatement ps = c.prepareStatement("INSERT INTO reviews(user_id, room_id, review_text, rating) VALUES(?,?,?,?)", Statement.RETURN_GENERATED_KEYS)) {
+            ps.setInt(1, review.getUserId());
+            ps.setInt(2, review.getRoomId());
+            ps.setString(3, review.getText());
+            ps.setInt(4, review.getRating());
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                review.setId(keys.next() ? keys.getInt(1) : -1);
+                return review.getId();
+            }
+        }
+    }
+
+    @Override
+    public int maxId() throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM reviews"); ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    @Override
+    public List<int[]> ratingCounts(int upToId) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement("SELECT room_id, rating, COUNT(*) FROM reviews WHERE id<=? GROUP BY room_id, rating")) {
+            ps.setInt(1, upToId);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<int[]> out = new ArrayList<>();
+                while (rs.next()) out.add(new int[]{rs.getInt(1), rs.getInt(2), rs.getInt(3)});
+                return out;
+            }
+        }
+    }
+
+    // older databases named the text column "comment"
+    private static String select() throws Exception {
+        String text = SchemaInfo.get().hasColumn("reviews", "review_text") ? "review_text" : "comment";
+        return "SELECT id, user_id, room_id, " + text + " AS review_text, rating, created_at FROM reviews";
+    }
+
+    private static Review read(ResultSet rs) throws Exception {
+        Timestamp created = rs.getTimestamp("created_at");
+        return new Review(rs.getInt("id"), rs.getInt("user_id"), rs.getInt("room_id"), rs.getString("review_text"), rs.getInt("rating"),
+                created == null ? null : created.toLocalDateTime());
+    }
+}
@@ -0,0 +1,68 @@
+package repo;
+
+import db.Database;
+import model.Money;
+import model.Room;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+class JdbcRoomRepository implements RoomRepository {
+    private static final String COLUMNS = "SELECT id, room_number, type, price, available FROM rooms";
+
+    @Override
+    public Room find(int id) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(COLUMNS + " WHERE id=?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? read(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public List<Room> findAll() throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(COLUMNS); ResultSet rs = ps.executeQuery()) {
+            List<Room> out = new ArrayList<>();
+            while (rs.next()) out.add(read(rs));
+            return out;
+        }
+    }
+
+    @Override
+    public int insert(Room room) throws Exception {
+        try (Connection c = Database.connect();
+             PreparedStatement ps = c.prepareStatement("INSERT INTO rooms(room_number, type, price, available) VALUES(?,?,?,?)", Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, room.getRoomNumber());
+            ps.setString(2, room.getType());
+            ps.setBigDecimal(3, room.getPrice().toBigDecimal());
+            ps.setBoolean(4, room.isAvailable());
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (!keys.next()) throw new IllegalStateException("No id generated for room");
+                room.setId(keys.getInt(1));
+                return room.getId();
+            }
+        }
+    }
+
+    @Override
+    public boolean update(Room room) throws Exception {
+        try (Connection c = Database.connect();
+             PreparedStatement ps = c.prepareStatement("UPDATE rooms SET room_number=?, type=?, price=?, available=? WHERE id=?")) {
+            ps.setString(1, room.getRoomNumber());
+            ps.setString(2, room.getType());
+            ps.setBigDecimal(3, room.getPrice().toBigDecimal());
+            ps.setBoolean(4, room.isAvailable());
+            ps.setInt(5, room.getId());
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    static Room read(ResultSet rs) throws Exception {
+        return new Room(rs.getInt("id"), rs.getString("room_number"), rs.getString("type"), Money.of(rs.getBigDecimal("price")), rs.getBoolean("available"));
+    }
+}
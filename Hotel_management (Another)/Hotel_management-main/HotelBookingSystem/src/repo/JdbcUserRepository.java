@@ -0,0 +1,72 @@
+package repo;
+
+import db.Database;
+import model.User;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+class JdbcUserRepository implements UserRepository {
+    private static final String COLUMNS = "SELECT id, name, username, password, email, phone, user_type FROM users";
+
+    @Override
+    public User find(int id) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(COLUMNS + " WHERE id=?")) {
+            ps.setInt(1, id);
+            return first(ps);
+        }
+    }
+
+    @Override
+    public User findByUsername(String username) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(COLUMNS + " WHERE username=?")) {
+            ps.setString(1, username);
+            return first(ps);
+        }
+    }
+
+    @Override
+    public List<User> findByType(String userType) throws Exception {
+        try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(COLUMNS + " WHERE user_type=? ORDER BY username")) {
+            ps.setString(1, userType);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<User> out = new ArrayList<>();
+                while (rs.next()) out.add(read(rs));
+                return out;
+            }
+        }
+    }
+
+    @Override
+    public int insert(User user) throws Exception {
+        try (Connection c = Database.connect();
+             PreparedStatement ps = c.prepareStatement("INSERT INTO users(name, username, password, email, phone, user_type) VALUES(?,?,?,?,?,?)", Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, user.getName());
+            ps.setString(2, user.getUsername());
+            ps.setString(3, user.getPassword());
+            ps.setString(4, user.getEmail());
+            ps.setString(5, user.getPhone());
+            ps.setString(6, user.getUserType());
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (!keys.next()) throw new IllegalStateException("No id generated for user");
+                user.setId(keys.getInt(1));
+                return user.getId();
+            }
+        }
+    }
+
+    private static User first(PreparedStatement ps) throws Exception {
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? read(rs) : null;
+        }
+    }
+
+    private static User read(ResultSet rs) throws Exception {
+        return new User(rs.getInt("id"), rs.getString("name"), rs.getString("username"), rs.getString("password"),
+                rs.getString("email"), rs.getString("phone"), rs.getString("user_type"));
+    }
+}
@@ -0,0 +1,121 @@
+package repo;
+
+import model.Booking;
+import model.Payment;
+import model.Room;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+class MemoryBookingRepository implements BookingRepository {
+    private final MemoryStore store;
+
+    MemoryBookingRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Booking find(int id) {
+        return store.bookings.get(id);
+    }
+
+    @Override
+    public List<Booking> findByUser(int userId) {
+        Set<Integer> ids = store.bookingsByUser.get(userId);
+        List<Booking> out = new ArrayList<>();
+        if (ids == null) return out;
+        for (Integer id : ids) out.add(store.bookings.get(id));
+        out.sort(Comparator.comparing(Booking::getStartDate).reversed());
+        return out;
+    }
+
+    @Override
+    public List<Booking> findActive(LocalDate endingFrom) {
+        int day = (int) endingFrom.toEpochDay();
+        List<Booking> out = new ArrayList<>();
+        store.bookings.scan(r -> {
+            if (!r.isCancelled() && r.getEndDay() >= day) out.add(r.toBooking());
+        });
+        return out;
+    }
+
+    @Override
+    public boolean reserve(Booking booking, Charge charge) throws Exception {
+        int roomId = booking.getRoomId();
+        int start = (int) booking.getStartDate().toEpochDay(), end = (int) booking.getEndDate().toEpochDay();
+        synchronized (store.stripe(roomId)) {
+            Room room = store.rooms.get(roomId);
+            if (room == null) throw new IllegalArgumentException("Room " + roomId + " not found");
+            TreeMap<Integer, Integer> active = store.activeByRoom.computeIfAbsent(roomId, k -> new TreeMap<>());
+            // the latest stay starting before this one ends is the only one that can overlap it
+            Map.Entry<Integer, Integer> before = active.lowerEntry(end);
+            if (before != null && store.bookings.endDayOf(before.getValue()) > start) return false;
+            Payment payment = charge.apply(new Room(room));
+            booking.setPaymentStatus(payment != null ? "PAID" : "PENDING");
+            if (payment != null) booking.setHoldExpiresAt(null);
+            int id = store.bookings.add(booking);
+            active.put(start, id);
+            store.bookingsByUser.computeIfAbsent(booking.getUserId(), k -> MemoryStore.newIdSet()).add(id);
+            if (payment != null) {
+                payment.setBookingId(id);
+                MemoryPaymentRepository.insert(store, payment);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public boolean cancel(int id) {
+        return change(id, b -> !b.isCancelled() && release(b));
+    }
+
+    @Override
+    public List<Booking> expirePending(LocalDateTime cutoff, int limit) {
+        List<Booking> out = new ArrayList<>();
+        for (int id : store.bookings.holdsExpiredBefore(cutoff.toEpochSecond(ZoneOffset.UTC), limit)) {
+            // a payment that got to the booking first wins
+            if (change(id, b -> "PENDING".equals(b.getPaymentStatus()) && release(b))) out.add(store.bookings.get(id));
+        }
+        return out;
+    }
+
+    // Marks the copy cancelled and frees its dates; caller holds the room's stripe
+    private boolean release(Booking b) {
+        b.setStatus("CANCELLED");
+        b.setPaymentStatus("CANCELLED");
+        store.activeByRoom.get(b.getRoomId()).remove((int) b.getStartDate().toEpochDay(), b.getId());
+        return true;
+    }
+
+    @Override
+    public boolean markPaid(int id) {
+        return change(id, b -> {
+            // an expired or cancelled booking has given its dates up; paying it would not take them back
+            if (b.isCancelled() || "CANCELLED".equals(b.getPaymentStatus())) return false;
+            b.setPaymentStatus("PAID");
+            return true;
+        });
+    }
+
+    interface Change {
+        boolean apply(Booking copy);
+    }
+
+    // Applies the change to a copy under the room's stripe and stores its statuses if the change reports true
+    boolean change(int id, Change change) {
+        int roomId = store.bookings.roomOf(id);
+        if (roomId < 0) return false;
+        synchronized (store.stripe(roomId)) {
+            Booking copy = store.bookings.get(id);
+            if (!change.apply(copy)) return false;
+            store.bookings.setStatus(id, copy.getStatus(), copy.getPaymentStatus());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package repo;
+
+import model.Payment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+class MemoryPaymentRepository implements PaymentRepository {
+    private final MemoryStore store;
+    private final MemoryBookingRepository bookings;
+
+    MemoryPaymentRepository(MemoryStore store) {
+        this.store = store;
+        this.bookings = new MemoryBookingRepository(store);
+    }
+
+    @Override
+    public Payment find(int id) {
+        Payment p = store.payments.get(id);
+        return p == null ? null : new Payment(p);
+    }
+
+    @Override
+    public List<Payment> findByBooking(int bookingId) {
+        Set<Integer> ids = store.paymentsByBooking.get(bookingId);
+        if (ids == null) return new ArrayList<>();
+        List<Payment> out = MemoryStore.copies(ids, store.payments, Payment::new);
+        out.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        return out;
+    }
+
+    @Override
+    public Payment findByIdempotencyKey(String key) {
+        Payment p = key == null ? null : store.paymentsByKey.get(key);
+        return p == null ? null : new Payment(p);
+    }
+
+    @Override
+    public Payment pay(Payment payment) {
+        Payment[] stored = {null};
+        // the booking's stripe is held while the payment is added, as the JDBC transaction would
+        bookings.change(payment.getBookingId(), b -> {
+            stored[0] = findByIdempotencyKey(payment.getIdempotencyKey());
+            if (stored[0] != null) return false;
+            if (b.isCancelled()) throw new IllegalStateException("Booking " + payment.getBookingId() + " was cancelled");
+            if ("PAID".equalsIgnoreCase(b.getPaymentStatus())) throw new IllegalStateException("Booking " + payment.getBookingId() + " is already paid");
+            // the key may have been claimed meanwhile by a payment for another booking
+            stored[0] = insert(store, payment) ? payment : findByIdempotencyKey(payment.getIdempotencyKey());
+            if (stored[0] != payment) return false;
+            b.setPaymentStatus("PAID");
+            return true;
+        });
+        if (stored[0] == null) throw new IllegalArgumentException("Booking " + payment.getBookingId() + " not found");
+        return stored[0];
+    }
+
+    // Caller holds the stripe of the payment's booking; false, storing nothing, if its idempotency key is taken
+    static boolean insert(MemoryStore store, Payment payment) {
+        int id = store.paymentIds.incrementAndGet();
+        payment.setId(id);
+        if (payment.getCreatedAt() == null) payment.setCreatedAt(MemoryStore.now());
+        Payment row = new Payment(payment);
+        if (payment.getIdempotencyKey() != null && store.paymentsByKey.putIfAbsent(payment.getIdempotencyKey(), row) != null) return false;
+        store.payments.put(id, row);
+        store.paymentsByBooking.computeIfAbsent(payment.getBookingId(), k -> MemoryStore.newIdSet()).add(id);
+        return true;
+    }
+}
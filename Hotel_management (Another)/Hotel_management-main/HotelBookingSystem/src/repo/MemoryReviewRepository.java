@@ -0,0 +1,66 @@
+package repo;
+
+import model.Review;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class MemoryReviewRepository implements ReviewRepository {
+    private final MemoryStore store;
+
+    MemoryReviewRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Review find(int id) {
+        Review r = store.reviews.get(id);
+        return r == null ? null : new Review(r);
+    }
+
+    @Override
+    public List<Review> findByRoom(int roomId) {
+        List<Integer> ids;
+        synchronized (store.stripe(roomId)) {
+            List<Integer> all = store.reviewsByRoom.get(roomId);
+            if (all == null) return new ArrayList<>();
+            ids = new ArrayList<>(all);
+        }
+        Collections.reverse(ids);
+        return MemoryStore.copies(ids, store.reviews, Review::new);
+    }
+
+    @Override
+    public int insert(Review review) {
+        synchronized (store.stripe(review.getRoomId())) {
+            int id = store.reviewIds.incrementAndGet();
+            review.setId(id);
+            if (review.getCreatedAt() == null) review.setCreatedAt(MemoryStore.now());
+            store.reviews.put(id, new Review(review));
+            store.reviewsByRoom.computeIfAbsent(review.getRoomId(), k -> new ArrayList<>()).add(id);
+            return id;
+        }
+    }
+
+    @Override
+    public int maxId() {
+        return store.reviewIds.get();
+    }
+
+    @Override
+    public List<int[]> ratingCounts(int upToId) {
+        // room id -> count per rating, indexed by rating
+        Map<Integer, Map<Integer, int[]>> counts = new HashMap<>();
+        for (Review r : store.reviews.values()) {
+            if (r.getId() > upToId) continue;
+            counts.computeIfAbsent(r.getRoomId(), k -> new HashMap<>()).computeIfAbsent(r.getRating(), k -> new int[1])[0]++;
+        }
+        List<int[]> out = new ArrayList<>();
+        for (Map.Entry<Integer, Map<Integer, int[]>> room : counts.entrySet()) {
+            for (Map.Entry<Integer, int[]> rating : room.getValue().entrySet()) out.add(new int[]{room.getKey(), rating.getKey(), rating.getValue()[0]});
+        }
+        return out;
+    }
+}
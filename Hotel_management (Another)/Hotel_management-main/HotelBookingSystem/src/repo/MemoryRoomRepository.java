@@ -0,0 +1,53 @@
+package repo;
+
+import model.Room;
+import java.util.ArrayList;
+import java.util.List;
+
+class MemoryRoomRepository implements RoomRepository {
+    private final MemoryStore store;
+
+    MemoryRoomRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Room find(int id) {
+        Room r = store.rooms.get(id);
+        return r == null ? null : new Room(r);
+    }
+
+    @Override
+    public List<Room> findAll() {
+        List<Room> out = new ArrayList<>(store.rooms.size());
+        for (Room r : store.rooms.values()) out.add(new Room(r));
+        return out;
+    }
+
+    @Override
+    public int insert(Room room) {
+        int id = store.roomIds.incrementAndGet();
+        if (store.roomsByNumber.putIfAbsent(room.getRoomNumber(), id) != null) {
+            throw new IllegalArgumentException("Room number " + room.getRoomNumber() + " already exists");
+        }
+        room.setId(id);
+        store.rooms.put(id, new Room(room));
+        return id;
+    }
+
+    @Override
+    public boolean update(Room room) {
+        synchronized (store.stripe(room.getId())) {
+            Room cur = store.rooms.get(room.getId());
+            if (cur == null) return false;
+            if (!cur.getRoomNumber().equals(room.getRoomNumber())) {
+                if (store.roomsByNumber.putIfAbsent(room.getRoomNumber(), room.getId()) != null) {
+                    throw new IllegalArgumentException("Room number " + room.getRoomNumber() + " already exists");
+                }
+                store.roomsByNumber.remove(cur.getRoomNumber(), room.getId());
+            }
+            store.rooms.put(room.getId(), new Room(room));
+            return true;
+        }
+    }
+}
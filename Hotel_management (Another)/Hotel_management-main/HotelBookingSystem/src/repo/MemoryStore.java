@@ -0,0 +1,104 @@
+package repo;
+
+import model.Money;
+import model.Payment;
+import model.Review;
+import model.Room;
+import model.User;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Every table kept in this process, for -Dhotel.storage=memory.
+ *
+ * Rows live in ConcurrentHashMaps keyed by primary key, with secondary
+ * indexes beside them. Stored rows are private copies that are never mutated:
+ * an update swaps in a new copy, so readers take no locks and callers only
+ * ever see copies (bookings live in a CompactBookingStore instead, which
+ * hands out copies the same way). Writes lock one of a fixed set of stripes: bookings and
+ * payments by the booking's room (which makes the reserve overlap check
+ * atomic, as FOR UPDATE does in MySQL), reviews by room, and rooms by their
+ * own id; unique keys are claimed through putIfAbsent. A room's active
+ * bookings are kept sorted by start date, so the overlap check is one
+ * floor lookup.
+ */
+public final class MemoryStore {
+    private static final int STRIPES = 64;
+
+    private final Object[] stripes = new Object[STRIPES];
+
+    final Map<Integer, Room> rooms = new ConcurrentHashMap<>();
+    final Map<String, Integer> roomsByNumber = new ConcurrentHashMap<>();
+    final AtomicInteger roomIds = new AtomicInteger();
+
+    final Map<Integer, User> users = new ConcurrentHashMap<>();
+    final Map<String, Integer> usersByName = new ConcurrentHashMap<>();
+    final AtomicInteger userIds = new AtomicInteger();
+
+    // bookings are the one table that grows without bound, so they are stored column-wise
+    final CompactBookingStore bookings = new CompactBookingStore();
+    final Map<Integer, Set<Integer>> bookingsByUser = new ConcurrentHashMap<>();
+    // room id -> start epoch-day -> id of each active booking, which never overlap; guarded by the room's stripe
+    final Map<Integer, TreeMap<Integer, Integer>> activeByRoom = new ConcurrentHashMap<>();
+
+    final Map<Integer, Payment> payments = new ConcurrentHashMap<>();
+    final Map<Integer, Set<Integer>> paymentsByBooking = new ConcurrentHashMap<>();
+    // idempotency key -> the row stored under it, claimed through putIfAbsent like a unique index
+    final Map<String, Payment> paymentsByKey = new ConcurrentHashMap<>();
+    final AtomicInteger paymentIds = new AtomicInteger();
+
+    final Map<Integer, Review> reviews = new ConcurrentHashMap<>();
+    // room id -> review ids in insertion order; each list is guarded by the room's stripe
+    final Map<Integer, List<Integer>> reviewsByRoom = new ConcurrentHashMap<>();
+    final AtomicInteger reviewIds = new AtomicInteger();
+
+    public MemoryStore() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
+    }
+
+    // The sample rows schema.sql inserts
+    public static MemoryStore withSampleData() {
+        MemoryStore s = new MemoryStore();
+        try {
+            UserRepository users = new MemoryUserRepository(s);
+            users.insert(new User(0, "Owner One", "owner", "ownerpass", "owner@example.com", "1234567890", "OWNER"));
+            int customer = users.insert(new User(0, "Customer One", "customer", "customerpass", "cust@example.com", "0987654321", "CUSTOMER"));
+            RoomRepository rooms = new MemoryRoomRepository(s);
+            int single = rooms.insert(new Room(0, "101", "Single", Money.parse("50.00"), true));
+            rooms.insert(new Room(0, "102", "Double", Money.parse("80.00"), true));
+            rooms.insert(new Room(0, "201", "Suite", Money.parse("150.00"), true));
+            new MemoryReviewRepository(s).insert(new Review(0, customer, single, "Nice clean room", 5, null));
+        } catch (Exception ex) {
+            throw new IllegalStateException("Could not seed the in-memory store", ex);
+        }
+        return s;
+    }
+
+    Object stripe(int key) {
+        return stripes[Math.floorMod(key, STRIPES)];
+    }
+
+    static Set<Integer> newIdSet() {
+        return ConcurrentHashMap.newKeySet();
+    }
+
+    static LocalDateTime now() {
+        return LocalDateTime.now();
+    }
+
+    static <T> List<T> copies(Iterable<Integer> ids, Map<Integer, T> table, UnaryOperator<T> copy) {
+        List<T> out = new ArrayList<>();
+        for (Integer id : ids) {
+            T row = table.get(id);
+            if (row != null) out.add(copy.apply(row));
+        }
+        return out;
+    }
+}
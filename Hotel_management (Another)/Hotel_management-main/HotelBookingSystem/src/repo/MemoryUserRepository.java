@@ -0,0 +1,45 @@
+package repo;
+
+import model.User;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+class MemoryUserRepository implements UserRepository {
+    private final MemoryStore store;
+
+    MemoryUserRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public User find(int id) {
+        User u = store.users.get(id);
+        return u == null ? null : new User(u);
+    }
+
+    @Override
+    public User findByUsername(String username) {
+        Integer id = store.usersByName.get(username);
+        return id == null ? null : find(id);
+    }
+
+    @Override
+    public List<User> findByType(String userType) {
+        List<User> out = new ArrayList<>();
+        for (User u : store.users.values()) if (userType.equals(u.getUserType())) out.add(new User(u));
+        out.sort(Comparator.comparing(User::getUsername));
+        return out;
+    }
+
+    @Override
+    public int insert(User user) {
+        int id = store.userIds.incrementAndGet();
+        if (store.usersByName.putIfAbsent(user.getUsername(), id) != null) {
+            throw new IllegalArgumentException("Username " + user.getUsername() + " already exists");
+        }
+        user.setId(id);
+        store.users.put(id, new User(user));
+        return id;
+    }
+}
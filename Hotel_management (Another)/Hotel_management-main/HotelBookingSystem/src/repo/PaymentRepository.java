@@ -0,0 +1,20 @@
+package repo;
+
+import model.Payment;
+import java.util.List;
+
+public interface PaymentRepository {
+    // null if there is no such payment
+    Payment find(int id) throws Exception;
+
+    List<Payment> findByBooking(int bookingId) throws Exception;
+
+    // null if no payment was stored under this idempotency key
+    Payment findByIdempotencyKey(String key) throws Exception;
+
+    // Stores the payment and marks its booking paid in one step, with the booking locked; the payment
+    // gets its id and is returned. If a payment was already stored under the same idempotency key,
+    // that one is returned instead and nothing is written. Throws IllegalStateException, storing
+    // nothing, if the booking has been cancelled or is already paid.
+    Payment pay(Payment payment) throws Exception;
+}
@@ -0,0 +1,64 @@
+package repo;
+
+/**
+ * The storage engine the services read and write through, chosen once at
+ * startup with -Dhotel.storage: "jdbc" (default) uses MySQL via db.Database,
+ * "memory" keeps every table in this process (see MemoryStore) and starts
+ * with the same sample rows as schema.sql.
+ */
+public final class Repositories {
+    private static volatile Repositories instance;
+
+    private final RoomRepository rooms;
+    private final UserRepository users;
+    private final BookingRepository bookings;
+    private final PaymentRepository payments;
+    private final ReviewRepository reviews;
+    private final boolean inMemory;
+
+    private Repositories(RoomRepository rooms, UserRepository users, BookingRepository bookings,
+                         PaymentRepository payments, ReviewRepository reviews, boolean inMemory) {
+        this.rooms = rooms;
+        this.users = users;
+        this.bookings = bookings;
+        this.payments = payments;
+        this.reviews = reviews;
+        this.inMemory = inMemory;
+    }
+
+    public static Repositories get() {
+        Repositories r = instance;
+        if (r != null) return r;
+        synchronized (Repositories.class) {
+            if (instance == null) {
+                String storage = System.getProperty("hotel.storage", "jdbc");
+                if ("memory".equalsIgnoreCase(storage)) instance = memory(MemoryStore.withSampleData());
+                else if ("jdbc".equalsIgnoreCase(storage)) instance = jdbc();
+                else throw new IllegalArgumentException("Unknown hotel.storage '" + storage + "', expected jdbc or memory");
+            }
+            return instance;
+        }
+    }
+
+    // Replaces the shared instance; for benchmarks and tools that bring their own store
+    public static synchronized void use(Repositories repositories) {
+        instance = repositories;
+    }
+
+    public static Repositories jdbc() {
+        return new Repositories(new JdbcRoomRepository(), new JdbcUserRepository(), new JdbcBookingRepository(),
+                new JdbcPaymentRepository(), new JdbcReviewRepository(), false);
+    }
+
+    public static Repositories memory(MemoryStore store) {
+        return new Repositories(new MemoryRoomRepository(store), new MemoryUserRepository(store), new MemoryBookingRepository(store),
+                new MemoryPaymentRepository(store), new MemoryReviewRepository(store), true);
+    }
+
+    public RoomRepository rooms() { return rooms; }
+    public UserRepository users() { return users; }
+    public BookingRepository bookings() { return bookings; }
+    public PaymentRepository payments() { return payments; }
+    public ReviewRepository reviews() { return reviews; }
+    public boolean isInMemory() { return inMemory; }
+}
@@ -0,0 +1,21 @@
+package repo;
+
+import model.Review;
+import java.util.List;
+
+public interface ReviewRepository {
+    // null if there is no such review
+    Review find(int id) throws Exception;
+
+    // Newest first
+    List<Review> findByRoom(int roomId) throws Exception;
+
+    // Stores a new review and returns its id
+    int insert(Review review) throws Exception;
+
+    // Highest review id, 0 when there are none
+    int maxId() throws Exception;
+
+    // {roomId, rating, count} for every room and rating among reviews with id <= upToId
+    List<int[]> ratingCounts(int upToId) throws Exception;
+}
@@ -0,0 +1,17 @@
+package repo;
+
+import model.Room;
+import java.util.List;
+
+public interface RoomRepository {
+    // null if there is no such room
+    Room find(int id) throws Exception;
+
+    List<Room> findAll() throws Exception;
+
+    // Stores a new room and returns its id; room numbers are unique
+    int insert(Room room) throws Exception;
+
+    // Overwrites number, type, price and availability; false if the room does not exist
+    boolean update(Room room) throws Exception;
+}
@@ -0,0 +1,17 @@
+package repo;
+
+import model.User;
+import java.util.List;
+
+public interface UserRepository {
+    // null if there is no such user
+    User find(int id) throws Exception;
+
+    User findByUsername(String username) throws Exception;
+
+    // "CUSTOMER" or "OWNER", ordered by username
+    List<User> findByType(String userType) throws Exception;
+
+    // Stores a new user and returns its id; usernames are unique
+    int insert(User user) throws Exception;
+}
@@ -0,0 +1,311 @@
+package service;
+
+import db.Database;
+import model.Money;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Occupancy and revenue rollups for the owner's Reports tab.
+ *
+ * Bookings are read once, in a single streaming pass, into per-room-type
+ * difference arrays over epoch days: a stay adds +1 room-night sold at its
+ * start and -1 at its end, and its paid amount spread evenly over its nights.
+ * Prefix sums of those arrays turn any date range into two array reads, so a
+ * report over several years is a loop over periods, not over bookings.
+ *
+ * New bookings are folded in incrementally (O(1) on the difference arrays);
+ * cancellations, payments and room changes invalidate the rollup and it is
+ * rebuilt on the next report. Revenue counts PAID payments only; capacity is
+ * today's room count per type.
+ */
+public class AnalyticsEngine {
+    private static final AnalyticsEngine INSTANCE = new AnalyticsEngine();
+
+    private static final String ROOMS_SQL = "SELECT id, type FROM rooms";
+    private static final String STAYS_SQL =
+            "SELECT b.room_id, b.start_date, b.end_date, COALESCE(p.paid, 0) AS paid FROM bookings b " +
+            "LEFT JOIN (SELECT booking_id, SUM(amount) AS paid FROM payments WHERE status='PAID' GROUP BY booking_id) p ON p.booking_id=b.id " +
+            "WHERE b.status<>'CANCELLED'";
+
+    public enum Period { DAY, WEEK, MONTH, YEAR }
+
+    private final Object lock = new Object();
+    private Rollup rollup;
+    // bumped whenever the installed rollup is dropped, so a rebuild that raced with a change is not cached
+    private long generation;
+
+    public static AnalyticsEngine get() {
+        return INSTANCE;
+    }
+
+    public static class Row {
+        private final String period;
+        private final String type;
+        private final long rooms;
+        private final long available;
+        private final long sold;
+        private final Money revenue;
+
+        Row(String period, String type, long rooms, long available, long sold, long revenueCents) {
+            this.period = period;
+            this.type = type;
+            this.rooms = rooms;
+            this.available = available;
+            this.sold = sold;
+            this.revenue = Money.ofCents(revenueCents);
+        }
+
+        public String getPeriod() { return period; }
+        public String getType() { return type; }
+        public long getRooms() { return rooms; }
+        public long getRoomNightsAvailable() { return available; }
+        public long getRoomNightsSold() { return sold; }
+        public Money getRevenue() { return revenue; }
+        public double getOccupancy() { return available == 0 ? 0 : (double) sold / available; }
+        // average daily rate: revenue per room-night sold
+        public Money getAdr() { return Money.ofCents(sold == 0 ? 0 : Math.round((double) revenue.getCents() / sold)); }
+        // revenue per available room-night
+        public Money getRevPar() { return Money.ofCents(available == 0 ? 0 : Math.round((double) revenue.getCents() / available)); }
+    }
+
+    public static class Report {
+        private final List<Row> rows;
+        private final long buildMillis;
+        private final long queryMicros;
+
+        Report(List<Row> rows, long buildMillis, long queryMicros) {
+            this.rows = rows;
+            this.buildMillis = buildMillis;
+            this.queryMicros = queryMicros;
+        }
+
+        public List<Row> getRows() { return rows; }
+        // time spent reading bookings from MySQL for this report, 0 when the cached rollup was used
+        public long getBuildMillis() { return buildMillis; }
+        public long getQueryMicros() { return queryMicros; }
+    }
+
+    /** One row per period and room type (plus an "All" row per period) for [from, to]. */
+    public Report report(LocalDate from, LocalDate to, Period period) throws Exception {
+        if (to.isBefore(from)) throw new IllegalArgumentException("To date must not be before from date");
+        Rollup r;
+        long gen;
+        synchronized (lock) {
+            r = rollup;
+            gen = generation;
+        }
+        long buildMillis = 0;
+        if (r == null) {
+            long t0 = System.nanoTime();
+            r = load();
+            buildMillis = (System.nanoTime() - t0) / 1_000_000;
+            synchronized (lock) {
+                if (generation == gen) rollup = r;
+            }
+        }
+        synchronized (lock) {
+            long t0 = System.nanoTime();
+            List<Row> rows = r.report(from, to, period);
+            return new Report(rows, buildMillis, (System.nanoTime() - t0) / 1_000);
+        }
+    }
+
+    // Folds a committed booking into the cached rollup; paid is what was charged up front (ZERO if pending)
+    public void recordBooking(int roomId, LocalDate start, LocalDate end, Money paid) {
+        synchronized (lock) {
+            if (rollup == null) return;
+            if (!rollup.addStay(roomId, (int) start.toEpochDay(), (int) end.toEpochDay(), paid.getCents())) invalidate();
+        }
+    }
+
+    public void invalidate() {
+        synchronized (lock) {
+            rollup = null;
+            generation++;
+        }
+    }
+
+    private static Rollup load() throws Exception {
+        Rollup r = new Rollup();
+        try (Connection conn = Database.connect()) {
+            try (PreparedStatement ps = conn.prepareStatement(ROOMS_SQL); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) r.addRoom(rs.getInt("id"), rs.getString("type"));
+            }
+            try (PreparedStatement ps = conn.prepareStatement(STAYS_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(Integer.MIN_VALUE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int start = (int) rs.getDate(2).toLocalDate().toEpochDay();
+                        int end = (int) rs.getDate(3).toLocalDate().toEpochDay();
+                        r.addStay(rs.getInt(1), start, end, Money.of(rs.getBigDecimal(4)).getCents());
+                    }
+                }
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Difference arrays per type over [base, base + length) epoch days, with
+     * cumulative sums recomputed lazily after changes. Not thread-safe; the
+     * engine guards it with its lock (the benchmarks drive one directly).
+     */
+    public static final class Rollup {
+        private final Map<Integer, Integer> roomType = new HashMap<>();
+        private final Map<String, Integer> typeIndex = new HashMap<>();
+        private final List<String> typeNames = new ArrayList<>();
+        private int[] roomsPerType = new int[4];
+
+        private int base;
+        private int length;
+        // [type][day - base], one extra slot for the end-of-stay decrement
+        private long[][] soldDiff = new long[0][];
+        private long[][] revenueDiff = new long[0][];
+        // [type][i] = total over days base .. base + i - 1
+        private long[][] soldCum;
+        private long[][] revenueCum;
+        private boolean dirty = true;
+
+        public void addRoom(int roomId, String type) {
+            String key = type == null ? "" : type;
+            Integer t = typeIndex.get(key);
+            if (t == null) {
+                t = typeNames.size();
+                typeIndex.put(key, t);
+                typeNames.add(key);
+                if (t == roomsPerType.length) roomsPerType = Arrays.copyOf(roomsPerType, t * 2);
+                soldDiff = Arrays.copyOf(soldDiff, t + 1);
+                revenueDiff = Arrays.copyOf(revenueDiff, t + 1);
+                soldDiff[t] = new long[length + 1];
+                revenueDiff[t] = new long[length + 1];
+            }
+            roomsPerType[t]++;
+            roomType.put(roomId, t);
+            dirty = true;
+        }
+
+        // Returns false for a room this rollup has never seen
+        public boolean addStay(int roomId, int start, int end, long paidCents) {
+            Integer t = roomType.get(roomId);
+            if (t == null) return false;
+            int nights = end - start;
+            if (nights <= 0) return true;
+            cover(start, end);
+            int s = start - base, e = end - base;
+            soldDiff[t][s]++;
+            soldDiff[t][e]--;
+            long perNight = paidCents / nights, remainder = paidCents % nights;
+            revenueDiff[t][s] += perNight + remainder;
+            revenueDiff[t][s + 1] -= remainder;
+            revenueDiff[t][e] -= perNight;
+            dirty = true;
+            return true;
+        }
+
+        // Grows the arrays so that days [start, end] are addressable
+        private void cover(int start, int end) {
+            if (length == 0) {
+                base = start;
+                length = Math.max(end - start, 366);
+                for (int t = 0; t < soldDiff.length; t++) {
+                    soldDiff[t] = new long[length + 1];
+                    revenueDiff[t] = new long[length + 1];
+                }
+                return;
+            }
+            if (start >= base && end <= base + length) return;
+            int newBase = start < base ? Math.min(start, base - length) : base;
+            int newEnd = end > base + length ? Math.max(end, base + 2 * length) : base + length;
+            int shift = base - newBase;
+            for (int t = 0; t < soldDiff.length; t++) {
+                long[] s = new long[newEnd - newBase + 1];
+                long[] r = new long[newEnd - newBase + 1];
+                System.arraycopy(soldDiff[t], 0, s, shift, soldDiff[t].length);
+                System.arraycopy(revenueDiff[t], 0, r, shift, revenueDiff[t].length);
+                soldDiff[t] = s;
+                revenueDiff[t] = r;
+            }
+            base = newBase;
+            length = newEnd - newBase;
+        }
+
+        private void recompute() {
+            int types = typeNames.size();
+            soldCum = new long[types][length + 1];
+            revenueCum = new long[types][length + 1];
+            for (int t = 0; t < types; t++) {
+                long sold = 0, revenue = 0;
+                long[] sd = soldDiff[t], rd = revenueDiff[t], sc = soldCum[t], rc = revenueCum[t];
+                for (int i = 0; i < length; i++) {
+                    sold += sd[i];
+                    revenue += rd[i];
+                    sc[i + 1] = sc[i] + sold;
+                    rc[i + 1] = rc[i] + revenue;
+                }
+            }
+            dirty = false;
+        }
+
+        // Sum over days [from, to) of cum, treating days outside the arrays as zero
+        private long range(long[] cum, int from, int to) {
+            int a = Math.max(0, Math.min(length, from - base));
+            int b = Math.max(0, Math.min(length, to - base));
+            return cum[b] - cum[a];
+        }
+
+        public List<Row> report(LocalDate from, LocalDate to, Period period) {
+            if (dirty) recompute();
+            int types = typeNames.size();
+            List<Row> rows = new ArrayList<>();
+            LocalDate cursor = from;
+            while (!cursor.isAfter(to)) {
+                LocalDate next = nextPeriod(cursor, period);
+                if (next.isAfter(to.plusDays(1))) next = to.plusDays(1);
+                int s = (int) cursor.toEpochDay(), e = (int) next.toEpochDay();
+                long days = e - s;
+                String label = label(cursor, period);
+                long allRooms = 0, allSold = 0, allRevenue = 0;
+                for (int t = 0; t < types; t++) {
+                    long sold = range(soldCum[t], s, e);
+                    long revenue = range(revenueCum[t], s, e);
+                    rows.add(new Row(label, typeNames.get(t), roomsPerType[t], roomsPerType[t] * days, sold, revenue));
+                    allRooms += roomsPerType[t];
+                    allSold += sold;
+                    allRevenue += revenue;
+                }
+                rows.add(new Row(label, "All", allRooms, allRooms * days, allSold, allRevenue));
+                cursor = next;
+            }
+            return rows;
+        }
+
+        private static LocalDate nextPeriod(LocalDate d, Period period) {
+            switch (period) {
+                case WEEK: return d.with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+                case MONTH: return d.withDayOfMonth(1).plusMonths(1);
+                case YEAR: return d.withDayOfYear(1).plusYears(1);
+                default: return d.plus(1, ChronoUnit.DAYS);
+            }
+        }
+
+        private static String label(LocalDate d, Period period) {
+            switch (period) {
+                case WEEK: return "week of " + d;
+                case MONTH: return d.getYear() + "-" + String.format("%02d", d.getMonthValue());
+                case YEAR: return String.valueOf(d.getYear());
+                default: return d.toString();
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package service;
+
+import model.Booking;
+import model.Room;
+import repo.Repositories;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of booked [start, end) date intervals per room, stored as
+ * sorted arrays of epoch-days. Replaces the old rooms.available flag: a room
+ * is free for a range when none of its active bookings overlap it.
+ *
+ * The services update it after each change they commit; bookings, cancels
+ * and expiries made by other processes arrive over the EventBus relay.
+ */
+public class AvailabilityIndex {
+    private static volatile AvailabilityIndex instance;
+
+    // roomId -> immutable interval snapshot, swapped on every change
+    private final Map<Integer, RoomIntervals> rooms = new ConcurrentHashMap<>();
+    // bookingId -> roomId, so a cancel only needs the booking id
+    private final Map<Integer, Integer> bookingRoom = new ConcurrentHashMap<>();
+
+    public static AvailabilityIndex get() throws Exception {
+        AvailabilityIndex idx = instance;
+        if (idx != null) return idx;
+        synchronized (AvailabilityIndex.class) {
+            if (instance == null) {
+                AvailabilityIndex fresh = new AvailabilityIndex();
+                fresh.rebuild(Repositories.get());
+                EventBus.get().subscribeRemote(fresh::applyRemote);
+                instance = fresh;
+            }
+            return instance;
+        }
+    }
+
+    // Reloads every room and every booking that is not cancelled and has not ended yet
+    public void rebuild(Repositories repos) throws Exception {
+        List<Integer> roomIds = new ArrayList<>();
+        for (Room r : repos.rooms().findAll()) roomIds.add(r.getId());
+        List<int[]> bookings = new ArrayList<>();
+        for (Booking b : repos.bookings().findActive(LocalDate.now())) {
+            bookings.add(new int[]{b.getId(), b.getRoomId(), (int) b.getStartDate().toEpochDay(), (int) b.getEndDate().toEpochDay()});
+        }
+        load(roomIds, bookings);
+    }
+
+    /**
+     * Replaces the whole index. Each booking is {bookingId, roomId, startEpochDay, endEpochDay};
+     * rooms without bookings only need to appear in roomIds.
+     */
+    public synchronized void load(Collection<Integer> roomIds, List<int[]> bookings) {
+        Map<Integer, List<int[]>> byRoom = new HashMap<>();
+        for (Integer id : roomIds) byRoom.put(id, new ArrayList<>());
+        for (int[] b : bookings) byRoom.computeIfAbsent(b[1], k -> new ArrayList<>()).add(b);
+        rooms.clear();
+        bookingRoom.clear();
+        for (Map.Entry<Integer, List<int[]>> e : byRoom.entrySet()) {
+            List<int[]> list = e.getValue();
+            list.sort((a, b) -> Integer.compare(a[2], b[2]));
+            int n = list.size();
+            int[] starts = new int[n], ends = new int[n], ids = new int[n];
+            for (int i = 0; i < n; i++) {
+                int[] b = list.get(i);
+                ids[i] = b[0]; starts[i] = b[2]; ends[i] = b[3];
+                bookingRoom.put(b[0], e.getKey());
+            }
+            rooms.put(e.getKey(), new RoomIntervals(starts, ends, ids));
+        }
+    }
+
+    public void addRoom(int roomId) {
+        rooms.putIfAbsent(roomId, RoomIntervals.EMPTY);
+    }
+
+    public void add(int roomId, int bookingId, LocalDate start, LocalDate end) {
+        int s = (int) start.toEpochDay(), e = (int) end.toEpochDay();
+        rooms.compute(roomId, (k, cur) -> (cur == null ? RoomIntervals.EMPTY : cur).with(s, e, bookingId));
+        bookingRoom.put(bookingId, roomId);
+    }
+
+    public void remove(int bookingId) {
+        Integer roomId = bookingRoom.remove(bookingId);
+        if (roomId != null) rooms.computeIfPresent(roomId, (k, cur) -> cur.without(bookingId));
+    }
+
+    // A change another process committed; a booking already loaded by rebuild is not added twice
+    void applyRemote(EventBus.Event e) {
+        if (e.getType() == EventBus.Type.BOOKED && !bookingRoom.containsKey(e.getBookingId())) add(e.getRoomId(), e.getBookingId(), e.getStart(), e.getEnd());
+        else if (e.getType() == EventBus.Type.CANCELLED) remove(e.getBookingId());
+    }
+
+    public boolean isFree(int roomId, LocalDate start, LocalDate end) {
+        RoomIntervals iv = rooms.get(roomId);
+        return iv == null || iv.isFree((int) start.toEpochDay(), (int) end.toEpochDay());
+    }
+
+    // All known rooms with no booking overlapping [start, end), in ascending id order
+    public List<Integer> freeRooms(LocalDate start, LocalDate end) {
+        return freeRooms(rooms.keySet(), start, end);
+    }
+
+    public List<Integer> freeRooms(Collection<Integer> roomIds, LocalDate start, LocalDate end) {
+        int s = (int) start.toEpochDay(), e = (int) end.toEpochDay();
+        List<Integer> free = new ArrayList<>();
+        for (Integer id : roomIds) {
+            RoomIntervals iv = rooms.get(id);
+            if (iv == null || iv.isFree(s, e)) free.add(id);
+        }
+        free.sort(null);
+        return free;
+    }
+
+    /**
+     * Intervals of one room sorted by start. maxEnd[i] is the largest end among
+     * the first i+1 intervals, which keeps the overlap test a single binary
+     * search even if legacy data contains overlapping bookings.
+     */
+    static final class RoomIntervals {
+        static final RoomIntervals EMPTY = new RoomIntervals(new int[0], new int[0], new int[0]);
+
+        final int[] starts;
+        final int[] ends;
+        final int[] bookingIds;
+        final int[] maxEnd;
+
+        RoomIntervals(int[] starts, int[] ends, int[] bookingIds) {
+            this.starts = starts;
+            this.ends = ends;
+            this.bookingIds = bookingIds;
+            this.maxEnd = new int[starts.length];
+            int m = Integer.MIN_VALUE;
+            for (int i = 0; i < starts.length; i++) {
+                m = Math.max(m, ends[i]);
+                maxEnd[i] = m;
+            }
+        }
+
+        boolean isFree(int start, int end) {
+            // last interval starting before the requested end
+            int k = lastStartBefore(end);
+            return k < 0 || maxEnd[k] <= start;
+        }
+
+        private int lastStartBefore(int day) {
+            int lo = 0, hi = starts.length - 1, ans = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < day) { ans = mid; lo = mid + 1; } else hi = mid - 1;
+            }
+            return ans;
+        }
+
+        RoomIntervals with(int start, int end, int bookingId) {
+            int pos = lastStartBefore(start + 1) + 1;
+            int n = starts.length;
+            int[] s = new int[n + 1], e = new int[n + 1], ids = new int[n + 1];
+            System.arraycopy(starts, 0, s, 0, pos);
+            System.arraycopy(ends, 0, e, 0, pos);
+            System.arraycopy(bookingIds, 0, ids, 0, pos);
+            s[pos] = start; e[pos] = end; ids[pos] = bookingId;
+            System.arraycopy(starts, pos, s, pos + 1, n - pos);
+            System.arraycopy(ends, pos, e, pos + 1, n - pos);
+            System.arraycopy(bookingIds, pos, ids, pos + 1, n - pos);
+            return new RoomIntervals(s, e, ids);
+        }
+
+        RoomIntervals without(int bookingId) {
+            int pos = -1;
+            for (int i = 0; i < bookingIds.length; i++) if (bookingIds[i] == bookingId) { pos = i; break; }
+            if (pos < 0) return this;
+            int n = starts.length - 1;
+            int[] s = Arrays.copyOf(starts, n), e = Arrays.copyOf(ends, n), ids = Arrays.copyOf(bookingIds, n);
+            System.arraycopy(starts, pos + 1, s, pos, n - pos);
+            System.arraycopy(ends, pos + 1, e, pos, n - pos);
+            System.arraycopy(bookingIds, pos + 1, ids, pos, n - pos);
+            return new RoomIntervals(s, e, ids);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package service;
+
+// Thrown when a room is already booked for part of the requested dates
+public class BookingConflictException extends Exception {
+    public BookingConflictException(String message) {
+        super(message);
+    }
+}
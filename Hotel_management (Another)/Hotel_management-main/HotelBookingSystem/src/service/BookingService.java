@@ -0,0 +1,152 @@
+package service;
+
+import model.Booking;
+import model.Money;
+import model.Payment;
+import repo.Repositories;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Books and cancels rooms. The overlap check, booking insert and optional
+ * payment insert happen atomically in the BookingRepository (one transaction
+ * holding the room row FOR UPDATE in MySQL), so two clerks can never book the
+ * same room for overlapping dates. The availability index is updated only
+ * after the booking is stored.
+ */
+public class BookingService {
+    private static final BookingService INSTANCE = new BookingService();
+
+    private final long startedAt = System.nanoTime();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong cancellations = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    public static BookingService get() {
+        return INSTANCE;
+    }
+
+    public static class Reservation {
+        private final int bookingId;
+        private final long nights;
+        private final Money total;
+
+        public Reservation(int bookingId, long nights, Money total) {
+            this.bookingId = bookingId;
+            this.nights = nights;
+            this.total = total;
+        }
+
+        public int getBookingId() { return bookingId; }
+        public long getNights() { return nights; }
+        public Money getTotal() { return total; }
+    }
+
+    /**
+     * Reserves roomId for [start, end). When paymentMethod is non-null the full
+     * amount is recorded as PAID in the same transaction. The booking never
+     * expires; use holdForPayment for customers who pay afterwards.
+     */
+    public Reservation reserve(int userId, int roomId, LocalDate start, LocalDate end, String paymentMethod, String googlePayNumber) throws Exception {
+        return reserve(userId, roomId, start, end, paymentMethod, googlePayNumber, false);
+    }
+
+    /**
+     * Like reserve, but a booking left unpaid is held only for the sweeper's
+     * hold time and then cancelled by PendingBookingSweeper.
+     */
+    public Reservation holdForPayment(int userId, int roomId, LocalDate start, LocalDate end, String paymentMethod, String googlePayNumber) throws Exception {
+        return reserve(userId, roomId, start, end, paymentMethod, googlePayNumber, true);
+    }
+
+    private Reservation reserve(int userId, int roomId, LocalDate start, LocalDate end, String paymentMethod, String googlePayNumber, boolean hold) throws Exception {
+        long nights = ChronoUnit.DAYS.between(start, end);
+        if (nights <= 0) throw new IllegalArgumentException("End date must be after start date");
+        attempts.incrementAndGet();
+        long t0 = System.nanoTime();
+        Money[] total = new Money[1];
+        Payment[] payment = new Payment[1];
+        int bookingId;
+        try {
+            Booking booking = new Booking(0, userId, roomId, start, end, "BOOKED", null);
+            if (hold) booking.setHoldExpiresAt(PendingBookingSweeper.get().holdUntil(LocalDateTime.now().withNano(0)));
+            boolean stored = Repositories.get().bookings().reserve(booking, room -> {
+                total[0] = PricingEngine.get().quote(room.getType(), room.getPrice(), start, end);
+                if (paymentMethod == null) return null;
+                payment[0] = new Payment(0, userId, 0, total[0], "PAID", paymentMethod, "GOOGLEPAY".equals(paymentMethod) ? googlePayNumber : null, null);
+                return payment[0];
+            });
+            if (!stored) {
+                conflicts.incrementAndGet();
+                throw new BookingConflictException("Room is already booked for those dates");
+            }
+            bookingId = booking.getId();
+        } catch (Exception ex) {
+            if (!(ex instanceof BookingConflictException)) failures.incrementAndGet();
+            throw ex;
+        } finally {
+            totalNanos.addAndGet(System.nanoTime() - t0);
+        }
+        committed.incrementAndGet();
+        // the booking is committed from here on; a failure below must not look like a failed booking and invite a second one
+        try {
+            AvailabilityIndex.get().add(roomId, bookingId, start, end);
+            AnalyticsEngine.get().recordBooking(roomId, start, end, paymentMethod != null ? total[0] : Money.ZERO);
+            EventJournal.Event booked = EventJournal.Event.booked(bookingId, userId, roomId, start, end);
+            if (paymentMethod != null) EventJournal.record(booked, EventJournal.Event.paid(bookingId, userId, total[0], paymentMethod));
+            else EventJournal.record(booked);
+            EventBus.Event bookedEvent = EventBus.Event.booked(bookingId, userId, roomId, start, end);
+            if (paymentMethod != null) EventBus.get().publish(bookedEvent, EventBus.Event.paid(bookingId, userId, payment[0].getId()));
+            else EventBus.get().publish(bookedEvent);
+        } catch (RuntimeException ex) {
+            System.err.println("Booking " + bookingId + " stored, but updating caches and listeners failed: " + ex);
+            ex.printStackTrace();
+        }
+        return new Reservation(bookingId, nights, total[0]);
+    }
+
+    // Cancels a booking and releases its dates; returns false if it was already cancelled
+    public boolean cancel(int bookingId) throws Exception {
+        if (!Repositories.get().bookings().cancel(bookingId)) return false;
+        cancellations.incrementAndGet();
+        AvailabilityIndex.get().remove(bookingId);
+        AnalyticsEngine.get().invalidate();
+        EventJournal.record(EventJournal.Event.cancelled(bookingId));
+        EventBus.get().publish(EventBus.Event.cancelled(bookingId, 0, 0));
+        return true;
+    }
+
+    public long getAttempts() { return attempts.get(); }
+    public long getCommitted() { return committed.get(); }
+    public long getConflicts() { return conflicts.get(); }
+    public long getFailures() { return failures.get(); }
+    public long getCancellations() { return cancellations.get(); }
+
+    public double getConflictRate() {
+        long a = attempts.get();
+        return a == 0 ? 0 : (double) conflicts.get() / a;
+    }
+
+    // committed reservations per second since startup
+    public double getThroughput() {
+        double secs = (System.nanoTime() - startedAt) / 1e9;
+        return secs <= 0 ? 0 : committed.get() / secs;
+    }
+
+    public double getAvgReserveMillis() {
+        long a = attempts.get();
+        return a == 0 ? 0 : totalNanos.get() / 1e6 / a;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("attempts=%d committed=%d conflicts=%d (%.1f%%) failures=%d cancellations=%d throughput=%.2f/s avg=%.2fms",
+                attempts.get(), committed.get(), conflicts.get(), getConflictRate() * 100, failures.get(),
+                cancellations.get(), getThroughput(), getAvgReserveMillis());
+    }
+}
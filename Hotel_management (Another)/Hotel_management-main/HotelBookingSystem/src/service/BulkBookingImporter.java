@@ -0,0 +1,420 @@
+package service;
+
+import db.Database;
+import db.SchemaInfo;
+import model.Money;
+import repo.Repositories;
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Imports group and walk-in bookings from a CSV file:
+ *
+ *   customer,room,start,end,paid[,name[,phone]]
+ *   smith_family,101,2024-07-01,2024-07-05,yes,Jane Smith,555-0100
+ *
+ * customer is a username and room a room number; a header line is skipped.
+ * Unknown customers are created (flagged created_by_owner, random password).
+ * The file is read as a stream and written in chunks of CHUNK_SIZE rows, one
+ * transaction each: the chunk's rooms are locked FOR UPDATE in id order, the
+ * existing bookings for those rooms are read with a single query and every row
+ * is checked against them and against earlier rows of the same file, then the
+ * accepted users, bookings and payments go in as JDBC batches. Bad rows are
+ * reported by line number and do not stop the import. Use one instance per file.
+ *
+ * The batches go straight to MySQL, so imports are refused when the services
+ * run on the in-memory storage engine (-Dhotel.storage=memory).
+ */
+public class BulkBookingImporter {
+    static final int CHUNK_SIZE = 500;
+
+    private static final String ROOMS_SQL = "SELECT id, room_number, type, price FROM rooms";
+    private static final String INSERT_BOOKING_SQL =
+            "INSERT INTO bookings(user_id, room_id, start_date, end_date, status, payment_status) VALUES(?,?,?,?,?,?)";
+    private static final String INSERT_PAYMENT_SQL =
+            "INSERT INTO payments(user_id, booking_id, amount, status, payment_method, googlepay_number, qr_code, pin) VALUES(?,?,?,?,?,?,?,?)";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    public static class RowError {
+        private final int line;
+        private final String message;
+
+        RowError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public int getLine() { return line; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + message;
+        }
+    }
+
+    public static class Result {
+        private int rows;
+        private int imported;
+        private int customersCreated;
+        private long elapsedMillis;
+        private final List<RowError> errors = new ArrayList<>();
+
+        public int getRows() { return rows; }
+        public int getImported() { return imported; }
+        public int getCustomersCreated() { return customersCreated; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+
+        public String summary() {
+            return String.format("%d of %d rows imported, %d new customers, %d errors in %.1f s",
+                    imported, rows, customersCreated, errors.size(), elapsedMillis / 1000.0);
+        }
+    }
+
+    private static final class Row {
+        final int line;
+        final String customer;
+        final String name;
+        final String phone;
+        final int roomId;
+        final String roomType;
+        final Money price;
+        final LocalDate start;
+        final LocalDate end;
+        final boolean paid;
+
+        Row(int line, String customer, String name, String phone, int roomId, String roomType, Money price, LocalDate start, LocalDate end, boolean paid) {
+            this.line = line;
+            this.customer = customer;
+            this.name = name;
+            this.phone = phone;
+            this.roomId = roomId;
+            this.roomType = roomType;
+            this.price = price;
+            this.start = start;
+            this.end = end;
+            this.paid = paid;
+        }
+    }
+
+    private final Result result = new Result();
+    // room_number -> {id, type, price}
+    private final Map<String, Object[]> rooms = new HashMap<>();
+    // username -> id for customers resolved so far
+    private final Map<String, Integer> customers = new HashMap<>();
+    // roomId -> start epoch-day -> {end epoch-day, line}, for rows already imported from this file
+    private final Map<Integer, TreeMap<Integer, int[]>> imported = new HashMap<>();
+    private boolean spotColumn;
+
+    public Result importFile(Path file) throws Exception {
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importCsv(in);
+        }
+    }
+
+    public Result importCsv(Reader reader) throws Exception {
+        // the rows would land in MySQL where nothing else in this process would see them
+        if (Repositories.get().isInMemory()) throw new IllegalStateException("CSV import needs MySQL storage; it is not available with -Dhotel.storage=memory");
+        long t0 = System.nanoTime();
+        spotColumn = SchemaInfo.get().hasColumn("users", "created_by_owner");
+        try (Connection conn = Database.connect();
+             PreparedStatement ps = conn.prepareStatement(ROOMS_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) rooms.put(rs.getString("room_number"), new Object[]{rs.getInt("id"), rs.getString("type"), Money.of(rs.getBigDecimal("price"))});
+        }
+
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+        String text;
+        int line = 0;
+        while ((text = in.readLine()) != null) {
+            line++;
+            if (line == 1 && text.startsWith("\uFEFF")) text = text.substring(1);
+            if (text.trim().isEmpty()) continue;
+            List<String> cols = splitCsv(text);
+            if (line == 1 && cols.get(0).trim().equalsIgnoreCase("customer")) continue;
+            result.rows++;
+            Row row = parse(line, cols);
+            if (row == null) continue;
+            chunk.add(row);
+            if (chunk.size() == CHUNK_SIZE) {
+                writeChunk(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) writeChunk(chunk);
+        result.elapsedMillis = (System.nanoTime() - t0) / 1_000_000;
+        return result;
+    }
+
+    // Field-level checks that need no database access; returns null (and records the error) for a bad row
+    private Row parse(int line, List<String> cols) {
+        if (cols.size() < 5) {
+            error(line, "expected customer,room,start,end,paid but found " + cols.size() + " column(s)");
+            return null;
+        }
+        String customer = cols.get(0).trim();
+        if (customer.isEmpty()) { error(line, "customer is empty"); return null; }
+        Object[] room = rooms.get(cols.get(1).trim());
+        if (room == null) { error(line, "unknown room " + cols.get(1).trim()); return null; }
+        LocalDate start, end;
+        try {
+            start = LocalDate.parse(cols.get(2).trim());
+            end = LocalDate.parse(cols.get(3).trim());
+        } catch (DateTimeParseException ex) {
+            error(line, "dates must be YYYY-MM-DD");
+            return null;
+        }
+        if (!end.isAfter(start)) { error(line, "end date must be after start date"); return null; }
+        String paid = cols.get(4).trim().toLowerCase();
+        String name = cols.size() > 5 && !cols.get(5).trim().isEmpty() ? cols.get(5).trim() : customer;
+        String phone = cols.size() > 6 ? cols.get(6).trim() : null;
+        return new Row(line, customer, name, phone, (Integer) room[0], (String) room[1], (Money) room[2], start, end,
+                paid.equals("yes") || paid.equals("y") || paid.equals("true") || paid.equals("1") || paid.equals("paid"));
+    }
+
+    private void writeChunk(List<Row> rows) throws Exception {
+        List<int[]> added = new ArrayList<>();
+        Set<String> createdUsers = new LinkedHashSet<>();
+        try (Connection conn = Database.connect()) {
+            conn.setAutoCommit(false);
+            try {
+                resolveCustomers(conn, rows, createdUsers);
+                Map<Integer, List<int[]>> existing = lockRoomsAndLoadBookings(conn, rows);
+
+                List<Row> accepted = new ArrayList<>(rows.size());
+                for (Row r : rows) {
+                    Integer userId = customers.get(r.customer);
+                    if (userId == null || userId < 0) { error(r.line, "user " + r.customer + " is not a customer"); continue; }
+                    int s = (int) r.start.toEpochDay(), e = (int) r.end.toEpochDay();
+                    int clash = clash(existing.get(r.roomId), s, e);
+                    if (clash != 0) { error(r.line, "room already booked for those dates (booking #" + clash + ")"); continue; }
+                    TreeMap<Integer, int[]> fileRows = imported.computeIfAbsent(r.roomId, k -> new TreeMap<>());
+                    Map.Entry<Integer, int[]> prev = fileRows.lowerEntry(e);
+                    if (prev != null && prev.getValue()[0] > s) { error(r.line, "overlaps line " + prev.getValue()[1] + " for the same room"); continue; }
+                    fileRows.put(s, new int[]{e, r.line});
+                    added.add(new int[]{r.roomId, s});
+                    accepted.add(r);
+                }
+
+                int[] bookingIds = insertBookings(conn, accepted);
+                insertPayments(conn, accepted, bookingIds);
+                conn.commit();
+
+                AvailabilityIndex index = AvailabilityIndex.get();
+                List<EventJournal.Event> events = new ArrayList<>();
+                List<EventBus.Event> changes = new ArrayList<>();
+                PricingEngine pricing = PricingEngine.get();
+                for (int i = 0; i < accepted.size(); i++) {
+                    Row r = accepted.get(i);
+                    int userId = customers.get(r.customer);
+                    index.add(r.roomId, bookingIds[i], r.start, r.end);
+                    events.add(EventJournal.Event.booked(bookingIds[i], userId, r.roomId, r.start, r.end));
+                    if (r.paid) events.add(EventJournal.Event.paid(bookingIds[i], userId, pricing.quote(r.roomType, r.price, r.start, r.end), "CASH"));
+                    // imported payments carry no id here; the booking row shows them as PAID
+                    changes.add(EventBus.Event.booked(bookingIds[i], userId, r.roomId, r.start, r.end));
+                }
+                EventJournal.record(events);
+                EventBus.get().publish(changes);
+                if (!accepted.isEmpty()) AnalyticsEngine.get().invalidate();
+                result.imported += accepted.size();
+                result.customersCreated += createdUsers.size();
+            } catch (Exception ex) {
+                conn.rollback();
+                ex.printStackTrace();
+                for (int[] a : added) imported.get(a[0]).remove(a[1]);
+                for (String u : createdUsers) customers.remove(u);
+                for (Row r : rows) error(r.line, "not imported, batch failed: " + ex.getMessage());
+            }
+        }
+    }
+
+    // Looks up the chunk's usernames in one query and batch-inserts the missing ones
+    private void resolveCustomers(Connection conn, List<Row> rows, Set<String> created) throws Exception {
+        Map<String, Row> missing = new HashMap<>();
+        for (Row r : rows) if (!customers.containsKey(r.customer)) missing.putIfAbsent(r.customer, r);
+        if (missing.isEmpty()) return;
+        List<String> names = new ArrayList<>(missing.keySet());
+        lookupUsers(conn, names);
+        names.removeIf(customers::containsKey);
+        if (names.isEmpty()) return;
+
+        String sql = spotColumn
+                ? "INSERT INTO users(name, username, password, email, phone, user_type, created_by_owner) VALUES(?,?,?,?,?,'CUSTOMER',TRUE)"
+                : "INSERT INTO users(name, username, password, email, phone, user_type) VALUES(?,?,?,?,?,'CUSTOMER')";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (String username : names) {
+                Row r = missing.get(username);
+                ps.setString(1, r.name);
+                ps.setString(2, username);
+                ps.setString(3, randomPassword());
+                ps.setString(4, null);
+                ps.setString(5, r.phone == null || r.phone.isEmpty() ? null : r.phone);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        lookupUsers(conn, names);
+        created.addAll(names);
+    }
+
+    // Owners (and anyone else who is not a customer) are recorded as -1 so their rows are rejected
+    private void lookupUsers(Connection conn, List<String> usernames) throws Exception {
+        String sql = "SELECT id, username, user_type FROM users WHERE username IN (" + placeholders(usernames.size()) + ")";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < usernames.size(); i++) ps.setString(i + 1, usernames.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) customers.put(rs.getString("username"), "CUSTOMER".equals(rs.getString("user_type")) ? rs.getInt("id") : -1);
+            }
+        }
+    }
+
+    // Locks the chunk's rooms (same lock BookingService.reserve takes) and reads their active bookings in the chunk's date window
+    private Map<Integer, List<int[]>> lockRoomsAndLoadBookings(Connection conn, List<Row> rows) throws Exception {
+        Set<Integer> roomIds = new TreeSet<>();
+        LocalDate min = null, max = null;
+        for (Row r : rows) {
+            roomIds.add(r.roomId);
+            if (min == null || r.start.isBefore(min)) min = r.start;
+            if (max == null || r.end.isAfter(max)) max = r.end;
+        }
+        Map<Integer, List<int[]>> byRoom = new HashMap<>();
+        if (roomIds.isEmpty()) return byRoom;
+        String in = placeholders(roomIds.size());
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM rooms WHERE id IN (" + in + ") ORDER BY id FOR UPDATE")) {
+            int i = 1;
+            for (Integer id : roomIds) ps.setInt(i++, id);
+            try (ResultSet rs = ps.executeQuery()) { while (rs.next()) { } }
+        }
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id, room_id, start_date, end_date FROM bookings WHERE status<>'CANCELLED' AND room_id IN (" + in + ") AND start_date<? AND end_date>?")) {
+            int i = 1;
+            for (Integer id : roomIds) ps.setInt(i++, id);
+            ps.setDate(i++, Date.valueOf(max));
+            ps.setDate(i, Date.valueOf(min));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int s = (int) rs.getDate("start_date").toLocalDate().toEpochDay();
+                    int e = (int) rs.getDate("end_date").toLocalDate().toEpochDay();
+                    byRoom.computeIfAbsent(rs.getInt("room_id"), k -> new ArrayList<>()).add(new int[]{s, e, rs.getInt("id")});
+                }
+            }
+        }
+        return byRoom;
+    }
+
+    // Id of an existing booking overlapping [s, e), or 0
+    private static int clash(List<int[]> bookings, int s, int e) {
+        if (bookings == null) return 0;
+        for (int[] b : bookings) if (b[0] < e && b[1] > s) return b[2];
+        return 0;
+    }
+
+    private int[] insertBookings(Connection conn, List<Row> rows) throws Exception {
+        int[] ids = new int[rows.size()];
+        if (rows.isEmpty()) return ids;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_BOOKING_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (Row r : rows) {
+                ps.setInt(1, customers.get(r.customer));
+                ps.setInt(2, r.roomId);
+                ps.setDate(3, Date.valueOf(r.start));
+                ps.setDate(4, Date.valueOf(r.end));
+                ps.setString(5, "BOOKED");
+                ps.setString(6, r.paid ? "PAID" : "PENDING");
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                int i = 0;
+                while (keys.next() && i < ids.length) ids[i++] = keys.getInt(1);
+                if (i != ids.length) throw new IllegalStateException("Expected " + ids.length + " booking ids but got " + i);
+            }
+        }
+        return ids;
+    }
+
+    private void insertPayments(Connection conn, List<Row> rows, int[] bookingIds) throws Exception {
+        boolean any = false;
+        PricingEngine pricing = PricingEngine.get();
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_PAYMENT_SQL)) {
+            for (int i = 0; i < rows.size(); i++) {
+                Row r = rows.get(i);
+                if (!r.paid) continue;
+                ps.setInt(1, customers.get(r.customer));
+                ps.setInt(2, bookingIds[i]);
+                ps.setBigDecimal(3, pricing.quote(r.roomType, r.price, r.start, r.end).toBigDecimal());
+                ps.setString(4, "PAID");
+                ps.setString(5, "CASH");
+                ps.setString(6, null);
+                ps.setString(7, null);
+                ps.setString(8, null);
+                ps.addBatch();
+                any = true;
+            }
+            if (any) ps.executeBatch();
+        }
+    }
+
+    private void error(int line, String message) {
+        result.errors.add(new RowError(line, message));
+    }
+
+    private static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder(n * 2);
+        for (int i = 0; i < n; i++) sb.append(i == 0 ? "?" : ",?");
+        return sb.toString();
+    }
+
+    private static String randomPassword() {
+        StringBuilder sb = new StringBuilder(12);
+        for (int i = 0; i < 12; i++) sb.append("abcdefghjkmnpqrstuvwxyz23456789".charAt(RANDOM.nextInt(31)));
+        return sb.toString();
+    }
+
+    // Splits one CSV line; double quotes may wrap a field and "" inside quotes is a literal quote
+    static List<String> splitCsv(String line) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') { cur.append('"'); i++; }
+                    else quoted = false;
+                } else {
+                    cur.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                out.add(cur.toString());
+                cur.setLength(0);
+            } else {
+                cur.append(c);
+            }
+        }
+        out.add(cur.toString());
+        return out;
+    }
+}
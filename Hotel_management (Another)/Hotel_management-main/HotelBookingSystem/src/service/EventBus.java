@@ -0,0 +1,329 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Publish/subscribe for booking changes (booked, cancelled, paid, reviewed),
+ * published after the change commits so open dashboards can patch the rows
+ * they show instead of reloading whole tables.
+ *
+ * Events carry ids rather than rows; subscribers re-read what they display.
+ * One dispatcher thread delivers them in publish order, so publishers never
+ * wait on a subscriber, and Swing subscribers move to the EDT themselves.
+ *
+ * With -Dhotel.events.port set, processes on this machine share events over
+ * a loopback socket, one text line per event: the first process to bind the
+ * port relays for the others, which connect to it, and when the relay exits
+ * one of them takes the port over. Events published while a process is
+ * between relays reach its own subscribers only. Each peer has its own
+ * bounded outbound queue and writer thread, so a stalled peer cannot hold up
+ * delivery here; one that falls OUTBOUND_LIMIT events behind is dropped.
+ */
+public class EventBus {
+    private static final EventBus INSTANCE = new EventBus(Integer.getInteger("hotel.events.port", 0));
+    private static final long RECONNECT_MILLIS = 1_000;
+    private static final int OUTBOUND_LIMIT = 1_024;
+
+    public enum Type { BOOKED, CANCELLED, PAID, REVIEWED }
+
+    public static final class Event {
+        private final Type type;
+        private final int bookingId;
+        private final int userId;
+        private final int roomId;
+        // payment id for PAID (0 when marked paid without a payment row), review id for REVIEWED
+        private final int refId;
+        // BOOKED: the stay; REVIEWED: startDay carries the rating
+        private final int startDay;
+        private final int endDay;
+
+        Event(Type type, int bookingId, int userId, int roomId, int refId, int startDay, int endDay) {
+            this.type = type;
+            this.bookingId = bookingId;
+            this.userId = userId;
+            this.roomId = roomId;
+            this.refId = refId;
+            this.startDay = startDay;
+            this.endDay = endDay;
+        }
+
+        public static Event booked(int bookingId, int userId, int roomId, LocalDate start, LocalDate end) {
+            return new Event(Type.BOOKED, bookingId, userId, roomId, 0, (int) start.toEpochDay(), (int) end.toEpochDay());
+        }
+
+        // userId and roomId may be 0 when the caller only has the booking id
+        public static Event cancelled(int bookingId, int userId, int roomId) {
+            return new Event(Type.CANCELLED, bookingId, userId, roomId, 0, 0, 0);
+        }
+
+        public static Event paid(int bookingId, int userId, int paymentId) {
+            return new Event(Type.PAID, bookingId, userId, 0, paymentId, 0, 0);
+        }
+
+        public static Event reviewed(int reviewId, int userId, int roomId, int rating) {
+            return new Event(Type.REVIEWED, 0, userId, roomId, reviewId, rating, 0);
+        }
+
+        public Type getType() { return type; }
+        public int getBookingId() { return bookingId; }
+        public int getUserId() { return userId; }
+        public int getRoomId() { return roomId; }
+        public int getPaymentId() { return type == Type.PAID ? refId : 0; }
+        public int getReviewId() { return type == Type.REVIEWED ? refId : 0; }
+        public int getRating() { return type == Type.REVIEWED ? startDay : 0; }
+        public LocalDate getStart() { return LocalDate.ofEpochDay(startDay); }
+        public LocalDate getEnd() { return LocalDate.ofEpochDay(endDay); }
+
+        // "BOOKED 12 3 4 0 20000 20003"
+        String encode() {
+            return type + " " + bookingId + " " + userId + " " + roomId + " " + refId + " " + startDay + " " + endDay;
+        }
+
+        static Event decode(String line) {
+            String[] f = line.trim().split(" ");
+            if (f.length != 7) throw new IllegalArgumentException("Bad event line: " + line);
+            return new Event(Type.valueOf(f[0]), Integer.parseInt(f[1]), Integer.parseInt(f[2]), Integer.parseInt(f[3]),
+                    Integer.parseInt(f[4]), Integer.parseInt(f[5]), Integer.parseInt(f[6]));
+        }
+
+        @Override
+        public String toString() { return encode(); }
+    }
+
+    // an event and the peer it came from (null if published here)
+    private static final class Delivery {
+        final Event event;
+        final Peer origin;
+
+        Delivery(Event event, Peer origin) {
+            this.event = event;
+            this.origin = origin;
+        }
+    }
+
+    private final int port;
+    private final List<Consumer<Event>> subscribers = new CopyOnWriteArrayList<>();
+    // called only for events from other processes
+    private final List<Consumer<Event>> remoteSubscribers = new CopyOnWriteArrayList<>();
+    private final List<Peer> peers = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Delivery> queue = new LinkedBlockingQueue<>();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private volatile boolean relayStarted;
+    private volatile boolean hosting;
+
+    public static EventBus get() {
+        return INSTANCE;
+    }
+
+    EventBus(int port) {
+        this.port = port;
+        Thread dispatcher = new Thread(this::dispatch, "event-bus");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    // Joins the other processes on hotel.events.port, if one is set; later calls do nothing
+    public synchronized void start() {
+        if (port <= 0 || relayStarted) return;
+        relayStarted = true;
+        Thread relay = new Thread(this::relay, "event-bus-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    // Returns a handle that unsubscribes; the subscriber is called on the dispatcher thread
+    public Runnable subscribe(Consumer<Event> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    /**
+     * Like subscribe, but only for events that arrive from other processes: for
+     * caches such as AvailabilityIndex that this process already updates itself
+     * when it makes a change.
+     */
+    public Runnable subscribeRemote(Consumer<Event> subscriber) {
+        remoteSubscribers.add(subscriber);
+        return () -> remoteSubscribers.remove(subscriber);
+    }
+
+    public void publish(Event... events) {
+        publish(Arrays.asList(events));
+    }
+
+    public void publish(List<Event> events) {
+        if (subscribers.isEmpty() && peers.isEmpty()) return;
+        for (Event e : events) {
+            published.increment();
+            queue.add(new Delivery(e, null));
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            Delivery d;
+            try {
+                d = queue.take();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            if (d.origin != null) deliver(remoteSubscribers, d.event);
+            deliver(subscribers, d.event);
+            // the relay passes each event on to everyone but its sender; a client only has the relay
+            String line = null;
+            for (Peer p : peers) {
+                if (p == d.origin) continue;
+                if (line == null) line = d.event.encode();
+                if (!p.send(line)) {
+                    System.err.println("Event bus: dropping a peer " + OUTBOUND_LIMIT + " events behind");
+                    drop(p);
+                }
+            }
+        }
+    }
+
+    private static void deliver(List<Consumer<Event>> to, Event e) {
+        for (Consumer<Event> s : to) {
+            try {
+                s.accept(e);
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private void relay() {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        while (true) {
+            try (ServerSocket server = new ServerSocket()) {
+                server.bind(new InetSocketAddress(loopback, port));
+                hosting = true;
+                System.out.println("Event bus: relaying on port " + port);
+                while (true) {
+                    Peer p = new Peer(server.accept());
+                    attach(p);
+                    Thread reader = new Thread(() -> read(p), "event-bus-peer");
+                    reader.setDaemon(true);
+                    reader.start();
+                }
+            } catch (BindException taken) {
+                // another process relays; follow it until it goes away, then try to take over
+                try {
+                    Peer p = new Peer(new Socket(loopback, port));
+                    attach(p);
+                    read(p);
+                } catch (IOException ex) {
+                    // relay exited between our bind and connect
+                }
+            } catch (IOException ex) {
+                System.err.println("Event bus relay error: " + ex.getMessage());
+            } finally {
+                hosting = false;
+            }
+            try {
+                Thread.sleep(RECONNECT_MILLIS);
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    private void read(Peer p) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(p.socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                try {
+                    queue.add(new Delivery(Event.decode(line), p));
+                    received.increment();
+                } catch (IllegalArgumentException ex) {
+                    System.err.println("Event bus: ignoring " + ex.getMessage());
+                }
+            }
+        } catch (IOException ex) {
+            // peer went away
+        } finally {
+            drop(p);
+        }
+    }
+
+    private void attach(Peer p) {
+        peers.add(p);
+        p.writer = new Thread(() -> write(p), "event-bus-writer");
+        p.writer.setDaemon(true);
+        p.writer.start();
+    }
+
+    // Writes a peer's queued lines, flushing once the queue is drained
+    private void write(Peer p) {
+        try {
+            while (true) {
+                String line = p.outbound.take();
+                p.out.write(line);
+                p.out.write('\n');
+                if (p.outbound.isEmpty()) p.out.flush();
+            }
+        } catch (IOException | InterruptedException ex) {
+            // peer went away or was dropped
+        } finally {
+            drop(p);
+        }
+    }
+
+    private void drop(Peer p) {
+        peers.remove(p);
+        p.close();
+    }
+
+    public long getPublished() { return published.sum(); }
+    // events that arrived from other processes
+    public long getReceived() { return received.sum(); }
+    public int getPeerCount() { return peers.size(); }
+    public boolean isRelaying() { return hosting; }
+
+    private static final class Peer {
+        final Socket socket;
+        final Writer out;
+        final BlockingQueue<String> outbound = new ArrayBlockingQueue<>(OUTBOUND_LIMIT);
+        volatile Thread writer;
+
+        Peer(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            this.out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        }
+
+        // Queues a line for the writer thread; false if the peer is too far behind
+        boolean send(String line) {
+            return outbound.offer(line);
+        }
+
+        void close() {
+            Thread w = writer;
+            if (w != null) w.interrupt();
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
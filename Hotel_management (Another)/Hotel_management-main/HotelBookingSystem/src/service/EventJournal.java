@@ -0,0 +1,591 @@
+package service;
+
+import model.Money;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of booking lifecycle events (booked, cancelled, paid,
+ * marked paid), written after the matching database change commits so the
+ * history can be audited and booking/payment state rebuilt by replay.
+ *
+ * Events go into fixed-size memory-mapped segment files named after their
+ * first sequence number. Each record is [payload length][CRC32C][payload];
+ * a zero length ends a segment, and a bad CRC marks a torn write that is cut
+ * off when the journal is reopened.
+ *
+ * Durability uses group commit: appenders only copy into the mapping, and a
+ * single flusher thread forces everything written since its last pass, so one
+ * msync covers every event that arrived meanwhile. Settings:
+ *   -Dhotel.journal.dir=journal         segment directory
+ *   -Dhotel.journal.sync=commit         commit: callers wait for their group to be forced
+ *                                       async: callers return at once, forced every interval
+ *   -Dhotel.journal.syncIntervalMs=0    async period, or extra time to gather a group in commit mode
+ *   -Dhotel.journal.segmentMB=64
+ *   -Dhotel.journal.enabled=false       turns recording off
+ */
+public class EventJournal implements AutoCloseable {
+    public enum Type { BOOKED, CANCELLED, PAID, MARKED_PAID }
+
+    private static final int SEGMENT_MAGIC = 0x484A524E; // "HJRN"
+    private static final int SEGMENT_VERSION = 1;
+    private static final int SEGMENT_HEADER = 16;
+    private static final int RECORD_HEADER = 8;
+    // type, seq, time, booking, user, room, start, end, amount, method length
+    private static final int FIXED_PAYLOAD = 1 + 8 + 8 + 4 * 5 + 8 + 1;
+    private static final int MAX_PAYLOAD = FIXED_PAYLOAD + 255;
+
+    private static volatile EventJournal instance;
+    private static volatile boolean unavailable;
+
+    private final Path dir;
+    private final boolean waitForSync;
+    private final long syncIntervalNanos;
+    private final int segmentBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition written = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+    // held while forcing or retiring a segment, never while taking lock
+    private final Object forceLock = new Object();
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_PAYLOAD);
+    private final CRC32C crc = new CRC32C();
+
+    private Segment current;
+    private long nextSeq;
+    private long lastWritten;
+    private long lastSynced;
+    private int syncedPos;
+    private boolean closed;
+    private IOException syncError;
+    private final Thread flusher;
+
+    public static final class Event {
+        private final Type type;
+        private final long seq;
+        private final long timeMillis;
+        private final int bookingId;
+        private final int userId;
+        private final int roomId;
+        private final int startDay;
+        private final int endDay;
+        private final long amountCents;
+        private final String method;
+
+        Event(Type type, long seq, long timeMillis, int bookingId, int userId, int roomId, int startDay, int endDay, long amountCents, String method) {
+            this.type = type;
+            this.seq = seq;
+            this.timeMillis = timeMillis;
+            this.bookingId = bookingId;
+            this.userId = userId;
+            this.roomId = roomId;
+            this.startDay = startDay;
+            this.endDay = endDay;
+            this.amountCents = amountCents;
+            this.method = method;
+        }
+
+        public static Event booked(int bookingId, int userId, int roomId, LocalDate start, LocalDate end) {
+            return new Event(Type.BOOKED, 0, 0, bookingId, userId, roomId, (int) start.toEpochDay(), (int) end.toEpochDay(), 0, null);
+        }
+
+        public static Event cancelled(int bookingId) {
+            return new Event(Type.CANCELLED, 0, 0, bookingId, 0, 0, 0, 0, 0, null);
+        }
+
+        public static Event paid(int bookingId, int userId, Money amount, String method) {
+            return new Event(Type.PAID, 0, 0, bookingId, userId, 0, 0, 0, amount.getCents(), method);
+        }
+
+        public static Event markedPaid(int bookingId) {
+            return new Event(Type.MARKED_PAID, 0, 0, bookingId, 0, 0, 0, 0, 0, null);
+        }
+
+        public Type getType() { return type; }
+        public long getSeq() { return seq; }
+        public long getTimeMillis() { return timeMillis; }
+        public int getBookingId() { return bookingId; }
+        public int getUserId() { return userId; }
+        public int getRoomId() { return roomId; }
+        public LocalDate getStart() { return LocalDate.ofEpochDay(startDay); }
+        public LocalDate getEnd() { return LocalDate.ofEpochDay(endDay); }
+        public Money getAmount() { return Money.ofCents(amountCents); }
+        public String getMethod() { return method; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder().append('#').append(seq).append(' ').append(Instant.ofEpochMilli(timeMillis)).append(' ').append(type)
+                    .append(" booking=").append(bookingId);
+            if (type == Type.BOOKED) sb.append(" user=").append(userId).append(" room=").append(roomId).append(' ').append(getStart()).append("..").append(getEnd());
+            if (type == Type.PAID) sb.append(" user=").append(userId).append(" amount=").append(getAmount()).append(" method=").append(method);
+            return sb.toString();
+        }
+    }
+
+    /**
+     * The shared journal, opened on first use from the hotel.journal.* settings;
+     * null when recording is disabled or the directory cannot be opened.
+     */
+    public static EventJournal get() {
+        EventJournal j = instance;
+        if (j != null || unavailable) return j;
+        synchronized (EventJournal.class) {
+            if (instance == null && !unavailable) {
+                if (!Boolean.parseBoolean(System.getProperty("hotel.journal.enabled", "true"))) {
+                    unavailable = true;
+                    return null;
+                }
+                try {
+                    EventJournal fresh = new EventJournal(Paths.get(System.getProperty("hotel.journal.dir", "journal")),
+                            !"async".equalsIgnoreCase(System.getProperty("hotel.journal.sync", "commit")),
+                            Long.getLong("hotel.journal.syncIntervalMs", 0), Integer.getInteger("hotel.journal.segmentMB", 64) << 20);
+                    Runtime.getRuntime().addShutdownHook(new Thread(fresh::closeQuietly, "journal-close"));
+                    instance = fresh;
+                } catch (IOException ex) {
+                    System.err.println("Event journal unavailable, booking history will not be recorded: " + ex.getMessage());
+                    unavailable = true;
+                }
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Journals events for a change that has already committed, waiting once
+     * for all of them in commit mode. A journal failure is logged rather than
+     * thrown, since the database change stands.
+     */
+    public static void record(Event... events) {
+        record(Arrays.asList(events));
+    }
+
+    public static void record(List<Event> events) {
+        EventJournal j = get();
+        if (j == null || events.isEmpty()) return;
+        try {
+            long seq = 0;
+            for (Event e : events) seq = j.append(e);
+            if (j.waitForSync) j.awaitDurable(seq);
+        } catch (IOException | InterruptedException ex) {
+            if (ex instanceof InterruptedException) Thread.currentThread().interrupt();
+            Event first = events.get(0);
+            System.err.println("Could not journal " + first.getType() + " for booking " + first.getBookingId() + ": " + ex.getMessage());
+        }
+    }
+
+    public EventJournal(Path dir, boolean waitForSync, long syncIntervalMs, int segmentBytes) throws IOException {
+        if (segmentBytes < SEGMENT_HEADER + RECORD_HEADER + MAX_PAYLOAD + 4) throw new IllegalArgumentException("Segment size too small");
+        this.dir = dir;
+        this.waitForSync = waitForSync;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMs);
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+        List<Path> segments = segments(dir);
+        if (segments.isEmpty()) {
+            current = Segment.create(segmentPath(dir, 1), 1, segmentBytes);
+            nextSeq = 1;
+        } else {
+            current = Segment.open(segments.get(segments.size() - 1), true);
+            long[] last = {current.firstSeq - 1};
+            int end = current.scan(e -> last[0] = e.seq);
+            current.truncate(end);
+            nextSeq = last[0] + 1;
+        }
+        lastWritten = lastSynced = nextSeq - 1;
+        syncedPos = current.position;
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /** Copies the event into the journal and returns its sequence number; it may not be on disk yet. */
+    public long append(Event e) throws IOException {
+        byte[] method = e.method == null ? new byte[0] : e.method.getBytes(StandardCharsets.UTF_8);
+        if (method.length > 255) method = Arrays.copyOf(method, 255);
+        lock.lock();
+        try {
+            if (closed) throw new IOException("Journal is closed");
+            long seq = nextSeq;
+            ByteBuffer p = scratch;
+            p.clear();
+            p.put((byte) e.type.ordinal()).putLong(seq).putLong(System.currentTimeMillis())
+                    .putInt(e.bookingId).putInt(e.userId).putInt(e.roomId).putInt(e.startDay).putInt(e.endDay)
+                    .putLong(e.amountCents).put((byte) method.length).put(method);
+            p.flip();
+            int len = p.remaining();
+            crc.reset();
+            crc.update(p.array(), 0, len);
+            // keep 4 zero bytes after the last record as the end marker
+            if (current.position + RECORD_HEADER + len + 4 > segmentBytes) roll(seq);
+            MappedByteBuffer buf = current.buffer;
+            int pos = current.position;
+            buf.putInt(pos + 4, (int) crc.getValue());
+            buf.put(pos + RECORD_HEADER, p.array(), 0, len);
+            // length last, so a reader never sees a length without its payload
+            buf.putInt(pos, len);
+            current.position = pos + RECORD_HEADER + len;
+            nextSeq = seq + 1;
+            lastWritten = seq;
+            written.signal();
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Blocks until every event up to seq has been forced to disk. */
+    public void awaitDurable(long seq) throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            while (lastSynced < seq) {
+                if (syncError != null) throw syncError;
+                if (closed) throw new IOException("Journal closed before event " + seq + " was synced");
+                synced.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds lock. Forces and retires the full segment and starts a new one at seq.
+    private void roll(long seq) throws IOException {
+        Segment next = Segment.create(segmentPath(dir, seq), seq, segmentBytes);
+        synchronized (forceLock) {
+            current.buffer.force();
+            current.close();
+        }
+        lastSynced = lastWritten;
+        current = next;
+        syncedPos = next.position;
+        synced.signalAll();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            Segment seg;
+            int from, to;
+            long target;
+            lock.lock();
+            try {
+                while (!closed && lastWritten == lastSynced) written.awaitUninterruptibly();
+                if (closed && lastWritten == lastSynced) return;
+                if (syncIntervalNanos > 0 && !closed) {
+                    // let more appenders join this group
+                    long deadline = System.nanoTime() + syncIntervalNanos;
+                    long left;
+                    while (!closed && (left = deadline - System.nanoTime()) > 0) {
+                        try {
+                            written.awaitNanos(left);
+                        } catch (InterruptedException ex) {
+                            break;
+                        }
+                    }
+                }
+                seg = current;
+                from = syncedPos;
+                to = seg.position;
+                target = lastWritten;
+            } finally {
+                lock.unlock();
+            }
+            IOException error = null;
+            synchronized (forceLock) {
+                // a retired segment was already forced by roll()
+                if (!seg.closed) {
+                    try {
+                        seg.buffer.force(from, to - from);
+                    } catch (RuntimeException ex) {
+                        error = new IOException("Journal sync failed", ex);
+                    }
+                }
+            }
+            lock.lock();
+            try {
+                if (error != null) {
+                    syncError = error;
+                } else {
+                    lastSynced = Math.max(lastSynced, target);
+                    if (current == seg) syncedPos = Math.max(syncedPos, to);
+                }
+                synced.signalAll();
+                if (error != null) return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public long getLastSeq() {
+        lock.lock();
+        try {
+            return lastWritten;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            written.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join(5_000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            synchronized (forceLock) {
+                if (!current.closed) {
+                    current.buffer.force();
+                    current.close();
+                }
+            }
+            lastSynced = lastWritten;
+            synced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ex) {
+            System.err.println("Could not close event journal: " + ex.getMessage());
+        }
+    }
+
+    /** Feeds every intact event in dir to consumer in sequence order and returns how many there were. */
+    public static long replay(Path dir, Consumer<Event> consumer) throws IOException {
+        long count = 0;
+        long[] n = {0};
+        for (Path file : segments(dir)) {
+            try (Segment seg = Segment.open(file, false)) {
+                n[0] = 0;
+                seg.scan(e -> { consumer.accept(e); n[0]++; });
+                count += n[0];
+            }
+        }
+        return count;
+    }
+
+    /** Booking and payment state as of the last journaled event. */
+    public static final class State implements Consumer<Event> {
+        public static final class Booking {
+            int userId;
+            int roomId;
+            LocalDate start;
+            LocalDate end;
+            String status = "BOOKED";
+            String paymentStatus = "PENDING";
+            long paidCents;
+
+            public int getUserId() { return userId; }
+            public int getRoomId() { return roomId; }
+            public LocalDate getStart() { return start; }
+            public LocalDate getEnd() { return end; }
+            public String getStatus() { return status; }
+            public String getPaymentStatus() { return paymentStatus; }
+            public Money getPaid() { return Money.ofCents(paidCents); }
+        }
+
+        private final Map<Integer, Booking> bookings = new LinkedHashMap<>();
+        private final Map<Type, Long> counts = new EnumMap<>(Type.class);
+        private long lastSeq;
+
+        @Override
+        public void accept(Event e) {
+            counts.merge(e.type, 1L, Long::sum);
+            lastSeq = e.seq;
+            Booking b = bookings.computeIfAbsent(e.bookingId, k -> new Booking());
+            switch (e.type) {
+                case BOOKED:
+                    b.userId = e.userId;
+                    b.roomId = e.roomId;
+                    b.start = e.getStart();
+                    b.end = e.getEnd();
+                    break;
+                case CANCELLED:
+                    b.status = "CANCELLED";
+                    break;
+                case PAID:
+                    b.paidCents += e.amountCents;
+                    b.paymentStatus = "PAID";
+                    break;
+                case MARKED_PAID:
+                    b.paymentStatus = "PAID";
+                    break;
+            }
+        }
+
+        public Map<Integer, Booking> getBookings() { return bookings; }
+        public long getCount(Type type) { return counts.getOrDefault(type, 0L); }
+        public long getLastSeq() { return lastSeq; }
+    }
+
+    public static State rebuild(Path dir) throws IOException {
+        State state = new State();
+        replay(dir, state);
+        return state;
+    }
+
+    // Prints the journal, or with --summary the state it rebuilds
+    public static void main(String[] args) throws IOException {
+        boolean summary = args.length > 0 && "--summary".equals(args[0]);
+        Path dir = Paths.get(args.length > (summary ? 1 : 0) ? args[summary ? 1 : 0] : System.getProperty("hotel.journal.dir", "journal"));
+        if (!summary) {
+            replay(dir, System.out::println);
+            return;
+        }
+        long t0 = System.nanoTime();
+        State s = rebuild(dir);
+        long active = 0, paid = 0, paidCents = 0;
+        for (State.Booking b : s.getBookings().values()) {
+            if (!"CANCELLED".equals(b.status)) active++;
+            if ("PAID".equals(b.paymentStatus)) paid++;
+            paidCents += b.paidCents;
+        }
+        System.out.printf(Locale.ROOT, "%d events up to #%d replayed in %d ms%n", Arrays.stream(Type.values()).mapToLong(s::getCount).sum(), s.getLastSeq(), (System.nanoTime() - t0) / 1_000_000);
+        for (Type t : Type.values()) System.out.printf("  %-12s %d%n", t, s.getCount(t));
+        System.out.printf("%d bookings, %d active, %d paid, %s received%n", s.getBookings().size(), active, paid, Money.ofCents(paidCents));
+    }
+
+    private static Path segmentPath(Path dir, long firstSeq) {
+        return dir.resolve(String.format("%020d.seg", firstSeq));
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> out = new ArrayList<>();
+            files.filter(f -> f.getFileName().toString().matches("\\d{20}\\.seg")).sorted().forEach(out::add);
+            return out;
+        }
+    }
+
+    static final class Segment implements AutoCloseable {
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final long firstSeq;
+        int position;
+        boolean closed;
+
+        private Segment(FileChannel channel, MappedByteBuffer buffer, long firstSeq) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.firstSeq = firstSeq;
+            this.position = SEGMENT_HEADER;
+        }
+
+        static Segment create(Path file, long firstSeq, int size) throws IOException {
+            FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buf.putInt(0, SEGMENT_MAGIC).putInt(4, SEGMENT_VERSION).putLong(8, firstSeq);
+                buf.force(0, SEGMENT_HEADER);
+                return new Segment(ch, buf, firstSeq);
+            } catch (IOException | RuntimeException ex) {
+                ch.close();
+                throw ex;
+            }
+        }
+
+        static Segment open(Path file, boolean writable) throws IOException {
+            FileChannel ch = writable ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE) : FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                MappedByteBuffer buf = ch.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                if (ch.size() < SEGMENT_HEADER || buf.getInt(0) != SEGMENT_MAGIC || buf.getInt(4) != SEGMENT_VERSION) {
+                    throw new IOException("Not a journal segment: " + file);
+                }
+                return new Segment(ch, buf, buf.getLong(8));
+            } catch (IOException | RuntimeException ex) {
+                ch.close();
+                throw ex;
+            }
+        }
+
+        // Decodes records up to the end marker or the first damaged record; returns the end offset
+        int scan(Consumer<Event> consumer) {
+            CRC32C crc = new CRC32C();
+            byte[] payload = new byte[MAX_PAYLOAD];
+            int pos = SEGMENT_HEADER;
+            int limit = buffer.capacity();
+            while (pos + RECORD_HEADER <= limit) {
+                int len = buffer.getInt(pos);
+                if (len < FIXED_PAYLOAD || len > MAX_PAYLOAD || pos + RECORD_HEADER + len > limit) break;
+                buffer.get(pos + RECORD_HEADER, payload, 0, len);
+                crc.reset();
+                crc.update(payload, 0, len);
+                if ((int) crc.getValue() != buffer.getInt(pos + 4)) break;
+                ByteBuffer p = ByteBuffer.wrap(payload, 0, len);
+                int typeOrd = p.get();
+                if (typeOrd < 0 || typeOrd >= Type.values().length) break;
+                long seq = p.getLong();
+                long time = p.getLong();
+                int booking = p.getInt(), user = p.getInt(), room = p.getInt(), start = p.getInt(), end = p.getInt();
+                long amount = p.getLong();
+                int mlen = p.get() & 0xFF;
+                if (FIXED_PAYLOAD + mlen != len) break;
+                String method = mlen == 0 ? null : new String(payload, FIXED_PAYLOAD, mlen, StandardCharsets.UTF_8);
+                consumer.accept(new Event(Type.values()[typeOrd], seq, time, booking, user, room, start, end, amount, method));
+                pos += RECORD_HEADER + len;
+            }
+            position = pos;
+            return pos;
+        }
+
+        // Zeroes everything after end: a torn record, and any unsynced records behind it, must not
+        // line up with the next append and be read back as valid
+        void truncate(int end) {
+            int limit = buffer.capacity();
+            boolean dirty = false;
+            int i = end;
+            for (; i < limit && (i & 7) != 0; i++) {
+                if (buffer.get(i) != 0) { buffer.put(i, (byte) 0); dirty = true; }
+            }
+            for (; i + 8 <= limit; i += 8) {
+                if (buffer.getLong(i) != 0) { buffer.putLong(i, 0); dirty = true; }
+            }
+            for (; i < limit; i++) {
+                if (buffer.get(i) != 0) { buffer.put(i, (byte) 0); dirty = true; }
+            }
+            if (dirty) buffer.force();
+            position = end;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            channel.close();
+        }
+    }
+}
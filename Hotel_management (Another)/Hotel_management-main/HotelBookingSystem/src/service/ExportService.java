@@ -0,0 +1,185 @@
+package service;
+
+import db.Database;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.time.LocalDate;
+
+/**
+ * Exports bookings or payments to CSV or JSON for accounting. Rows are streamed
+ * from a forward-only MySQL result set (fetch size Integer.MIN_VALUE, so the
+ * driver hands over one row at a time instead of buffering the table) straight
+ * into a buffered writer, so memory use does not grow with the table.
+ *
+ * The file is written next to the target and moved into place when complete;
+ * an interrupted or failed export leaves no partial file behind.
+ */
+public class ExportService {
+    private static final ExportService INSTANCE = new ExportService();
+
+    public enum Dataset {
+        // bookings are filtered on start_date
+        BOOKINGS("SELECT b.id, b.user_id, u.username, b.room_id, r.room_number, b.start_date, b.end_date, b.status, b.payment_status, b.created_at " +
+                "FROM bookings b JOIN users u ON b.user_id=u.id JOIN rooms r ON b.room_id=r.id", "b.start_date", "b.id"),
+        // payments are filtered on created_at (uses idx_payments_created)
+        PAYMENTS("SELECT p.id, p.user_id, u.username, p.booking_id, p.amount, p.status, p.payment_method, p.created_at " +
+                "FROM payments p JOIN users u ON p.user_id=u.id", "p.created_at", "p.created_at, p.id");
+
+        final String select;
+        final String dateColumn;
+        final String orderBy;
+
+        Dataset(String select, String dateColumn, String orderBy) {
+            this.select = select;
+            this.dateColumn = dateColumn;
+            this.orderBy = orderBy;
+        }
+    }
+
+    public enum Format { CSV, JSON }
+
+    public static ExportService get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Writes every row of dataset whose date falls in [from, to] (either bound may
+     * be null) to file and returns the number of rows written.
+     */
+    public long export(Dataset dataset, Format format, LocalDate from, LocalDate to, Path file) throws Exception {
+        StringBuilder sql = new StringBuilder(dataset.select);
+        if (from != null) sql.append(" WHERE ").append(dataset.dateColumn).append(">=?");
+        if (to != null) sql.append(from != null ? " AND " : " WHERE ").append(dataset.dateColumn).append("<?");
+        sql.append(" ORDER BY ").append(dataset.orderBy);
+
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".part");
+        try {
+            long rows;
+            try (Connection conn = Database.connect();
+                 PreparedStatement ps = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(Integer.MIN_VALUE);
+                int i = 1;
+                if (from != null) ps.setDate(i++, Date.valueOf(from));
+                if (to != null) ps.setDate(i, Date.valueOf(to.plusDays(1)));
+                try (ResultSet rs = ps.executeQuery();
+                     BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    rows = format == Format.CSV ? writeCsv(rs, out) : writeJson(rs, out);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            return rows;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static long writeCsv(ResultSet rs, Writer out) throws Exception {
+        ResultSetMetaData md = rs.getMetaData();
+        int cols = md.getColumnCount();
+        for (int c = 1; c <= cols; c++) {
+            if (c > 1) out.write(',');
+            csv(out, md.getColumnLabel(c));
+        }
+        out.write('\n');
+        long rows = 0;
+        while (rs.next()) {
+            for (int c = 1; c <= cols; c++) {
+                if (c > 1) out.write(',');
+                String v = rs.getString(c);
+                if (v != null) csv(out, v);
+            }
+            out.write('\n');
+            if ((++rows & 1023) == 0) checkInterrupted();
+        }
+        return rows;
+    }
+
+    private static long writeJson(ResultSet rs, Writer out) throws Exception {
+        ResultSetMetaData md = rs.getMetaData();
+        int cols = md.getColumnCount();
+        String[] keys = new String[cols + 1];
+        boolean[] numeric = new boolean[cols + 1];
+        for (int c = 1; c <= cols; c++) {
+            keys[c] = md.getColumnLabel(c);
+            numeric[c] = isNumeric(md.getColumnType(c));
+        }
+        out.write('[');
+        long rows = 0;
+        while (rs.next()) {
+            out.write(rows == 0 ? "\n{" : ",\n{");
+            for (int c = 1; c <= cols; c++) {
+                if (c > 1) out.write(',');
+                json(out, keys[c]);
+                out.write(':');
+                String v = rs.getString(c);
+                if (v == null) out.write("null");
+                else if (numeric[c]) out.write(v);
+                else json(out, v);
+            }
+            out.write('}');
+            if ((++rows & 1023) == 0) checkInterrupted();
+        }
+        out.write("\n]\n");
+        return rows;
+    }
+
+    // The dashboard cancels exports by interrupting the worker when its window closes
+    private static void checkInterrupted() throws InterruptedException {
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedException("Export cancelled");
+    }
+
+    private static boolean isNumeric(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT: case Types.SMALLINT: case Types.INTEGER: case Types.BIGINT:
+            case Types.DECIMAL: case Types.NUMERIC: case Types.REAL: case Types.FLOAT: case Types.DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void csv(Writer out, String v) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < v.length() && !quote; i++) {
+            char c = v.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(v);
+            return;
+        }
+        out.write('"');
+        out.write(v.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static void json(Writer out, String v) throws IOException {
+        out.write('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) out.write(String.format("\\u%04x", (int) c));
+                    else out.write(c);
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,154 @@
+package service;
+
+import model.Booking;
+import model.Money;
+import model.Payment;
+import model.Room;
+import repo.Repositories;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records payments against bookings. Shared by the Swing dashboards and the
+ * HTTP API so both compute the amount and update payment_status the same way.
+ *
+ * Each payment attempt carries an idempotency key that the caller reuses
+ * when it retries that attempt (after a timeout, say). Keys are unique in the
+ * payments table, so an attempt is recorded at most once however often it is
+ * retried, and a booking is locked while it is paid, so two clerks cannot
+ * both pay it. Recently used keys are kept in a small LRU cache so retries
+ * are answered without a database round trip. A replayed attempt returns the
+ * original payment and changes nothing.
+ */
+public class PaymentService {
+    private static final PaymentService INSTANCE = new PaymentService();
+
+    // the payments column is VARCHAR(64)
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int DEDUPE_CACHE_SIZE = Integer.getInteger("hotel.payments.dedupeCacheSize", 10_000);
+
+    // idempotency key -> payment stored under it, least recently used first
+    private final Map<String, Payment> recent = Collections.synchronizedMap(new LinkedHashMap<String, Payment>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Payment> eldest) {
+            return size() > DEDUPE_CACHE_SIZE;
+        }
+    });
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+
+    public static PaymentService get() {
+        return INSTANCE;
+    }
+
+    public static class Quote {
+        private final int bookingId;
+        private final int userId;
+        private final long nights;
+        private final Money total;
+        private final String paymentStatus;
+
+        public Quote(int bookingId, int userId, long nights, Money total, String paymentStatus) {
+            this.bookingId = bookingId;
+            this.userId = userId;
+            this.nights = nights;
+            this.total = total;
+            this.paymentStatus = paymentStatus;
+        }
+
+        public int getBookingId() { return bookingId; }
+        public int getUserId() { return userId; }
+        public long getNights() { return nights; }
+        public Money getTotal() { return total; }
+        public String getPaymentStatus() { return paymentStatus; }
+        public boolean isPaid() { return "PAID".equalsIgnoreCase(paymentStatus); }
+    }
+
+    // Amount due for a booking from the room's rate plan (at least one night)
+    public Quote quote(int bookingId) throws Exception {
+        Repositories repos = Repositories.get();
+        Booking booking = repos.bookings().find(bookingId);
+        if (booking == null) throw new IllegalArgumentException("Booking not found");
+        Room room = repos.rooms().find(booking.getRoomId());
+        if (room == null) throw new IllegalArgumentException("Room " + booking.getRoomId() + " not found");
+        LocalDate s = booking.getStartDate();
+        LocalDate e = booking.getEndDate();
+        if (!e.isAfter(s)) e = s.plusDays(1);
+        Money total = PricingEngine.get().quote(room.getType(), room.getPrice(), s, e);
+        return new Quote(bookingId, booking.getUserId(), ChronoUnit.DAYS.between(s, e), total, booking.getPaymentStatus());
+    }
+
+    public static class Receipt {
+        private final Payment payment;
+        private final boolean replayed;
+
+        Receipt(Payment payment, boolean replayed) {
+            this.payment = payment;
+            this.replayed = replayed;
+        }
+
+        public Payment getPayment() { return new Payment(payment); }
+        public int getPaymentId() { return payment.getId(); }
+        // true if the key had already been used and nothing new was stored
+        public boolean isReplayed() { return replayed; }
+    }
+
+    // A fresh key for one payment attempt; keep it for retries of that attempt
+    public static String newIdempotencyKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Stores a PAID payment and marks the booking paid in one transaction, at
+     * most once per idempotency key (null for a one-off key). Throws
+     * IllegalStateException if the booking is cancelled or already paid by
+     * another attempt, and IllegalArgumentException if the key was used for
+     * a different booking.
+     */
+    public Receipt pay(int userId, int bookingId, Money amount, String method, String googlePayNumber, String idempotencyKey) throws Exception {
+        if (method == null || method.isEmpty()) throw new IllegalArgumentException("Payment method required");
+        if (amount.isNegative()) throw new IllegalArgumentException("Amount must not be negative");
+        String key = idempotencyKey == null ? newIdempotencyKey() : idempotencyKey.trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) throw new IllegalArgumentException("Idempotency key must be 1-" + MAX_KEY_LENGTH + " characters");
+        Payment seen = recent.get(key);
+        if (seen != null) {
+            cacheHits.increment();
+            return replay(seen, userId, bookingId);
+        }
+        Payment payment = new Payment(0, userId, bookingId, amount, "PAID", method, "GOOGLEPAY".equals(method) ? googlePayNumber : null, null);
+        payment.setIdempotencyKey(key);
+        Payment stored = Repositories.get().payments().pay(payment);
+        recent.put(key, stored);
+        if (stored != payment) return replay(stored, userId, bookingId);
+        AnalyticsEngine.get().invalidate();
+        EventJournal.record(EventJournal.Event.paid(bookingId, userId, amount, method));
+        EventBus.get().publish(EventBus.Event.paid(bookingId, userId, stored.getId()));
+        return new Receipt(stored, false);
+    }
+
+    private Receipt replay(Payment earlier, int userId, int bookingId) {
+        if (earlier.getBookingId() != bookingId || earlier.getUserId() != userId) {
+            throw new IllegalArgumentException("Idempotency key was already used for another payment");
+        }
+        replays.increment();
+        return new Receipt(earlier, true);
+    }
+
+    // attempts answered with an earlier payment, and how many of those the cache answered
+    public long getReplayCount() { return replays.sum(); }
+    public long getCacheHitCount() { return cacheHits.sum(); }
+
+    // Marks a booking paid without recording a payment row (owner "Mark Paid"); cancelled bookings stay cancelled
+    public void markPaid(int bookingId) throws Exception {
+        if (!Repositories.get().bookings().markPaid(bookingId)) {
+            throw new IllegalStateException("Booking " + bookingId + " does not exist or was cancelled");
+        }
+        EventJournal.record(EventJournal.Event.markedPaid(bookingId));
+        EventBus.get().publish(EventBus.Event.paid(bookingId, 0, 0));
+    }
+}
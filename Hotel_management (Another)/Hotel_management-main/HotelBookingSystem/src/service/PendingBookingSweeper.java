@@ -0,0 +1,143 @@
+package service;
+
+import db.LatencyHistogram;
+import model.Booking;
+import repo.BookingRepository;
+import repo.Repositories;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cancels bookings whose payment is still PENDING after the hold time (the
+ * customer closed the payment dialog) so their dates go back on sale. Only
+ * bookings made by customers (dashboard or API) carry a hold; owner spot
+ * bookings, imports and older unpaid rows are settled by hand and never expire.
+ *
+ * Sweeps run on one low-priority daemon thread. Each sweep expires bookings in
+ * small batches, oldest first along idx_bookings_hold, one short transaction
+ * per batch; rows a payment is holding are skipped rather than waited for, and
+ * the sweeper pauses between batches so it never keeps a pooled connection or
+ * row locks away from interactive requests for long.
+ *
+ * -Dhotel.sweeper.enabled (true), .holdMinutes (30), .intervalSeconds (60),
+ * .batchSize (200) and .batchPauseMs (50) tune it.
+ */
+public class PendingBookingSweeper {
+    private static final PendingBookingSweeper INSTANCE = new PendingBookingSweeper(
+            Duration.ofMinutes(Long.getLong("hotel.sweeper.holdMinutes", 30)),
+            Integer.getInteger("hotel.sweeper.batchSize", 200),
+            Long.getLong("hotel.sweeper.batchPauseMs", 50));
+    private static final long INTERVAL_SECONDS = Long.getLong("hotel.sweeper.intervalSeconds", 60);
+
+    private final Duration hold;
+    private final int batchSize;
+    private final long batchPauseMs;
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong sweeps = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong roomsReclaimed = new AtomicLong();
+    private final AtomicLong nightsReclaimed = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final LatencyHistogram sweepLatency = new LatencyHistogram();
+
+    public static PendingBookingSweeper get() {
+        return INSTANCE;
+    }
+
+    public PendingBookingSweeper(Duration hold, int batchSize, long batchPauseMs) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive");
+        this.hold = hold;
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+    }
+
+    // Schedules sweeps unless -Dhotel.sweeper.enabled=false; later calls do nothing
+    public synchronized void start() {
+        if (scheduler != null || !Boolean.parseBoolean(System.getProperty("hotel.sweeper.enabled", "true"))) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pending-booking-sweeper");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                sweep();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ex) {
+                failures.incrementAndGet();
+                System.err.println("Pending booking sweep failed: " + ex.getMessage());
+            }
+        }, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // When a customer booking made now stops holding its dates if still unpaid
+    public LocalDateTime holdUntil(LocalDateTime now) {
+        return now.plus(hold);
+    }
+
+    public synchronized void stop() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /** Runs one sweep now and returns how many bookings it expired. */
+    public int sweep() throws Exception {
+        long t0 = System.nanoTime();
+        LocalDateTime cutoff = LocalDateTime.now();
+        BookingRepository bookings = Repositories.get().bookings();
+        AvailabilityIndex index = AvailabilityIndex.get();
+        Set<Integer> rooms = new HashSet<>();
+        int count = 0;
+        long nights = 0;
+        while (true) {
+            List<Booking> batch = bookings.expirePending(cutoff, batchSize);
+            List<EventJournal.Event> events = new ArrayList<>(batch.size());
+            List<EventBus.Event> changes = new ArrayList<>(batch.size());
+            for (Booking b : batch) {
+                index.remove(b.getId());
+                rooms.add(b.getRoomId());
+                nights += ChronoUnit.DAYS.between(b.getStartDate(), b.getEndDate());
+                events.add(EventJournal.Event.cancelled(b.getId()));
+                changes.add(EventBus.Event.cancelled(b.getId(), b.getUserId(), b.getRoomId()));
+            }
+            EventJournal.record(events);
+            EventBus.get().publish(changes);
+            count += batch.size();
+            if (batch.size() < batchSize) break;
+            Thread.sleep(batchPauseMs);
+        }
+        if (count > 0) AnalyticsEngine.get().invalidate();
+        long nanos = System.nanoTime() - t0;
+        sweeps.incrementAndGet();
+        expired.addAndGet(count);
+        roomsReclaimed.addAndGet(rooms.size());
+        nightsReclaimed.addAndGet(nights);
+        sweepLatency.recordNanos(nanos);
+        if (count > 0) {
+            System.out.println("Expired " + count + " unpaid booking(s) on " + rooms.size() + " room(s), " + nights + " room-nights, in " + nanos / 1_000_000 + " ms");
+        }
+        return count;
+    }
+
+    public long getSweeps() { return sweeps.get(); }
+    public long getExpired() { return expired.get(); }
+    // distinct rooms freed, summed over sweeps
+    public long getRoomsReclaimed() { return roomsReclaimed.get(); }
+    public long getNightsReclaimed() { return nightsReclaimed.get(); }
+    public long getFailures() { return failures.get(); }
+    public double getMeanSweepMicros() { return sweepLatency.getMeanMicros(); }
+    public long getMaxSweepMicros() { return sweepLatency.getMaxMicros(); }
+}
@@ -0,0 +1,281 @@
+package service;
+
+import model.Money;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes stay totals from a room's nightly base price and the rate plan for
+ * its type. All arithmetic is in long cents and basis points (1/100 of a
+ * percent); a night's rate is base * weekday/weekend factor * seasonal factor,
+ * and a length-of-stay discount comes off the total.
+ *
+ * Each room type gets a table of prefix sums of its nightly factors for a
+ * window around today, so a quote of any length is two array reads and a
+ * multiply; stays outside the window are summed night by night, still without
+ * allocating.
+ *
+ * Plans are read from the file named by -Dhotel.rates (default
+ * rates.properties in the working directory). Without one, every night costs
+ * the base price, which is what booking has always charged:
+ *
+ *   weekendPercent=120            # Friday and Saturday nights
+ *   weekdayPercent=100
+ *   season.summer=06-15..08-31:125
+ *   season.holidays=12-20..01-05:150
+ *   stayDiscount.7=10             # 7+ nights: 10% off
+ *   stayDiscount.28=20
+ *   type.Suite.weekendPercent=130 # per-type override of any key above
+ */
+public class PricingEngine {
+    static final int BP = 10_000;
+    private static final int TABLE_DAYS_BEFORE = 366;
+    private static final int TABLE_DAYS_AFTER = 3 * 366;
+
+    private static volatile PricingEngine instance;
+
+    private final RatePlan defaultPlan;
+    // lower-case room type -> plan; types without an entry use defaultPlan
+    private final Map<String, RatePlan> plans = new ConcurrentHashMap<>();
+    private final Map<String, RateTable> tables = new ConcurrentHashMap<>();
+    private final int tableFirstDay;
+    private final int tableDays;
+
+    public static PricingEngine get() {
+        PricingEngine p = instance;
+        if (p != null) return p;
+        synchronized (PricingEngine.class) {
+            if (instance == null) {
+                try {
+                    instance = new PricingEngine(loadConfig());
+                } catch (IllegalArgumentException ex) {
+                    System.err.println("Invalid rate plans, charging base prices: " + ex.getMessage());
+                    instance = new PricingEngine(new Properties());
+                }
+            }
+            return instance;
+        }
+    }
+
+    public PricingEngine(Properties config) {
+        this(config, LocalDate.now());
+    }
+
+    public PricingEngine(Properties config, LocalDate today) {
+        this.defaultPlan = RatePlan.parse(config, "", RatePlan.FLAT);
+        Map<String, Properties> perType = new TreeMap<>();
+        for (String key : config.stringPropertyNames()) {
+            if (!key.startsWith("type.")) continue;
+            int dot = key.indexOf('.', 5);
+            if (dot < 0) continue;
+            perType.computeIfAbsent(key.substring(5, dot), k -> new Properties()).setProperty(key.substring(dot + 1), config.getProperty(key));
+        }
+        for (Map.Entry<String, Properties> e : perType.entrySet()) {
+            plans.put(e.getKey().toLowerCase(Locale.ROOT), RatePlan.parse(e.getValue(), "type." + e.getKey() + ".", defaultPlan));
+        }
+        this.tableFirstDay = (int) today.toEpochDay() - TABLE_DAYS_BEFORE;
+        this.tableDays = TABLE_DAYS_BEFORE + TABLE_DAYS_AFTER;
+    }
+
+    private static Properties loadConfig() {
+        Properties p = new Properties();
+        Path file = Paths.get(System.getProperty("hotel.rates", "rates.properties"));
+        if (Files.isRegularFile(file)) {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                p.load(in);
+                System.out.println("Loaded rate plans from " + file.toAbsolutePath());
+            } catch (IOException | RuntimeException ex) {
+                System.err.println("Could not read rate plans from " + file + ", charging base prices: " + ex.getMessage());
+                p.clear();
+            }
+        }
+        return p;
+    }
+
+    /** Total for the nights [start, end) of a room of the given type. */
+    public Money quote(String roomType, Money nightlyBase, LocalDate start, LocalDate end) {
+        return Money.ofCents(quoteCents(roomType, nightlyBase.getCents(), (int) start.toEpochDay(), (int) end.toEpochDay()));
+    }
+
+    public long quoteCents(String roomType, long baseCents, int startDay, int endDay) {
+        int nights = endDay - startDay;
+        if (nights <= 0) throw new IllegalArgumentException("End date must be after start date");
+        RatePlan plan = planFor(roomType);
+        long factorBp;
+        int from = startDay - tableFirstDay, to = endDay - tableFirstDay;
+        if (from >= 0 && to <= tableDays) {
+            long[] prefix = tableFor(roomType, plan).prefixBp;
+            factorBp = prefix[to] - prefix[from];
+        } else {
+            factorBp = 0;
+            for (int d = startDay; d < endDay; d++) factorBp += plan.nightBp(d);
+        }
+        long gross = roundBp(Math.multiplyExact(baseCents, factorBp));
+        int discountBp = plan.stayDiscountBp(nights);
+        return discountBp == 0 ? gross : gross - roundBp(Math.multiplyExact(gross, discountBp));
+    }
+
+    // x / BP rounded half away from zero
+    private static long roundBp(long x) {
+        return x >= 0 ? (x + BP / 2) / BP : -((-x + BP / 2) / BP);
+    }
+
+    private RatePlan planFor(String roomType) {
+        if (roomType == null || plans.isEmpty()) return defaultPlan;
+        return plans.getOrDefault(roomType.toLowerCase(Locale.ROOT), defaultPlan);
+    }
+
+    private RateTable tableFor(String roomType, RatePlan plan) {
+        String key = plan == defaultPlan || roomType == null ? "" : roomType.toLowerCase(Locale.ROOT);
+        return tables.computeIfAbsent(key, k -> new RateTable(plan, tableFirstDay, tableDays));
+    }
+
+    // prefixBp[i] = sum of nightly factors for the i nights starting at firstDay
+    static final class RateTable {
+        final long[] prefixBp;
+
+        RateTable(RatePlan plan, int firstDay, int days) {
+            prefixBp = new long[days + 1];
+            for (int i = 0; i < days; i++) prefixBp[i + 1] = prefixBp[i] + plan.nightBp(firstDay + i);
+        }
+    }
+
+    static final class RatePlan {
+        static final RatePlan FLAT = new RatePlan(new int[]{BP, BP, BP, BP, BP, BP, BP}, new int[0], new int[0], new int[0], new int[0], new int[0]);
+
+        // nightly factor by day of week, Monday = 0
+        final int[] dayBp;
+        // seasons as inclusive month*100+day ranges (may wrap the new year); first match wins
+        final int[] seasonFrom;
+        final int[] seasonTo;
+        final int[] seasonBp;
+        // ascending minimum nights -> discount
+        final int[] stayNights;
+        final int[] stayDiscountBp;
+
+        RatePlan(int[] dayBp, int[] seasonFrom, int[] seasonTo, int[] seasonBp, int[] stayNights, int[] stayDiscountBp) {
+            this.dayBp = dayBp;
+            this.seasonFrom = seasonFrom;
+            this.seasonTo = seasonTo;
+            this.seasonBp = seasonBp;
+            this.stayNights = stayNights;
+            this.stayDiscountBp = stayDiscountBp;
+        }
+
+        // Keys not present in props are inherited from parent
+        static RatePlan parse(Properties props, String prefix, RatePlan parent) {
+            int[] day = parent.dayBp.clone();
+            String weekday = props.getProperty("weekdayPercent");
+            if (weekday != null) for (int d = 0; d < 7; d++) if (d != 4 && d != 5) day[d] = percentToBp(prefix + "weekdayPercent", weekday);
+            String weekend = props.getProperty("weekendPercent");
+            if (weekend != null) day[4] = day[5] = percentToBp(prefix + "weekendPercent", weekend);
+
+            List<int[]> seasons = new ArrayList<>();
+            TreeMap<Integer, Integer> stays = new TreeMap<>();
+            for (String key : new TreeSet<>(props.stringPropertyNames())) {
+                String v = props.getProperty(key).trim();
+                if (key.startsWith("season.")) {
+                    seasons.add(parseSeason(prefix + key, v));
+                } else if (key.startsWith("stayDiscount.")) {
+                    int nights;
+                    try {
+                        nights = Integer.parseInt(key.substring("stayDiscount.".length()));
+                    } catch (NumberFormatException ex) {
+                        throw new IllegalArgumentException(prefix + key + ": expected stayDiscount.<minNights>");
+                    }
+                    stays.put(nights, percentToBp(prefix + key, v));
+                }
+            }
+            int[] sFrom = parent.seasonFrom, sTo = parent.seasonTo, sBp = parent.seasonBp;
+            if (!seasons.isEmpty()) {
+                sFrom = new int[seasons.size()]; sTo = new int[seasons.size()]; sBp = new int[seasons.size()];
+                for (int i = 0; i < seasons.size(); i++) { sFrom[i] = seasons.get(i)[0]; sTo[i] = seasons.get(i)[1]; sBp[i] = seasons.get(i)[2]; }
+            }
+            int[] nights = parent.stayNights, disc = parent.stayDiscountBp;
+            if (!stays.isEmpty()) {
+                nights = new int[stays.size()]; disc = new int[stays.size()];
+                int i = 0;
+                for (Map.Entry<Integer, Integer> e : stays.entrySet()) { nights[i] = e.getKey(); disc[i++] = e.getValue(); }
+            }
+            return new RatePlan(day, sFrom, sTo, sBp, nights, disc);
+        }
+
+        // "06-15..08-31:125" -> {615, 831, 12500}
+        private static int[] parseSeason(String key, String v) {
+            int colon = v.lastIndexOf(':');
+            int dots = v.indexOf("..");
+            if (colon < 0 || dots < 0 || dots > colon) throw new IllegalArgumentException(key + ": expected MM-DD..MM-DD:percent");
+            return new int[]{monthDay(key, v.substring(0, dots)), monthDay(key, v.substring(dots + 2, colon)), percentToBp(key, v.substring(colon + 1))};
+        }
+
+        private static int monthDay(String key, String md) {
+            String[] parts = md.trim().split("-");
+            try {
+                int m = Integer.parseInt(parts[0]), d = Integer.parseInt(parts[1]);
+                if (parts.length != 2 || m < 1 || m > 12 || d < 1 || d > 31) throw new NumberFormatException();
+                return m * 100 + d;
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException(key + ": bad month-day '" + md + "'");
+            }
+        }
+
+        private static int percentToBp(String key, String percent) {
+            try {
+                return new BigDecimal(percent.trim()).movePointRight(2).intValueExact();
+            } catch (ArithmeticException | NumberFormatException ex) {
+                throw new IllegalArgumentException(key + ": bad percentage '" + percent + "'");
+            }
+        }
+
+        long nightBp(int epochDay) {
+            int dow = Math.floorMod(epochDay + 3, 7); // 1970-01-01 was a Thursday
+            long bp = dayBp[dow];
+            if (seasonBp.length > 0) {
+                int md = monthDayOf(epochDay);
+                for (int i = 0; i < seasonBp.length; i++) {
+                    boolean in = seasonFrom[i] <= seasonTo[i]
+                            ? md >= seasonFrom[i] && md <= seasonTo[i]
+                            : md >= seasonFrom[i] || md <= seasonTo[i];
+                    if (in) {
+                        bp = (bp * seasonBp[i] + BP / 2) / BP;
+                        break;
+                    }
+                }
+            }
+            return bp;
+        }
+
+        int stayDiscountBp(int nights) {
+            int disc = 0;
+            for (int i = 0; i < stayNights.length && stayNights[i] <= nights; i++) disc = stayDiscountBp[i];
+            return disc;
+        }
+
+        // month*100+day of an epoch day without allocating a LocalDate (civil-from-days)
+        static int monthDayOf(int epochDay) {
+            long z = epochDay + 719468L;
+            long era = Math.floorDiv(z, 146097);
+            long doe = z - era * 146097;
+            long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+            long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+            long mp = (5 * doy + 2) / 153;
+            long d = doy - (153 * mp + 2) / 5 + 1;
+            long m = mp < 10 ? mp + 3 : mp - 9;
+            return (int) (m * 100 + d);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package service;
+
+import repo.Repositories;
+import repo.ReviewRepository;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-room review aggregates (count, sum and a 1-5 star histogram) so room
+ * listings and searches can show ratings without touching the reviews table.
+ *
+ * Each room's aggregate is an immutable value swapped in on every review, so
+ * readers never lock and a new review costs O(1); writers share one lock.
+ * The store is reconciled from the reviews table when first opened; reviews
+ * recorded while that scan runs are replayed on top of it if the scan did
+ * not already count them. Reviews stored by other processes arrive over the
+ * EventBus relay.
+ */
+public class RatingStore {
+    private static volatile RatingStore instance;
+    // set while get() is reconciling, so reviews stored meanwhile are not lost
+    private static volatile RatingStore opening;
+
+    private final Map<Integer, RoomRating> rooms = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    // reviews recorded while a reconcile is reading the table: {reviewId, roomId, rating}
+    private List<int[]> pending;
+    // highest review id the last reconcile counted; remote reviews up to it are already in the aggregates
+    private volatile int reconciledUpTo;
+
+    public static RatingStore get() throws Exception {
+        RatingStore store = instance;
+        if (store != null) return store;
+        synchronized (RatingStore.class) {
+            if (instance == null) {
+                RatingStore fresh = new RatingStore();
+                opening = fresh;
+                // reviews stored by other processes; subscribed before the scan so ones made during it are replayed like local ones
+                Runnable unsubscribe = EventBus.get().subscribeRemote(e -> {
+                    if (e.getType() == EventBus.Type.REVIEWED && e.getReviewId() > fresh.reconciledUpTo) fresh.record(e.getReviewId(), e.getRoomId(), e.getRating());
+                });
+                try {
+                    fresh.reconcile(Repositories.get().reviews());
+                    instance = fresh;
+                } catch (Exception ex) {
+                    unsubscribe.run();
+                    throw ex;
+                } finally {
+                    opening = null;
+                }
+            }
+            return instance;
+        }
+    }
+
+    // The shared store if something has already opened (or is opening) it, else null (no database access)
+    public static RatingStore ifLoaded() {
+        RatingStore store = instance;
+        return store != null ? store : opening;
+    }
+
+    /** Aggregate of one room's reviews; every count is zero for a room without reviews. */
+    public static final class RoomRating {
+        static final RoomRating EMPTY = new RoomRating(new int[5]);
+
+        // stars[i] = reviews with a rating of i + 1
+        private final int[] stars;
+        private final int count;
+        private final long sum;
+
+        RoomRating(int[] stars) {
+            this.stars = stars;
+            int c = 0;
+            long s = 0;
+            for (int i = 0; i < stars.length; i++) {
+                c += stars[i];
+                s += (long) stars[i] * (i + 1);
+            }
+            this.count = c;
+            this.sum = s;
+        }
+
+        RoomRating plus(int rating) {
+            int[] next = stars.clone();
+            next[rating - 1]++;
+            return new RoomRating(next);
+        }
+
+        public int getCount() { return count; }
+        public long getSum() { return sum; }
+        public double getAverage() { return count == 0 ? 0 : (double) sum / count; }
+        // reviews with exactly this many stars (1-5)
+        public int getStars(int rating) { return stars[rating - 1]; }
+
+        // "4.3 (12)", or "-" without reviews
+        @Override
+        public String toString() {
+            return count == 0 ? "-" : String.format("%.1f (%d)", getAverage(), count);
+        }
+    }
+
+    public RoomRating of(int roomId) {
+        return rooms.getOrDefault(roomId, RoomRating.EMPTY);
+    }
+
+    public double averageOf(int roomId) {
+        RoomRating r = rooms.get(roomId);
+        return r == null ? 0 : r.getAverage();
+    }
+
+    /** Counts a stored review; ratings are clamped the same way ReviewService stores them. */
+    public void record(int reviewId, int roomId, int rating) {
+        int stars = ReviewService.clampRating(rating);
+        synchronized (lock) {
+            if (pending != null) pending.add(new int[]{reviewId, roomId, stars});
+            rooms.compute(roomId, (k, cur) -> (cur == null ? RoomRating.EMPTY : cur).plus(stars));
+        }
+    }
+
+    /**
+     * Replaces every aggregate with the counts in the reviews table and
+     * returns how many rooms had drifted from them.
+     */
+    public int reconcile(ReviewRepository reviews) throws Exception {
+        synchronized (lock) {
+            pending = new ArrayList<>();
+        }
+        Map<Integer, int[]> loaded = new HashMap<>();
+        int maxId;
+        try {
+            maxId = reviews.maxId();
+            for (int[] c : reviews.ratingCounts(maxId)) {
+                int stars = ReviewService.clampRating(c[1]);
+                loaded.computeIfAbsent(c[0], k -> new int[5])[stars - 1] += c[2];
+            }
+        } catch (Exception ex) {
+            synchronized (lock) {
+                pending = null;
+            }
+            throw ex;
+        }
+        synchronized (lock) {
+            // reviews newer than the scan were recorded while it ran
+            for (int[] p : pending) if (p[0] > maxId) loaded.computeIfAbsent(p[1], k -> new int[5])[p[2] - 1]++;
+            pending = null;
+            reconciledUpTo = maxId;
+            int drifted = 0;
+            for (Map.Entry<Integer, int[]> e : loaded.entrySet()) {
+                RoomRating fresh = new RoomRating(e.getValue());
+                RoomRating old = rooms.put(e.getKey(), fresh);
+                if (old == null || old.count != fresh.count || old.sum != fresh.sum) drifted++;
+            }
+            for (Integer roomId : new ArrayList<>(rooms.keySet())) {
+                if (!loaded.containsKey(roomId)) {
+                    rooms.remove(roomId);
+                    drifted++;
+                }
+            }
+            return drifted;
+        }
+    }
+}
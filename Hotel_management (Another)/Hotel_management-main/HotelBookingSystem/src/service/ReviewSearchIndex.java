@@ -0,0 +1,371 @@
+package service;
+
+import db.Database;
+import db.SchemaInfo;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Full-text search over review text for the owner's Reviews tab.
+ *
+ * Text is split into lower-case words, common words are dropped and a light
+ * suffix stripper folds "rooms"/"room", "noisy"/"noise", "cleaned"/"clean"
+ * together. Each term keeps a posting list of (document, term frequency) in
+ * document order, and queries are ranked with BM25.
+ *
+ * The index is saved to -Dhotel.reviewIndex (default review-index.bin in the
+ * working directory) on shutdown. At startup it is read back and only reviews
+ * with a higher id are fetched from MySQL; new reviews are added as
+ * ReviewService stores them. The reviews table stays the source of truth: a
+ * missing, unreadable or stale file just means a full rebuild.
+ */
+public class ReviewSearchIndex {
+    private static final int MAGIC = 0x52564958; // "RVIX"
+    private static final int FORMAT = 1;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "had", "has", "have", "he", "her",
+            "his", "i", "if", "in", "into", "is", "it", "its", "me", "my", "of", "on", "or", "our", "she", "so",
+            "that", "the", "their", "them", "there", "they", "this", "to", "too", "us", "very", "was", "we", "were",
+            "with", "you", "your"));
+
+    private static volatile ReviewSearchIndex instance;
+
+    private final Path file;
+    // document number -> review id and length in terms
+    private int[] docReview = new int[256];
+    private int[] docLength = new int[256];
+    private int docs;
+    private long totalLength;
+    private final Map<Integer, Integer> docByReview = new HashMap<>();
+    private final Map<String, Postings> terms = new HashMap<>();
+    private int lastReviewId;
+    private boolean dirty;
+
+    public static class Hit {
+        private final int reviewId;
+        private final double score;
+
+        Hit(int reviewId, double score) {
+            this.reviewId = reviewId;
+            this.score = score;
+        }
+
+        public int getReviewId() { return reviewId; }
+        public double getScore() { return score; }
+    }
+
+    public static ReviewSearchIndex get() throws Exception {
+        ReviewSearchIndex idx = instance;
+        if (idx != null) return idx;
+        synchronized (ReviewSearchIndex.class) {
+            if (instance == null) {
+                ReviewSearchIndex fresh = new ReviewSearchIndex(Paths.get(System.getProperty("hotel.reviewIndex", "review-index.bin")));
+                fresh.open();
+                Runtime.getRuntime().addShutdownHook(new Thread(fresh::saveQuietly, "review-index-save"));
+                instance = fresh;
+            }
+            return instance;
+        }
+    }
+
+    // The shared index if something has already loaded it, else null (no database access)
+    public static ReviewSearchIndex ifLoaded() {
+        return instance;
+    }
+
+    public ReviewSearchIndex(Path file) {
+        this.file = file;
+    }
+
+    // Loads the saved index if there is one and catches up with reviews added since
+    private void open() throws Exception {
+        long t0 = System.nanoTime();
+        boolean loaded = false;
+        if (file != null && Files.isRegularFile(file)) {
+            try {
+                loaded = read();
+            } catch (IOException | RuntimeException ex) {
+                System.err.println("Could not read review index " + file + ", rebuilding: " + ex.getMessage());
+            }
+            if (!loaded) clear();
+        }
+        int fromFile = docs;
+        try (Connection conn = Database.connect()) {
+            if (loaded && maxReviewId(conn) < lastReviewId) {
+                // reviews were removed or the database was reset
+                clear();
+                fromFile = 0;
+            }
+            catchUp(conn);
+        }
+        System.out.printf("Review index: %d reviews (%d from %s) in %d ms%n", docs, fromFile, file, (System.nanoTime() - t0) / 1_000_000);
+        if (dirty) saveQuietly();
+    }
+
+    private static int maxReviewId(Connection conn) throws Exception {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM reviews"); ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void catchUp(Connection conn) throws Exception {
+        SchemaInfo schema = SchemaInfo.get();
+        String textColumn = schema.hasColumn("reviews", "review_text") ? "review_text" : schema.hasColumn("reviews", "comment") ? "comment" : null;
+        if (textColumn == null) return;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id, " + textColumn + " FROM reviews WHERE id>? ORDER BY id",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setInt(1, lastReviewId);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) add(rs.getInt(1), rs.getString(2));
+            }
+        }
+    }
+
+    /** Indexes one review; a review id that is already indexed is ignored. */
+    public synchronized void add(int reviewId, String text) {
+        if (docByReview.containsKey(reviewId)) return;
+        int doc = docs++;
+        if (doc == docReview.length) {
+            docReview = Arrays.copyOf(docReview, doc * 2);
+            docLength = Arrays.copyOf(docLength, doc * 2);
+        }
+        Map<String, Integer> tf = new HashMap<>();
+        int length = 0;
+        for (String term : terms(text)) {
+            tf.merge(term, 1, Integer::sum);
+            length++;
+        }
+        for (Map.Entry<String, Integer> e : tf.entrySet()) terms.computeIfAbsent(e.getKey(), k -> new Postings()).add(doc, e.getValue());
+        docReview[doc] = reviewId;
+        docLength[doc] = length;
+        totalLength += length;
+        docByReview.put(reviewId, doc);
+        lastReviewId = Math.max(lastReviewId, reviewId);
+        dirty = true;
+    }
+
+    /** Reviews matching any of the query's terms, best BM25 score first. */
+    public synchronized List<Hit> search(String query, int limit) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(terms(query)));
+        if (queryTerms.isEmpty() || docs == 0 || limit <= 0) return new ArrayList<>();
+        double avgLength = Math.max(1.0, (double) totalLength / docs);
+        float[] scores = new float[docs];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for (String term : queryTerms) {
+            Postings p = terms.get(term);
+            if (p == null) continue;
+            double idf = Math.log(1 + (docs - p.size + 0.5) / (p.size + 0.5));
+            for (int i = 0; i < p.size; i++) {
+                int doc = p.docs[i];
+                double f = p.freqs[i];
+                double norm = K1 * (1 - B + B * docLength[doc] / avgLength);
+                if (scores[doc] == 0) {
+                    if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += (float) (idf * f * (K1 + 1) / (f + norm));
+            }
+        }
+        // keep the best `limit` in a min-heap; ties go to the newer review
+        PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> scores[a] != scores[b] ? Float.compare(scores[a], scores[b]) : Integer.compare(a, b));
+        for (int i = 0; i < touchedCount; i++) {
+            top.add(touched[i]);
+            if (top.size() > limit) top.poll();
+        }
+        Hit[] hits = new Hit[top.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            int doc = top.poll();
+            hits[i] = new Hit(docReview[doc], scores[doc]);
+        }
+        return new ArrayList<>(Arrays.asList(hits));
+    }
+
+    public synchronized int getReviewCount() { return docs; }
+    public synchronized int getTermCount() { return terms.size(); }
+
+    private void clear() {
+        docs = 0;
+        totalLength = 0;
+        lastReviewId = 0;
+        docByReview.clear();
+        terms.clear();
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException ex) {
+            System.err.println("Could not save review index to " + file + ": " + ex.getMessage());
+        }
+    }
+
+    // Writes the index next to the target and moves it into place
+    public synchronized void save() throws IOException {
+        if (file == null || !dirty) return;
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".part");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+                out.writeInt(lastReviewId);
+                out.writeInt(docs);
+                for (int d = 0; d < docs; d++) {
+                    writeVarInt(out, docReview[d]);
+                    writeVarInt(out, docLength[d]);
+                }
+                out.writeInt(terms.size());
+                for (Map.Entry<String, Postings> e : terms.entrySet()) {
+                    Postings p = e.getValue();
+                    out.writeUTF(e.getKey());
+                    writeVarInt(out, p.size);
+                    int prev = 0;
+                    for (int i = 0; i < p.size; i++) {
+                        writeVarInt(out, p.docs[i] - prev);
+                        writeVarInt(out, p.freqs[i]);
+                        prev = p.docs[i];
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            dirty = false;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // Returns false if the file is not an index in the current format
+    private synchronized boolean read() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT) return false;
+            lastReviewId = in.readInt();
+            docs = in.readInt();
+            docReview = new int[Math.max(256, docs)];
+            docLength = new int[Math.max(256, docs)];
+            for (int d = 0; d < docs; d++) {
+                docReview[d] = readVarInt(in);
+                docLength[d] = readVarInt(in);
+                totalLength += docLength[d];
+                docByReview.put(docReview[d], d);
+            }
+            int termCount = in.readInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = in.readUTF();
+                int size = readVarInt(in);
+                Postings p = new Postings(size);
+                int doc = 0;
+                for (int i = 0; i < size; i++) {
+                    doc += readVarInt(in);
+                    p.add(doc, readVarInt(in));
+                }
+                terms.put(term, p);
+            }
+        }
+        return true;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    // Normalized terms of text in order, stop words removed
+    static List<String> terms(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null) return out;
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (c != '\'' && word.length() > 0) {
+                String w = word.toString();
+                word.setLength(0);
+                if (w.length() < 2 || STOP_WORDS.contains(w)) continue;
+                out.add(stem(w));
+            }
+        }
+        return out;
+    }
+
+    // Light suffix stripping: plurals, -ing/-ed/-ly/-ier/-iest, doubled consonants, final e/y
+    static String stem(String w) {
+        if (w.length() <= 3 || !Character.isLetter(w.charAt(w.length() - 1))) return w;
+        if (w.endsWith("ies") && w.length() > 4) w = w.substring(0, w.length() - 3) + "y";
+        else if (w.endsWith("sses")) w = w.substring(0, w.length() - 2);
+        else if (w.endsWith("s") && !w.endsWith("ss") && !w.endsWith("us") && !w.endsWith("is")) w = w.substring(0, w.length() - 1);
+
+        if (w.endsWith("iest") && w.length() > 6) w = w.substring(0, w.length() - 4) + "y";
+        else if (w.endsWith("ier") && w.length() > 5) w = w.substring(0, w.length() - 3) + "y";
+        else if (w.endsWith("ing") && w.length() > 5) w = w.substring(0, w.length() - 3);
+        else if (w.endsWith("ed") && w.length() > 4) w = w.substring(0, w.length() - 2);
+        else if (w.endsWith("ly") && w.length() > 4) w = w.substring(0, w.length() - 2);
+
+        int n = w.length();
+        if (n > 3 && w.charAt(n - 1) == w.charAt(n - 2) && "aeiouls".indexOf(w.charAt(n - 1)) < 0) w = w.substring(0, n - 1);
+        n = w.length();
+        if (n > 3 && (w.charAt(n - 1) == 'e' || w.charAt(n - 1) == 'y')) w = w.substring(0, n - 1);
+        return w;
+    }
+
+    static final class Postings {
+        int[] docs;
+        int[] freqs;
+        int size;
+
+        Postings() {
+            this(4);
+        }
+
+        Postings(int capacity) {
+            docs = new int[Math.max(1, capacity)];
+            freqs = new int[Math.max(1, capacity)];
+        }
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size++] = freq;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package service;
+
+import model.Booking;
+import model.Review;
+import repo.Repositories;
+
+/**
+ * Stores customer reviews. Ratings outside 1-5 fall back to 5, as the review
+ * dialogs always did.
+ */
+public class ReviewService {
+    private static final ReviewService INSTANCE = new ReviewService();
+
+    public static ReviewService get() {
+        return INSTANCE;
+    }
+
+    public static int clampRating(int rating) {
+        return rating < 1 || rating > 5 ? 5 : rating;
+    }
+
+    // Returns the room a booking is for, or -1 if the booking does not exist
+    public int roomForBooking(int bookingId) throws Exception {
+        Booking booking = Repositories.get().bookings().find(bookingId);
+        return booking == null ? -1 : booking.getRoomId();
+    }
+
+    /** Stores a review and returns its id. */
+    public int submit(int userId, int roomId, String text, int rating) throws Exception {
+        if (text == null || text.trim().isEmpty()) throw new IllegalArgumentException("Review text required");
+        int reviewId = Repositories.get().reviews().insert(new Review(0, userId, roomId, text, clampRating(rating), null));
+        RatingStore ratings = RatingStore.ifLoaded();
+        if (ratings != null && reviewId > 0) ratings.record(reviewId, roomId, rating);
+        ReviewSearchIndex textIndex = ReviewSearchIndex.ifLoaded();
+        if (textIndex != null && reviewId > 0) textIndex.add(reviewId, text);
+        if (reviewId > 0) EventBus.get().publish(EventBus.Event.reviewed(reviewId, userId, roomId, clampRating(rating)));
+        return reviewId;
+    }
+}
@@ -0,0 +1,248 @@
+package service;
+
+import db.LatencyHistogram;
+import model.Money;
+import model.Room;
+import repo.Repositories;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory room catalogue for filtered searches (type, price range, dates,
+ * minimum rating) without a round trip to MySQL.
+ *
+ * Rooms live in parallel primitive arrays; each type has a bucket of room
+ * positions sorted by price, with the prices alongside, so a price range is
+ * two binary searches and the rooms in between come out already in price
+ * order. Dates are checked against the AvailabilityIndex and ratings come
+ * from the RatingStore, both in memory. The arrays form an immutable
+ * snapshot that is rebuilt whenever a room is added or changed, which is
+ * rare next to searches.
+ */
+public class RoomSearchIndex {
+    private static volatile RoomSearchIndex instance;
+
+    public enum Sort { PRICE_ASC, PRICE_DESC, ROOM_NUMBER, RATING }
+
+    private final AvailabilityIndex availability;
+    private volatile Snapshot snapshot = new Snapshot(new ArrayList<>());
+    private final RatingStore ratings;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public static RoomSearchIndex get() throws Exception {
+        RoomSearchIndex idx = instance;
+        if (idx != null) return idx;
+        synchronized (RoomSearchIndex.class) {
+            if (instance == null) {
+                RoomSearchIndex fresh = new RoomSearchIndex(AvailabilityIndex.get(), RatingStore.get());
+                fresh.load(Repositories.get().rooms().findAll());
+                instance = fresh;
+            }
+            return instance;
+        }
+    }
+
+    // The shared index if something has already loaded it, else null (no database access)
+    public static RoomSearchIndex ifLoaded() {
+        return instance;
+    }
+
+    public RoomSearchIndex(AvailabilityIndex availability, RatingStore ratings) {
+        this.availability = availability;
+        this.ratings = ratings;
+    }
+
+    public synchronized void load(Collection<Room> rooms) {
+        snapshot = new Snapshot(new ArrayList<>(rooms));
+    }
+
+    // Adds the room, or replaces the indexed copy with the same id
+    public synchronized void put(Room room) {
+        List<Room> rooms = snapshot.rooms();
+        Integer pos = snapshot.posById.get(room.getId());
+        if (pos != null) rooms.set(pos, room); else rooms.add(room);
+        snapshot = new Snapshot(rooms);
+    }
+
+    // Distinct room types in alphabetical order, for filter pickers
+    public List<String> types() {
+        return new ArrayList<>(snapshot.typeNames);
+    }
+
+    public static class Query {
+        private String type;
+        private Money minPrice;
+        private Money maxPrice;
+        private LocalDate from;
+        private LocalDate to;
+        private double minRating;
+        private Sort sort = Sort.PRICE_ASC;
+
+        // null or empty matches every type
+        public Query type(String type) { this.type = type; return this; }
+        // either bound may be null; both are inclusive
+        public Query price(Money min, Money max) { this.minPrice = min; this.maxPrice = max; return this; }
+        // only rooms free for every night of [from, to)
+        public Query dates(LocalDate from, LocalDate to) { this.from = from; this.to = to; return this; }
+        public Query minRating(double minRating) { this.minRating = minRating; return this; }
+        public Query sort(Sort sort) { this.sort = sort; return this; }
+    }
+
+    public List<Room> search(Query q) {
+        if (q.from != null && q.to != null && !q.to.isAfter(q.from)) throw new IllegalArgumentException("Check-out must be after check-in");
+        long t0 = System.nanoTime();
+        Snapshot s = snapshot;
+        Bucket bucket = q.type == null || q.type.isEmpty() ? s.all : s.byType.get(q.type.toLowerCase(Locale.ROOT));
+        List<Room> out = new ArrayList<>();
+        if (bucket != null) {
+            int lo = q.minPrice == null ? 0 : bucket.firstAtLeast(q.minPrice.getCents());
+            int hi = q.maxPrice == null ? bucket.size() : bucket.firstAtLeast(q.maxPrice.getCents() + 1);
+            int[] hits = new int[Math.max(0, hi - lo)];
+            int n = 0;
+            for (int i = lo; i < hi; i++) {
+                int p = bucket.positions[i];
+                if (q.minRating > 0 && ratings.averageOf(s.ids[p]) < q.minRating) continue;
+                if (q.from != null && q.to != null && !availability.isFree(s.ids[p], q.from, q.to)) continue;
+                hits[n++] = p;
+            }
+            order(s, hits, n, q.sort);
+            for (int i = 0; i < n; i++) {
+                int p = hits[i];
+                Room room = new Room(s.ids[p], s.numbers[p], s.types[p], Money.ofCents(s.prices[p]), true);
+                RatingStore.RoomRating rating = ratings.of(s.ids[p]);
+                room.setRating(rating.getAverage());
+                room.setReviewCount(rating.getCount());
+                out.add(room);
+            }
+        }
+        latency.recordNanos(System.nanoTime() - t0);
+        return out;
+    }
+
+    // hits[0..n) arrive in ascending price order
+    private void order(Snapshot s, int[] hits, int n, Sort sort) {
+        if (sort == Sort.PRICE_ASC || n < 2) return;
+        if (sort == Sort.PRICE_DESC) {
+            for (int i = 0, j = n - 1; i < j; i++, j--) { int t = hits[i]; hits[i] = hits[j]; hits[j] = t; }
+            return;
+        }
+        // sort on (key << 32 | index into hits) so ties keep price order and nothing is boxed
+        long[] keyed = new long[n];
+        for (int i = 0; i < n; i++) {
+            int p = hits[i];
+            long key = sort == Sort.ROOM_NUMBER ? s.numberRank[p] : 500 - Math.round(ratings.averageOf(s.ids[p]) * 100);
+            keyed[i] = key << 32 | i;
+        }
+        Arrays.sort(keyed);
+        int[] sorted = new int[n];
+        for (int i = 0; i < n; i++) sorted[i] = hits[(int) (keyed[i] & 0xFFFF_FFFFL)];
+        System.arraycopy(sorted, 0, hits, 0, n);
+    }
+
+    public long getSearchCount() { return latency.getCount(); }
+    public double getMeanSearchMicros() { return latency.getMeanMicros(); }
+    public long getSearchP99Micros() { return latency.percentileMicros(99); }
+    public long getMaxSearchMicros() { return latency.getMaxMicros(); }
+
+    // Room positions sorted by price, with the prices alongside for binary search
+    static final class Bucket {
+        final int[] positions;
+        final long[] prices;
+
+        Bucket(int[] positions, long[] allPrices) {
+            this.positions = positions;
+            this.prices = new long[positions.length];
+            for (int i = 0; i < positions.length; i++) prices[i] = allPrices[positions[i]];
+        }
+
+        int size() { return positions.length; }
+
+        int firstAtLeast(long cents) {
+            int lo = 0, hi = prices.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (prices[mid] < cents) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    static final class Snapshot {
+        final int[] ids;
+        final String[] numbers;
+        final String[] types;
+        final long[] prices;
+        // position of each room in room_number order
+        final int[] numberRank;
+        final Map<Integer, Integer> posById;
+        final Bucket all;
+        // lower-case type -> bucket
+        final Map<String, Bucket> byType;
+        final List<String> typeNames;
+
+        Snapshot(List<Room> rooms) {
+            int n = rooms.size();
+            ids = new int[n];
+            numbers = new String[n];
+            types = new String[n];
+            prices = new long[n];
+            posById = new HashMap<>(n * 2);
+            Map<String, List<Integer>> typePositions = new TreeMap<>();
+            Map<String, String> displayName = new TreeMap<>();
+            for (int i = 0; i < n; i++) {
+                Room r = rooms.get(i);
+                ids[i] = r.getId();
+                numbers[i] = r.getRoomNumber() == null ? "" : r.getRoomNumber();
+                types[i] = r.getType() == null ? "" : r.getType();
+                prices[i] = r.getPrice().getCents();
+                posById.put(ids[i], i);
+                String key = types[i].toLowerCase(Locale.ROOT);
+                typePositions.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                displayName.putIfAbsent(key, types[i]);
+            }
+            Integer[] byNumber = new Integer[n];
+            for (int i = 0; i < n; i++) byNumber[i] = i;
+            Arrays.sort(byNumber, (a, b) -> numbers[a].compareTo(numbers[b]));
+            numberRank = new int[n];
+            for (int i = 0; i < n; i++) numberRank[byNumber[i]] = i;
+
+            all = bucket(allPositions(n));
+            byType = new HashMap<>();
+            for (Map.Entry<String, List<Integer>> e : typePositions.entrySet()) {
+                int[] pos = new int[e.getValue().size()];
+                for (int i = 0; i < pos.length; i++) pos[i] = e.getValue().get(i);
+                byType.put(e.getKey(), bucket(pos));
+            }
+            typeNames = new ArrayList<>(displayName.values());
+        }
+
+        private static int[] allPositions(int n) {
+            int[] pos = new int[n];
+            for (int i = 0; i < n; i++) pos[i] = i;
+            return pos;
+        }
+
+        // Sorts positions by (price, room number) and pairs them with their prices
+        private Bucket bucket(int[] pos) {
+            Integer[] boxed = new Integer[pos.length];
+            for (int i = 0; i < pos.length; i++) boxed[i] = pos[i];
+            Arrays.sort(boxed, (a, b) -> prices[a] != prices[b] ? Long.compare(prices[a], prices[b]) : Integer.compare(numberRank[a], numberRank[b]));
+            int[] sorted = new int[pos.length];
+            for (int i = 0; i < sorted.length; i++) sorted[i] = boxed[i];
+            return new Bucket(sorted, prices);
+        }
+
+        List<Room> rooms() {
+            List<Room> out = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) out.add(new Room(ids[i], numbers[i], types[i], Money.ofCents(prices[i]), true));
+            return out;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package service;
+
+import model.Room;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Room listings for customers, answered from the in-memory RoomSearchIndex
+ * and the availability index for the requested stay.
+ */
+public class RoomService {
+    private static final RoomService INSTANCE = new RoomService();
+
+    public static RoomService get() {
+        return INSTANCE;
+    }
+
+    public List<Room> findFree(LocalDate from, LocalDate to) throws Exception {
+        if (!to.isAfter(from)) throw new IllegalArgumentException("Check-out must be after check-in");
+        return search(new RoomSearchIndex.Query().dates(from, to).sort(RoomSearchIndex.Sort.ROOM_NUMBER));
+    }
+
+    public List<Room> search(RoomSearchIndex.Query query) throws Exception {
+        return RoomSearchIndex.get().search(query);
+    }
+}
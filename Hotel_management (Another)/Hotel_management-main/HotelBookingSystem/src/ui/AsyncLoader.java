@@ -0,0 +1,171 @@
+package ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs dashboard queries on a shared background pool and hands results back on
+ * the EDT. Each window owns one loader: its work is cancelled when the window is
+ * disposed, and a refresh requested while the same key is still loading is
+ * coalesced into a single re-run once the current load finishes.
+ *
+ * Writes (bookings, payments, room edits) go through submit instead: they are
+ * never coalesced or cancelled, and the button that started one stays disabled
+ * until its outcome is back on the EDT, so a double click cannot submit twice.
+ */
+class AsyncLoader {
+    interface Query<T> {
+        T run() throws Exception;
+    }
+
+    private static final AtomicInteger THREAD_NO = new AtomicInteger();
+    static final ExecutorService POOL = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r, "dashboard-loader-" + THREAD_NO.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Window owner;
+    private final JLabel status;
+    // key -> running task; only touched on the EDT
+    private final Map<String, Task<?>> inFlight = new LinkedHashMap<>();
+    private volatile boolean disposed;
+
+    AsyncLoader(Window owner, JLabel status) {
+        this.owner = owner;
+        this.status = status;
+        owner.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) { cancelAll(); }
+        });
+    }
+
+    /**
+     * Runs query in the background and passes its result to onDone on the EDT.
+     * errorPrefix, when non-null, is shown in a message dialog on failure.
+     */
+    <T> void load(String key, Query<T> query, Consumer<T> onDone, String errorPrefix) {
+        if (disposed) return;
+        Task<?> running = inFlight.get(key);
+        if (running != null) {
+            running.rerun = new Task<>(key, query, onDone, errorPrefix);
+            return;
+        }
+        start(new Task<>(key, query, onDone, errorPrefix));
+    }
+
+    /**
+     * Runs action in the background with button (may be null) disabled, then
+     * passes its result to onDone or its error to onError on the EDT. Nothing
+     * is reported once the window is gone.
+     */
+    <T> void submit(AbstractButton button, Query<T> action, Consumer<T> onDone, Consumer<Exception> onError) {
+        if (disposed) return;
+        if (button != null) button.setEnabled(false);
+        owner.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        POOL.submit(() -> {
+            T result = null;
+            Exception error = null;
+            try {
+                result = action.run();
+            } catch (Exception ex) {
+                error = ex;
+            }
+            T r = result;
+            Exception err = error;
+            SwingUtilities.invokeLater(() -> {
+                if (button != null) button.setEnabled(true);
+                updateIndicator();
+                if (disposed) return;
+                if (err != null) onError.accept(err);
+                else onDone.accept(r);
+            });
+        });
+    }
+
+    // submit that prints the error and shows it after errorPrefix
+    <T> void submit(AbstractButton button, Query<T> action, Consumer<T> onDone, String errorPrefix) {
+        submit(button, action, onDone, ex -> {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(owner, errorPrefix + ex.getMessage());
+        });
+    }
+
+    boolean isLoading(String key) {
+        return inFlight.containsKey(key);
+    }
+
+    void cancelAll() {
+        disposed = true;
+        for (Task<?> t : inFlight.values()) if (t.future != null) t.future.cancel(true);
+        inFlight.clear();
+    }
+
+    private <T> void start(Task<T> task) {
+        inFlight.put(task.key, task);
+        updateIndicator();
+        task.future = POOL.submit(() -> {
+            T result = null;
+            Exception error = null;
+            try {
+                result = task.query.run();
+            } catch (Exception ex) {
+                error = ex;
+            }
+            T r = result;
+            Exception err = error;
+            SwingUtilities.invokeLater(() -> finish(task, r, err));
+        });
+    }
+
+    private <T> void finish(Task<T> task, T result, Exception error) {
+        if (disposed || inFlight.get(task.key) != task) return;
+        inFlight.remove(task.key);
+        try {
+            if (error != null) {
+                error.printStackTrace();
+                if (task.errorPrefix != null) JOptionPane.showMessageDialog(owner, task.errorPrefix + error.getMessage());
+            } else {
+                task.onDone.accept(result);
+            }
+        } finally {
+            if (task.rerun != null && !disposed) start(task.rerun);
+            updateIndicator();
+        }
+    }
+
+    private void updateIndicator() {
+        if (inFlight.isEmpty()) {
+            status.setText(" ");
+            owner.setCursor(Cursor.getDefaultCursor());
+        } else {
+            status.setText("Loading " + String.join(", ", inFlight.keySet()) + "...");
+            owner.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        }
+    }
+
+    private static final class Task<T> {
+        final String key;
+        final Query<T> query;
+        final Consumer<T> onDone;
+        final String errorPrefix;
+        Future<?> future;
+        Task<?> rerun;
+
+        Task(String key, Query<T> query, Consumer<T> onDone, String errorPrefix) {
+            this.key = key;
+            this.query = query;
+            this.onDone = onDone;
+            this.errorPrefix = errorPrefix;
+        }
+    }
+}
@@ -1,34 +1,74 @@
 package ui;
 
 import db.Database;
+import model.Money;
+import model.Room;
+import service.BookingConflictException;
+import service.BookingService;
+import service.EventBus;
+import service.PaymentService;
+import service.ReviewService;
+import service.RoomSearchIndex;
+import service.RoomService;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.sql.*;
 
 public class CustomerDashboard extends JFrame {
     int userId;
     JTable roomsTable;
     JTable bookingsTable;
+    JTextField fromField = new JTextField(java.time.LocalDate.now().toString(), 10);
+    JTextField toField = new JTextField(java.time.LocalDate.now().plusDays(1).toString(), 10);
+    JLabel statusLabel = new JLabel(" ");
+    JComboBox<String> typeFilter = new JComboBox<>(new String[]{"Any"});
+    JTextField minPriceField = new JTextField(5);
+    JTextField maxPriceField = new JTextField(5);
+    JComboBox<String> ratingFilter = new JComboBox<>(new String[]{"Any", "2+", "3+", "4+", "4.5+"});
+    JComboBox<RoomSearchIndex.Sort> sortBy = new JComboBox<>(RoomSearchIndex.Sort.values());
+    AsyncLoader loader;
+    // dates of the search the rooms table shows
+    java.time.LocalDate shownFrom, shownTo;
 
     public CustomerDashboard(int userId) {
         this.userId = userId;
         setTitle("Customer Dashboard");
         setSize(800, 500);
         setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         setLayout(new BorderLayout(8, 8));
 
         // Top: Back button
         JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
         JButton back = new JButton("Back");
         top.add(back);
+        top.add(statusLabel);
         add(top, BorderLayout.NORTH);
+        loader = new AsyncLoader(this, statusLabel);
 
         // Center: Tabs with room list and bookings
         JTabbedPane tabs = new JTabbedPane();
 
         // Rooms tab
         JPanel roomsPanel = new JPanel(new BorderLayout(6,6));
+        JPanel roomsSearch = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton btnSearch = new JButton("Search");
+        roomsSearch.add(new JLabel("Check-in (YYYY-MM-DD):")); roomsSearch.add(fromField);
+        roomsSearch.add(new JLabel("Check-out:")); roomsSearch.add(toField);
+        roomsSearch.add(btnSearch);
+        JPanel roomsFilters = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        roomsFilters.add(new JLabel("Type:")); roomsFilters.add(typeFilter);
+        roomsFilters.add(new JLabel("Price from:")); roomsFilters.add(minPriceField);
+        roomsFilters.add(new JLabel("to:")); roomsFilters.add(maxPriceField);
+        roomsFilters.add(new JLabel("Rating:")); roomsFilters.add(ratingFilter);
+        roomsFilters.add(new JLabel("Sort:")); roomsFilters.add(sortBy);
+        sortBy.setSelectedItem(RoomSearchIndex.Sort.ROOM_NUMBER);
+        JPanel roomsNorth = new JPanel(new GridLayout(2, 1));
+        roomsNorth.add(roomsSearch); roomsNorth.add(roomsFilters);
+        roomsPanel.add(roomsNorth, BorderLayout.NORTH);
         roomsTable = new JTable();
         roomsPanel.add(new JScrollPane(roomsTable), BorderLayout.CENTER);
 
@@ -57,6 +97,7 @@ public class CustomerDashboard extends JFrame {
         add(tabs, BorderLayout.CENTER);
 
         // Load data
+        loader.load("room types", () -> RoomSearchIndex.get().types(), types -> { for (String t : types) typeFilter.addItem(t); }, null);
         loadRooms();
     loadBookings();
 
@@ -65,146 +106,172 @@ public class CustomerDashboard extends JFrame {
             dispose();
         });
 
-    btnBook.addActionListener(e -> doBook());
-    btnReviewBooking.addActionListener(e -> doReviewFromBooking());
-    btnPayBooking.addActionListener(e -> doPayment());
-    btnCancelBooking.addActionListener(e -> cancelBooking());
+    btnSearch.addActionListener(e -> loadRooms());
+    // bookings, payments and reviews run on the loader pool; each button stays disabled until its call returns
+    btnBook.addActionListener(e -> doBook(btnBook));
+    btnReviewBooking.addActionListener(e -> doReviewFromBooking(btnReviewBooking));
+    btnPayBooking.addActionListener(e -> doPayment(btnPayBooking));
+    btnCancelBooking.addActionListener(e -> cancelBooking(btnCancelBooking));
+
+        // bookings change from other windows, the owner's desk and the sweeper; patch those rows as they commit
+        Runnable unsubscribe = EventBus.get().subscribe(ev -> SwingUtilities.invokeLater(() -> applyEvent(ev)));
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) { unsubscribe.run(); }
+        });
 
         setVisible(true);
     }
 
-    void cancelBooking() {
+    void cancelBooking(JButton button) {
         int sel = bookingsTable.getSelectedRow();
         if (sel == -1) { JOptionPane.showMessageDialog(this, "Select a booking to cancel"); return; }
         int bookingId = (int) bookingsTable.getModel().getValueAt(sel, 0);
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to cancel booking ID " + bookingId + "?", "Confirm Cancel", JOptionPane.YES_NO_OPTION);
         if (confirm != JOptionPane.YES_OPTION) return;
-        try (Connection conn = Database.connect()) {
-            // find room id for booking
-            int roomId = -1;
-            try (PreparedStatement p = conn.prepareStatement("SELECT room_id FROM bookings WHERE id=?")) {
-                p.setInt(1, bookingId);
-                ResultSet r = p.executeQuery();
-                if (r.next()) roomId = r.getInt("room_id");
-            }
-
-            // mark booking cancelled and free up room
-            try (PreparedStatement p = conn.prepareStatement("UPDATE bookings SET status=?, payment_status=? WHERE id=?")) {
-                p.setString(1, "CANCELLED");
-                p.setString(2, "CANCELLED");
-                p.setInt(3, bookingId);
-                p.executeUpdate();
-            }
-
-            if (roomId != -1) {
-                try (PreparedStatement p2 = conn.prepareStatement("UPDATE rooms SET available=TRUE WHERE id=?")) {
-                    p2.setInt(1, roomId);
-                    p2.executeUpdate();
-                }
-            }
-
-            JOptionPane.showMessageDialog(this, "Booking cancelled and room made available");
-            loadBookings();
+        // mark booking cancelled and release its dates in the availability index
+        loader.submit(button, () -> BookingService.get().cancel(bookingId), cancelled -> {
+            JOptionPane.showMessageDialog(this, cancelled ? "Booking cancelled and room made available" : "Booking was already cancelled");
             loadRooms();
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Cancel booking error: " + ex.getMessage());
-        }
+        }, "Cancel booking error: ");
     }
 
     void loadRooms() {
-        try (Connection conn = Database.connect();
-             PreparedStatement ps = conn.prepareStatement("SELECT id, room_number, type, price FROM rooms WHERE available=TRUE")) {
-            ResultSet rs = ps.executeQuery();
-            DefaultTableModel model = new DefaultTableModel(new String[]{"ID","Room#","Type","Price"}, 0);
-            while (rs.next()) {
-                model.addRow(new Object[]{rs.getInt("id"), rs.getString("room_number"), rs.getString("type"), rs.getDouble("price")});
-            }
-            roomsTable.setModel(model);
+        java.time.LocalDate from, to;
+        try {
+            from = java.time.LocalDate.parse(fromField.getText().trim());
+            to = java.time.LocalDate.parse(toField.getText().trim());
         } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error loading rooms: " + ex.getMessage());
+            JOptionPane.showMessageDialog(this, "Dates must be in YYYY-MM-DD format");
+            return;
+        }
+        if (!to.isAfter(from)) { JOptionPane.showMessageDialog(this, "Check-out must be after check-in"); return; }
+        RoomSearchIndex.Query query = new RoomSearchIndex.Query().dates(from, to).sort((RoomSearchIndex.Sort) sortBy.getSelectedItem());
+        if (typeFilter.getSelectedIndex() > 0) query.type((String) typeFilter.getSelectedItem());
+        try {
+            query.price(minPriceField.getText().trim().isEmpty() ? null : Money.parse(minPriceField.getText()),
+                    maxPriceField.getText().trim().isEmpty() ? null : Money.parse(maxPriceField.getText()));
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Prices must be numeric");
+            return;
         }
+        if (ratingFilter.getSelectedIndex() > 0) query.minRating(Double.parseDouble(ratingFilter.getSelectedItem().toString().replace("+", "")));
+        loader.load("rooms", () -> {
+            DefaultTableModel model = new DefaultTableModel(new String[]{"ID","Room#","Type","Price","Rating"}, 0);
+            for (Room room : RoomService.get().search(query)) {
+                String rating = room.getReviewCount() == 0 ? "-" : String.format("%.1f (%d)", room.getRating(), room.getReviewCount());
+                model.addRow(new Object[]{room.getId(), room.getRoomNumber(), room.getType(), room.getPrice(), rating});
+            }
+            return model;
+        }, model -> {
+            roomsTable.setModel(model);
+            shownFrom = from;
+            shownTo = to;
+        }, "Error loading rooms: ");
     }
 
     void loadBookings() {
+        loader.load("bookings", () -> queryBookings(0), bookingsTable::setModel, "Error loading bookings: ");
+    }
+
+    // This customer's bookings, or just bookingId when it is non-zero
+    private DefaultTableModel queryBookings(int bookingId) throws Exception {
         try (Connection conn = Database.connect();
-             PreparedStatement ps = conn.prepareStatement("SELECT b.id, r.room_number, b.start_date, b.end_date, b.status, b.payment_status FROM bookings b JOIN rooms r ON b.room_id=r.id WHERE b.user_id=?")) {
+             PreparedStatement ps = conn.prepareStatement("SELECT b.id, r.room_number, b.start_date, b.end_date, b.status, b.payment_status FROM bookings b JOIN rooms r ON b.room_id=r.id WHERE b.user_id=?"
+                     + (bookingId != 0 ? " AND b.id=?" : ""))) {
             ps.setInt(1, userId);
+            if (bookingId != 0) ps.setInt(2, bookingId);
             ResultSet rs = ps.executeQuery();
             DefaultTableModel model = new DefaultTableModel(new String[]{"ID","Room#","Start","End","Status","PaymentStatus"}, 0);
             while (rs.next()) {
                 model.addRow(new Object[]{rs.getInt("id"), rs.getString("room_number"), rs.getDate("start_date"), rs.getDate("end_date"), rs.getString("status"), rs.getString("payment_status")});
             }
-            bookingsTable.setModel(model);
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error loading bookings: " + ex.getMessage());
+            return model;
+        }
+    }
+
+    // Patches the rows a committed change touches instead of re-running the queries
+    void applyEvent(EventBus.Event e) {
+        if (e.getType() == EventBus.Type.REVIEWED) return;
+        if (e.getType() == EventBus.Type.BOOKED && e.getUserId() != userId) roomTaken(e);
+        if (e.getUserId() == userId || bookingRow(e.getBookingId()) >= 0) bookingChanged(e.getBookingId());
+    }
+
+    // Re-reads one of this customer's bookings and updates its row, or adds it
+    private void bookingChanged(int bookingId) {
+        loader.load("booking #" + bookingId, () -> queryBookings(bookingId), fresh -> {
+            if (fresh.getRowCount() == 0 || !(bookingsTable.getModel() instanceof DefaultTableModel)) return;
+            DefaultTableModel m = (DefaultTableModel) bookingsTable.getModel();
+            int row = bookingRow(bookingId);
+            if (row < 0) {
+                Object[] values = new Object[fresh.getColumnCount()];
+                for (int c = 0; c < values.length; c++) values[c] = fresh.getValueAt(0, c);
+                m.addRow(values);
+            } else {
+                for (int c = 0; c < fresh.getColumnCount(); c++) m.setValueAt(fresh.getValueAt(0, c), row, c);
+            }
+        }, null);
+    }
+
+    private int bookingRow(int bookingId) {
+        javax.swing.table.TableModel m = bookingsTable.getModel();
+        for (int i = 0; i < m.getRowCount(); i++) if (Integer.valueOf(bookingId).equals(m.getValueAt(i, 0))) return i;
+        return -1;
+    }
+
+    // Someone else booked a listed room for nights inside the searched dates: it is no longer available
+    private void roomTaken(EventBus.Event e) {
+        if (shownFrom == null || !e.getStart().isBefore(shownTo) || !e.getEnd().isAfter(shownFrom)) return;
+        if (!(roomsTable.getModel() instanceof DefaultTableModel)) return;
+        DefaultTableModel m = (DefaultTableModel) roomsTable.getModel();
+        for (int i = 0; i < m.getRowCount(); i++) {
+            if (Integer.valueOf(e.getRoomId()).equals(m.getValueAt(i, 0))) {
+                m.removeRow(i);
+                return;
+            }
         }
     }
 
-    void doBook() {
+    void doBook(JButton button) {
         int sel = roomsTable.getSelectedRow();
         if (sel == -1) { JOptionPane.showMessageDialog(this, "Select a room to book"); return; }
         int roomId = (int) roomsTable.getModel().getValueAt(sel, 0);
-        String start = JOptionPane.showInputDialog(this, "Enter start date (YYYY-MM-DD)");
+        String start = (String) JOptionPane.showInputDialog(this, "Enter start date (YYYY-MM-DD)", "Book Room", JOptionPane.QUESTION_MESSAGE, null, null, fromField.getText().trim());
         if (start == null) return;
-        String end = JOptionPane.showInputDialog(this, "Enter end date (YYYY-MM-DD)");
+        String end = (String) JOptionPane.showInputDialog(this, "Enter end date (YYYY-MM-DD)", "Book Room", JOptionPane.QUESTION_MESSAGE, null, null, toField.getText().trim());
         if (end == null) return;
-        try (Connection conn = Database.connect()) {
-            // get price of room
-            double price = 0.0;
-            try (PreparedStatement p2 = conn.prepareStatement("SELECT price FROM rooms WHERE id=?")) {
-                p2.setInt(1, roomId);
-                ResultSet r2 = p2.executeQuery();
-                if (r2.next()) price = r2.getDouble("price");
-            }
+        java.time.LocalDate s, e;
+        try {
+            s = java.time.LocalDate.parse(start);
+            e = java.time.LocalDate.parse(end);
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, "Booking error: " + ex.getMessage());
+            return;
+        }
+        if (!e.isAfter(s)) { JOptionPane.showMessageDialog(this, "End date must be after start date"); return; }
 
-            // compute nights
-            java.time.LocalDate s = java.time.LocalDate.parse(start);
-            java.time.LocalDate e = java.time.LocalDate.parse(end);
-            long nights = java.time.temporal.ChronoUnit.DAYS.between(s, e);
-            if (nights <= 0) { JOptionPane.showMessageDialog(this, "End date must be after start date"); return; }
-
-            // insert booking and get generated id
-            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO bookings(user_id, room_id, start_date, end_date, status, payment_status) VALUES(?,?,?,?,?,?)", Statement.RETURN_GENERATED_KEYS)) {
-                ps.setInt(1, userId);
-                ps.setInt(2, roomId);
-                ps.setDate(3, Date.valueOf(start));
-                ps.setDate(4, Date.valueOf(end));
-                ps.setString(5, "BOOKED");
-                ps.setString(6, "PENDING");
-                ps.executeUpdate();
-                ResultSet keys = ps.getGeneratedKeys();
-                int bookingId = -1;
-                if (keys.next()) bookingId = keys.getInt(1);
-
-                // mark room unavailable
-                try (PreparedStatement p3 = conn.prepareStatement("UPDATE rooms SET available=FALSE WHERE id=?")) {
-                    p3.setInt(1, roomId);
-                    p3.executeUpdate();
-                }
-
-                // compute total = price * nights
-                double total = price * nights;
-
-                JOptionPane.showMessageDialog(this, "Room booked. Opening payment dialog.");
-                loadRooms();
-                loadBookings();
+        // overlap check, booking insert and inventory update happen in one transaction
+        loader.submit(button, () -> BookingService.get().holdForPayment(userId, roomId, s, e, null, null), res -> {
+            JOptionPane.showMessageDialog(this, "Room booked. Opening payment dialog.");
+            loadRooms();
 
-                // auto open payment dialog with amount and booking id
-                openAutoPaymentDialog(bookingId, total);
+            // auto open payment dialog with amount and booking id
+            openAutoPaymentDialog(button, res.getBookingId(), res.getTotal());
+        }, ex -> {
+            if (ex instanceof BookingConflictException) {
+                JOptionPane.showMessageDialog(this, ex.getMessage());
+                loadRooms();
+                return;
             }
-        } catch (Exception ex) {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Booking error: " + ex.getMessage());
-        }
+        });
     }
 
-    void openAutoPaymentDialog(int bookingId, double total) {
+    void openAutoPaymentDialog(JButton button, int bookingId, Money total) {
     JPanel p = new JPanel(new GridLayout(3,2,6,6));
         p.add(new JLabel("Booking ID:")); p.add(new JLabel(String.valueOf(bookingId)));
-        p.add(new JLabel("Total amount:")); p.add(new JLabel(String.format("%.2f", total)));
+        p.add(new JLabel("Total amount:")); p.add(new JLabel(total.toString()));
         p.add(new JLabel("Payment Method:"));
     JComboBox<String> pm = new JComboBox<>(new String[]{"CASH","GOOGLEPAY"});
         p.add(pm);
@@ -220,37 +287,46 @@ public class CustomerDashboard extends JFrame {
 
             // no QR option anymore
 
-            // insert payment
-            try (Connection conn = Database.connect();
-                 PreparedStatement ps = conn.prepareStatement("INSERT INTO payments(user_id, booking_id, amount, status, payment_method, googlepay_number, qr_code, pin) VALUES(?,?,?,?,?,?,?,?)")) {
-                ps.setInt(1, userId);
-                ps.setInt(2, bookingId);
-                ps.setDouble(3, total);
-                ps.setString(4, "PAID");
-                ps.setString(5, method);
-                ps.setString(6, method.equals("GOOGLEPAY") ? gpn : null);
-                ps.setString(7, method.equals("QR") ? gpn : null);
-                ps.setString(8, null);
-                ps.executeUpdate();
-
-                // update booking payment_status
-                try (PreparedStatement p2 = conn.prepareStatement("UPDATE bookings SET payment_status='PAID' WHERE id=?")) { p2.setInt(1, bookingId); p2.executeUpdate(); }
-
-                JOptionPane.showMessageDialog(this, "Payment successful");
-                loadBookings();
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                JOptionPane.showMessageDialog(this, "Payment error: " + ex.getMessage());
-            }
+            // insert payment and update booking payment_status
+            payWithRetry(button, bookingId, total, method, gpn, PaymentService.newIdempotencyKey());
 
             break; // done
         }
     }
 
+    // Pays, offering to retry after an error with the same idempotency key so a retry never charges twice
+    private void payWithRetry(JButton button, int bookingId, Money total, String method, String gpn, String attempt) {
+        loader.submit(button, () -> PaymentService.get().pay(userId, bookingId, total, method, gpn, attempt),
+                receipt -> JOptionPane.showMessageDialog(this, "Payment successful"), ex -> {
+            if (ex instanceof IllegalArgumentException || ex instanceof IllegalStateException) {
+                // cancelled, already paid, bad input: retrying would not help
+                JOptionPane.showMessageDialog(this, "Payment error: " + ex.getMessage());
+                return;
+            }
+            ex.printStackTrace();
+            int r = JOptionPane.showConfirmDialog(this, "Payment error: " + ex.getMessage() + "\nRetry? You will not be charged twice.",
+                    "Payment", JOptionPane.YES_NO_OPTION);
+            if (r == JOptionPane.YES_OPTION) payWithRetry(button, bookingId, total, method, gpn, attempt);
+        });
+    }
+
     void doReview() {
         int sel = roomsTable.getSelectedRow();
         if (sel == -1) { JOptionPane.showMessageDialog(this, "Select a room to review"); return; }
         int roomId = (int) roomsTable.getModel().getValueAt(sel, 0);
+        submitReview(null, roomId);
+    }
+
+    void doReviewFromBooking(JButton button) {
+        int sel = bookingsTable.getSelectedRow();
+        if (sel == -1) { JOptionPane.showMessageDialog(this, "Select a booking to review"); return; }
+        int bookingId = (int) bookingsTable.getModel().getValueAt(sel, 0);
+        loader.submit(button, () -> ReviewService.get().roomForBooking(bookingId), roomId -> {
+            if (roomId != -1) submitReview(button, roomId);
+        }, "Review error: ");
+    }
+
+    private void submitReview(JButton button, int roomId) {
         JPanel p = new JPanel(new GridLayout(2,2,6,6));
         JTextField ratingField = new JTextField();
         JTextArea reviewArea = new JTextArea(4,20);
@@ -261,113 +337,29 @@ public class CustomerDashboard extends JFrame {
         String review = reviewArea.getText();
         if (review == null || review.trim().isEmpty()) return;
         int rating = 5;
-        try { rating = Integer.parseInt(ratingField.getText().trim()); if (rating<1 || rating>5) rating=5; } catch (Exception ex) { rating=5; }
-        try (Connection conn = Database.connect();
-             PreparedStatement ps = conn.prepareStatement("INSERT INTO reviews(user_id, room_id, review_text, rating) VALUES(?,?,?,?)")) {
-            ps.setInt(1, userId);
-            ps.setInt(2, roomId);
-            ps.setString(3, review);
-            ps.setInt(4, rating);
-            ps.executeUpdate();
-            JOptionPane.showMessageDialog(this, "Review submitted");
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Review error: " + ex.getMessage());
-        }
+        try { rating = Integer.parseInt(ratingField.getText().trim()); } catch (Exception ex) { rating=5; }
+        int stars = rating;
+        loader.submit(button, () -> ReviewService.get().submit(userId, roomId, review, stars),
+                id -> JOptionPane.showMessageDialog(this, "Review submitted"), "Review error: ");
     }
 
-    void doReviewFromBooking() {
-        int sel = bookingsTable.getSelectedRow();
-        if (sel == -1) { JOptionPane.showMessageDialog(this, "Select a booking to review"); return; }
-        int bookingId = (int) bookingsTable.getModel().getValueAt(sel, 0);
-        try (Connection conn = Database.connect();
-             PreparedStatement ps = conn.prepareStatement("SELECT room_id FROM bookings WHERE id=?")) {
-            ps.setInt(1, bookingId);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                int roomId = rs.getInt("room_id");
-                // reuse doReview flow but with known roomId
-                JPanel p = new JPanel(new GridLayout(2,2,6,6));
-                JTextField ratingField = new JTextField();
-                JTextArea reviewArea = new JTextArea(4,20);
-                p.add(new JLabel("Rating (1-5):")); p.add(ratingField);
-                p.add(new JLabel("Review:")); p.add(new JScrollPane(reviewArea));
-                int r = JOptionPane.showConfirmDialog(this, p, "Write Review", JOptionPane.OK_CANCEL_OPTION);
-                if (r != JOptionPane.OK_OPTION) return;
-                String review = reviewArea.getText();
-                if (review == null || review.trim().isEmpty()) return;
-                int rating = 5;
-                try { rating = Integer.parseInt(ratingField.getText().trim()); if (rating<1 || rating>5) rating=5; } catch (Exception ex) { rating=5; }
-                try (PreparedStatement ins = conn.prepareStatement("INSERT INTO reviews(user_id, room_id, review_text, rating) VALUES(?,?,?,?)")) {
-                    ins.setInt(1, userId);
-                    ins.setInt(2, roomId);
-                    ins.setString(3, review);
-                    ins.setInt(4, rating);
-                    ins.executeUpdate();
-                    JOptionPane.showMessageDialog(this, "Review submitted");
-                }
-            }
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Review error: " + ex.getMessage());
-        }
-    }
-
-    void doPayment() {
+    void doPayment(JButton button) {
         int sel = bookingsTable.getSelectedRow();
         if (sel == -1) { JOptionPane.showMessageDialog(this, "Select a booking to pay"); return; }
         int bookingId = (int) bookingsTable.getModel().getValueAt(sel, 0);
-        String paymentStatus = null;
-        try {
-            Object psObj = bookingsTable.getModel().getValueAt(sel, 5); // PaymentStatus column
-            if (psObj != null) paymentStatus = psObj.toString();
-        } catch (Exception ignore) {
-            // fallback to DB check below
-        }
 
-        try (Connection conn = Database.connect()) {
-            if (paymentStatus == null) {
-                try (PreparedStatement pchk = conn.prepareStatement("SELECT payment_status FROM bookings WHERE id=?")) {
-                    pchk.setInt(1, bookingId);
-                    ResultSet rchk = pchk.executeQuery();
-                    if (rchk.next()) paymentStatus = rchk.getString("payment_status");
-                }
-            }
-
-            if ("PAID".equalsIgnoreCase(paymentStatus)) {
+        // fetch booking details, room price and current payment status
+        loader.submit(button, () -> PaymentService.get().quote(bookingId), quote -> {
+            if (quote.isPaid()) {
                 JOptionPane.showMessageDialog(this, "This booking is already paid.");
                 return;
             }
-
-            // fetch booking details and room price
-            double price = 0.0;
-            java.sql.Date startDate = null, endDate = null;
-            int roomId = -1;
-            try (PreparedStatement p = conn.prepareStatement("SELECT b.room_id, b.start_date, b.end_date, r.price FROM bookings b JOIN rooms r ON b.room_id=r.id WHERE b.id=?")) {
-                p.setInt(1, bookingId);
-                ResultSet rs = p.executeQuery();
-                if (rs.next()) {
-                    roomId = rs.getInt("room_id");
-                    startDate = rs.getDate("check_in_date");
-                    endDate = rs.getDate("check_out_date");
-                    price = rs.getDouble("price");
-                } else {
-                    JOptionPane.showMessageDialog(this, "Booking not found");
-                    return;
-                }
-            }
-
-            // compute nights
-            java.time.LocalDate s = startDate.toLocalDate();
-            java.time.LocalDate e = endDate.toLocalDate();
-            long nights = java.time.temporal.ChronoUnit.DAYS.between(s, e);
-            if (nights <= 0) nights = 1;
-            double total = price * nights;
+            Money total = quote.getTotal();
 
             // payment dialog
             JPanel p = new JPanel(new GridLayout(3,2,6,6));
             p.add(new JLabel("Booking ID:")); p.add(new JLabel(String.valueOf(bookingId)));
-            p.add(new JLabel("Total amount:")); p.add(new JLabel(String.format("%.2f", total)));
+            p.add(new JLabel("Total amount:")); p.add(new JLabel(total.toString()));
             p.add(new JLabel("Payment Method:"));
             JComboBox<String> pm = new JComboBox<>(new String[]{"CASH","GOOGLEPAY"});
             p.add(pm);
@@ -382,29 +374,7 @@ public class CustomerDashboard extends JFrame {
                 if (gpn == null || gpn.trim().isEmpty()) { JOptionPane.showMessageDialog(this, "GooglePay number required"); return; }
             }
 
-            // insert payment
-            try (PreparedStatement pins = conn.prepareStatement("INSERT INTO payments(user_id, booking_id, amount, status, payment_method, googlepay_number, qr_code, pin) VALUES(?,?,?,?,?,?,?,?)")) {
-                pins.setInt(1, userId);
-                pins.setInt(2, bookingId);
-                pins.setDouble(3, total);
-                pins.setString(4, "PAID");
-                pins.setString(5, method);
-                pins.setString(6, gpn);
-                pins.setString(7, null);
-                pins.setString(8, null);
-                pins.executeUpdate();
-            }
-
-            try (PreparedStatement pup = conn.prepareStatement("UPDATE bookings SET payment_status='PAID' WHERE id=?")) {
-                pup.setInt(1, bookingId);
-                pup.executeUpdate();
-            }
-
-            JOptionPane.showMessageDialog(this, "Payment successful");
-            loadBookings();
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Payment error: " + ex.getMessage());
-        }
+            payWithRetry(button, bookingId, total, method, gpn, PaymentService.newIdempotencyKey());
+        }, "Payment error: ");
     }
 }
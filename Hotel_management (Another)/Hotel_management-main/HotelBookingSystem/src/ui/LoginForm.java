@@ -1,6 +1,7 @@
 package ui;
 
 import db.Database;
+import db.Migrations;
 import javax.swing.*;
 import java.awt.*;
 import java.sql.*;
@@ -11,6 +12,12 @@ public class LoginForm extends JFrame {
     JComboBox<String> cbRole = new JComboBox<>(new String[]{"CUSTOMER", "OWNER"});
     JButton btnLogin = new JButton("Login");
     JButton btnRegister = new JButton("Register");
+    JLabel status = new JLabel(" ", SwingConstants.CENTER);
+    // login waits for the startup migration on a loader thread, never on the EDT
+    private final AsyncLoader loader = new AsyncLoader(this, status);
+    // set when the startup migration failed; logins then go ahead on the existing schema, as Main does
+    private static volatile Exception migrationFailure;
+    private static boolean migrationReported;
 
     public LoginForm() {
         setTitle("Hotel Booking - Login");
@@ -27,7 +34,7 @@ public class LoginForm extends JFrame {
         form.add(new JLabel("Login as:")); form.add(cbRole);
         form.add(btnLogin); form.add(btnRegister);
 
-        add(new JLabel(" ", SwingConstants.CENTER), BorderLayout.NORTH);
+        add(status, BorderLayout.NORTH);
         add(form, BorderLayout.CENTER);
 
         // Only allow registration for customers
@@ -48,25 +55,40 @@ public class LoginForm extends JFrame {
         String pass = new String(txtPass.getPassword());
         String role = cbRole.getSelectedItem().toString();
 
-        try (Connection conn = Database.connect();
-             PreparedStatement ps = conn.prepareStatement(
-                     "SELECT * FROM users WHERE username=? AND password=? AND user_type=?")) {
-            ps.setString(1, user);
-            ps.setString(2, pass);
-            ps.setString(3, role);
-            ResultSet rs = ps.executeQuery();
-
-            if (rs.next()) {
-                int userId = rs.getInt("id");
-                if (role.equalsIgnoreCase("OWNER")) new OwnerDashboardClean(userId);
-                else new CustomerDashboard(userId);
-                dispose();
-            } else {
+        loader.load("login", () -> {
+            // no-op once the startup migration (Main's warm-up thread) has run; waits for it if it is still in progress
+            if (migrationFailure == null) {
+                try {
+                    Migrations.apply();
+                } catch (Exception ex) {
+                    migrationFailure = ex;
+                }
+            }
+            try (Connection conn = Database.connect();
+                 PreparedStatement ps = conn.prepareStatement(
+                         "SELECT * FROM users WHERE username=? AND password=? AND user_type=?")) {
+                ps.setString(1, user);
+                ps.setString(2, pass);
+                ps.setString(3, role);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getInt("id") : -1;
+                }
+            }
+        }, userId -> {
+            if (migrationFailure != null && !migrationReported) {
+                migrationReported = true;
+                JOptionPane.showMessageDialog(this, "Schema migration failed: " + migrationFailure.getMessage()
+                        + "\nContinuing with the existing schema.", "Database", JOptionPane.WARNING_MESSAGE);
+            }
+            if (userId < 0) {
                 JOptionPane.showMessageDialog(this, "Invalid credentials or role mismatch");
+                return;
             }
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage());
-        }
+            // drop a second click queued behind this one so it cannot open another dashboard
+            loader.cancelAll();
+            if (role.equalsIgnoreCase("OWNER")) new OwnerDashboardClean(userId);
+            else new CustomerDashboard(userId);
+            dispose();
+        }, "Error: ");
     }
 }
@@ -1,16 +1,64 @@
 package ui;
 
 import db.Database;
+import db.SchemaInfo;
+import model.Money;
+import model.Room;
+import service.AnalyticsEngine;
+import service.AvailabilityIndex;
+import service.BookingConflictException;
+import service.BookingService;
+import service.BulkBookingImporter;
+import service.EventBus;
+import service.ExportService;
+import service.PaymentService;
+import service.RatingStore;
+import service.ReviewSearchIndex;
+import service.ReviewService;
+import service.RoomSearchIndex;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class OwnerDashboardClean extends JFrame {
     private final int ownerId;
     private final JTable roomsTable = new JTable();
     private final JTable bookingsTable = new JTable();
     private final JTable customersTable = new JTable();
+    private final JTable reportsTable = new JTable();
+    private final JLabel reportsSummary = new JLabel(" ");
+    private final JLabel statusLabel = new JLabel(" ");
+    private final AsyncLoader loader = new AsyncLoader(this, statusLabel);
+    // tab -> its first load, removed once run; tabs load when first selected or when prefetched after the first paint
+    private final Map<Component, Runnable> tabLoads = new LinkedHashMap<>();
+    // startup timing, logged once each
+    private final long openedAt = System.nanoTime();
+    private boolean firstPaintLogged;
+    private boolean firstRoomsLogged;
+    // true while the Reviews tab lists every review rather than search hits
+    private boolean reviewsListed;
+    // Bookings and payments grow without bound, so they page in from the DB as the user scrolls;
+    // changes published on the event bus are patched in row by row
+    private final PagedTableModel bookingsModel = new PagedTableModel(new String[]{"ID","User","Room#","Start","End","Status","Payment"},
+            PagedTableModel.keyset("b.id, u.username, r.room_number, b.start_date, b.end_date, b.status, b.payment_status",
+                    "bookings b JOIN users u ON b.user_id=u.id JOIN rooms r ON b.room_id=r.id", "b.id",
+                    "b.id", new int[]{0}, "b.id < ?", new int[]{0}, "b.id DESC",
+                    "SELECT COUNT(*) FROM bookings"), 200, 50);
+    private final PagedTableModel paymentsModel = new PagedTableModel(new String[]{"ID","User","BookingID","Amount","Status","Method","GPay","QR","Created At"},
+            PagedTableModel.keyset("p.id, u.username, p.booking_id, p.amount, p.status, p.payment_method, p.googlepay_number, p.qr_code, p.created_at",
+                    "payments p JOIN users u ON p.user_id=u.id", "p.id",
+                    "p.created_at, p.id", new int[]{8, 0}, "(p.created_at < ? OR (p.created_at = ? AND p.id < ?))", new int[]{0, 0, 1},
+                    "p.created_at DESC, p.id DESC", "SELECT COUNT(*) FROM payments"), 200, 50);
 
     public OwnerDashboardClean(int ownerId) {
         this.ownerId = ownerId;
@@ -23,7 +71,9 @@ public class OwnerDashboardClean extends JFrame {
         JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
         JButton back = new JButton("Back");
         JButton spot = new JButton("Spot Book");
-        top.add(back); top.add(spot);
+        JButton importBtn = new JButton("Import CSV");
+        JButton exportBtn = new JButton("Export");
+        top.add(back); top.add(spot); top.add(importBtn); top.add(exportBtn); top.add(statusLabel);
         add(top, BorderLayout.NORTH);
 
     JTabbedPane tabs = new JTabbedPane();
@@ -40,11 +90,19 @@ public class OwnerDashboardClean extends JFrame {
     JTable reviewsTable = new JTable();
     JPanel reviewsPanel = new JPanel(new BorderLayout());
     reviewsPanel.add(new JScrollPane(reviewsTable), BorderLayout.CENTER);
+    JPanel reviewsSearch = new JPanel(new FlowLayout(FlowLayout.LEFT));
+    JTextField reviewQuery = new JTextField(24);
+    JButton searchReviewsBtn = new JButton("Search");
+    JButton allReviewsBtn = new JButton("Show All");
+    reviewsSearch.add(new JLabel("Find in reviews:")); reviewsSearch.add(reviewQuery);
+    reviewsSearch.add(searchReviewsBtn); reviewsSearch.add(allReviewsBtn);
+    reviewsPanel.add(reviewsSearch, BorderLayout.NORTH);
     // reviewsPanel is read-only for owners (owners can view reviews only)
     reviewsPanel.add(new JPanel(), BorderLayout.SOUTH);
 
     // Payments panel
-    JTable paymentsTable = new JTable();
+    JTable paymentsTable = new JTable(paymentsModel);
+    bookingsTable.setModel(bookingsModel);
     JPanel paymentsPanel = new JPanel(new BorderLayout());
     paymentsPanel.add(new JScrollPane(paymentsTable), BorderLayout.CENTER);
     JPanel payActions = new JPanel(new FlowLayout(FlowLayout.RIGHT));
@@ -61,29 +119,140 @@ public class OwnerDashboardClean extends JFrame {
     JPanel bookingsActions = new JPanel(new FlowLayout(FlowLayout.RIGHT));
     JButton viewBookingBtn = new JButton("View Booking");
     JButton markBookingPaidBtn = new JButton("Mark Paid");
-    bookingsActions.add(viewBookingBtn); bookingsActions.add(markBookingPaidBtn);
+    JButton refreshBookingsBtn = new JButton("Refresh");
+    bookingsActions.add(refreshBookingsBtn); bookingsActions.add(viewBookingBtn); bookingsActions.add(markBookingPaidBtn);
     bookingsPanel.add(bookingsActions, BorderLayout.SOUTH);
     tabs.add("Bookings", bookingsPanel);
-    tabs.add("Customers", new JScrollPane(customersTable));
+    JScrollPane customersPanel = new JScrollPane(customersTable);
+    tabs.add("Customers", customersPanel);
     tabs.add("Reviews", reviewsPanel);
     tabs.add("Payments", paymentsPanel);
+
+    // Reports panel: occupancy / ADR / RevPAR per period and room type
+    JPanel reportsPanel = new JPanel(new BorderLayout());
+    JPanel reportsControls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+    java.time.LocalDate today = java.time.LocalDate.now();
+    JTextField reportFrom = new JTextField(today.withDayOfYear(1).toString(), 10);
+    JTextField reportTo = new JTextField(today.withDayOfYear(1).plusYears(1).minusDays(1).toString(), 10);
+    JComboBox<AnalyticsEngine.Period> reportPeriod = new JComboBox<>(AnalyticsEngine.Period.values());
+    reportPeriod.setSelectedItem(AnalyticsEngine.Period.MONTH);
+    JButton runReportBtn = new JButton("Refresh");
+    reportsControls.add(new JLabel("From:")); reportsControls.add(reportFrom);
+    reportsControls.add(new JLabel("To:")); reportsControls.add(reportTo);
+    reportsControls.add(new JLabel("By:")); reportsControls.add(reportPeriod);
+    reportsControls.add(runReportBtn);
+    reportsPanel.add(reportsControls, BorderLayout.NORTH);
+    reportsPanel.add(new JScrollPane(reportsTable), BorderLayout.CENTER);
+    reportsPanel.add(reportsSummary, BorderLayout.SOUTH);
+    tabs.add("Reports", reportsPanel);
         add(tabs, BorderLayout.CENTER);
 
         back.addActionListener(e -> { new LoginForm(); dispose(); });
-        spot.addActionListener(e -> spotBookDialog());
-
-    loadRooms(); loadBookings(); loadCustomers(); loadReviews(reviewsTable);
-    loadPayments(paymentsTable);
-    // wire room actions
-    addRoomBtn.addActionListener(e -> addRoomDialog());
-    updateRoomBtn.addActionListener(e -> updateRoomDialog());
-    addPaymentBtn.addActionListener(e -> addPaymentDialog());
-    markPaidBtn.addActionListener(e -> markBookingPaid(paymentsTable));
-    refreshPaymentsBtn.addActionListener(e -> loadPayments(paymentsTable));
+        spot.addActionListener(e -> spotBookDialog(spot));
+        importBtn.addActionListener(e -> importBookingsDialog());
+        exportBtn.addActionListener(e -> exportDialog());
+
+    tabLoads.put(roomsPanel, this::loadRooms);
+    tabLoads.put(bookingsPanel, this::loadBookings);
+    tabLoads.put(customersPanel, this::loadCustomers);
+    tabLoads.put(reviewsPanel, () -> {
+        loadReviews(reviewsTable);
+        // open the review text index in the background so the first search does not wait for it
+        loader.load("review index", ReviewSearchIndex::get, idx -> { }, null);
+    });
+    tabLoads.put(paymentsPanel, this::loadPayments);
+    // the visible tab goes to the loader pool first; the rest follow once the window has painted
+    loadTab(tabs.getSelectedComponent());
+    tabs.addChangeListener(e -> loadTab(tabs.getSelectedComponent()));
+    // wire room actions; writes run on the loader pool with their button disabled until they return
+    addRoomBtn.addActionListener(e -> addRoomDialog(addRoomBtn));
+    updateRoomBtn.addActionListener(e -> updateRoomDialog(updateRoomBtn));
+    addPaymentBtn.addActionListener(e -> addPaymentDialog(addPaymentBtn));
+    markPaidBtn.addActionListener(e -> markBookingPaid(markPaidBtn, paymentsTable));
+    refreshPaymentsBtn.addActionListener(e -> loadPayments());
+    searchReviewsBtn.addActionListener(e -> searchReviews(reviewsTable, reviewQuery.getText()));
+    reviewQuery.addActionListener(e -> searchReviews(reviewsTable, reviewQuery.getText()));
+    allReviewsBtn.addActionListener(e -> { reviewQuery.setText(""); loadReviews(reviewsTable); });
+    runReportBtn.addActionListener(e -> loadReport(reportFrom.getText(), reportTo.getText(), (AnalyticsEngine.Period) reportPeriod.getSelectedItem()));
+    // the rollup needs a pass over every booking, so it is only built once the tab is opened
+    tabs.addChangeListener(e -> { if (tabs.getSelectedComponent() == reportsPanel && reportsTable.getRowCount() == 0) runReportBtn.doClick(); });
     // owner cannot add reviews here; review creation is customer-only
-    viewBookingBtn.addActionListener(e -> viewBookingDialog());
-    markBookingPaidBtn.addActionListener(e -> markSelectedBookingPaid());
+    viewBookingBtn.addActionListener(e -> viewBookingDialog(viewBookingBtn));
+    markBookingPaidBtn.addActionListener(e -> markSelectedBookingPaid(markBookingPaidBtn));
+    refreshBookingsBtn.addActionListener(e -> loadBookings());
+    // bookings, payments and reviews made anywhere (customers, the API, other processes on the bus) show up as they commit
+    Runnable unsubscribe = EventBus.get().subscribe(ev -> SwingUtilities.invokeLater(() -> applyEvent(ev, reviewsTable)));
+    addWindowListener(new WindowAdapter() {
+        @Override
+        public void windowClosed(WindowEvent e) { unsubscribe.run(); }
+    });
         setVisible(true);
+        SwingUtilities.invokeLater(() -> new ArrayList<>(tabLoads.keySet()).forEach(this::loadTab));
+    }
+
+    // Patches the rows a committed change touches instead of reloading the tables
+    private void applyEvent(EventBus.Event e, JTable reviewsTable) {
+        switch (e.getType()) {
+            case BOOKED:
+                bookingsModel.rowAdded(e.getBookingId());
+                break;
+            case CANCELLED:
+                bookingsModel.rowChanged(e.getBookingId());
+                break;
+            case PAID:
+                bookingsModel.rowChanged(e.getBookingId());
+                if (e.getPaymentId() > 0) paymentsModel.rowAdded(e.getPaymentId());
+                break;
+            case REVIEWED:
+                reviewAdded(reviewsTable, e.getReviewId());
+                ratingChanged(e.getRoomId());
+                break;
+        }
+    }
+
+    private void reviewAdded(JTable reviewsTable, int reviewId) {
+        if (!reviewsListed) return;
+        loader.load("review #" + reviewId, () -> queryReviews(reviewId), m -> {
+            if (!reviewsListed || m.getRowCount() == 0) return;
+            DefaultTableModel shown = (DefaultTableModel) reviewsTable.getModel();
+            if (shown.getColumnCount() != m.getColumnCount()) return;
+            Object[] row = new Object[m.getColumnCount()];
+            for (int c = 0; c < row.length; c++) row[c] = m.getValueAt(0, c);
+            // newest first, as queryReviews orders them
+            shown.insertRow(0, row);
+        }, null);
+    }
+
+    // Updates the Rating cell of one room from the in-memory aggregates
+    private void ratingChanged(int roomId) {
+        RatingStore ratings = RatingStore.ifLoaded();
+        if (ratings == null || !(roomsTable.getModel() instanceof DefaultTableModel)) return;
+        DefaultTableModel m = (DefaultTableModel) roomsTable.getModel();
+        if (m.getColumnCount() < 6) return;
+        for (int i = 0; i < m.getRowCount(); i++) {
+            if (Integer.valueOf(roomId).equals(m.getValueAt(i, 0))) {
+                m.setValueAt(ratings.of(roomId), i, 5);
+                return;
+            }
+        }
+    }
+
+    private void loadTab(Component tab) {
+        Runnable load = tabLoads.remove(tab);
+        if (load != null) load.run();
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!firstPaintLogged) {
+            firstPaintLogged = true;
+            logStartup("first paint");
+        }
+    }
+
+    private void logStartup(String event) {
+        System.out.println("Owner dashboard: " + event + " after " + (System.nanoTime() - openedAt) / 1_000_000 + " ms");
     }
 
     private void addReviewDialog(JTable reviewsTable) {
@@ -103,57 +272,83 @@ public class OwnerDashboardClean extends JFrame {
             int rid = Integer.parseInt(roomField.getText().trim());
             int rating = 5; try { rating = Integer.parseInt(ratingField.getText().trim()); if (rating<1||rating>5) rating=5; } catch (Exception ignore) {}
             String review = reviewArea.getText();
-            try (Connection conn = Database.connect(); PreparedStatement ps = conn.prepareStatement("INSERT INTO reviews(user_id, room_id, review_text, rating, created_at) VALUES(?,?,?,?,CURRENT_TIMESTAMP)")) {
-                ps.setInt(1, uid); ps.setInt(2, rid); ps.setString(3, review); ps.setInt(4, rating); ps.executeUpdate();
-                JOptionPane.showMessageDialog(this, "Review added");
-                loadReviews(reviewsTable);
-            }
+            ReviewService.get().submit(uid, rid, review, rating);
+            JOptionPane.showMessageDialog(this, "Review added");
         } catch (Exception ex) { ex.printStackTrace(); JOptionPane.showMessageDialog(this, "Add review error: " + ex.getMessage()); }
     }
 
     private void loadReviews(JTable reviewsTable) {
-        // Try to load reviews, accounting for different possible column names for text (review_text or comment)
-        String qWithReviewText = "SELECT r.id, u.name AS user_name, rm.room_number, r.rating, r.review_text AS comment_text, r.created_at FROM reviews r JOIN users u ON r.user_id=u.id JOIN rooms rm ON r.room_id=rm.id ORDER BY r.created_at DESC";
-        String qWithComment = "SELECT r.id, u.name AS user_name, rm.room_number, r.rating, r.comment AS comment_text, r.created_at FROM reviews r JOIN users u ON r.user_id=u.id JOIN rooms rm ON r.room_id=rm.id ORDER BY r.created_at DESC";
-        String qNoText = "SELECT r.id, u.name AS user_name, rm.room_number, r.rating, r.created_at FROM reviews r JOIN users u ON r.user_id=u.id JOIN rooms rm ON r.room_id=rm.id ORDER BY r.created_at DESC";
-        try (Connection conn = Database.connect(); Statement st = conn.createStatement()) {
-            // prefer review_text
-            try (ResultSet rs = st.executeQuery(qWithReviewText)) {
-                DefaultTableModel model = new DefaultTableModel(new Object[]{"ID","User","Room","Rating","Comment","Created At"}, 0);
-                while (rs.next()) {
-                    model.addRow(new Object[]{rs.getInt("id"), rs.getString("user_name"), rs.getString("room_number"), rs.getInt("rating"), rs.getString("comment_text"), rs.getTimestamp("created_at")});
-                }
-                reviewsTable.setModel(model);
-                return;
-            } catch (SQLException ignore1) {
-                // try comment column
-                try (ResultSet rs2 = st.executeQuery(qWithComment)) {
-                    DefaultTableModel model2 = new DefaultTableModel(new Object[]{"ID","User","Room","Rating","Comment","Created At"}, 0);
-                    while (rs2.next()) {
-                        model2.addRow(new Object[]{rs2.getInt("id"), rs2.getString("user_name"), rs2.getString("room_number"), rs2.getInt("rating"), rs2.getString("comment_text"), rs2.getTimestamp("created_at")});
-                    }
-                    reviewsTable.setModel(model2);
-                    return;
-                } catch (SQLException ignore2) {
-                    // try without any text column
-                    try (ResultSet rs3 = st.executeQuery(qNoText)) {
-                        DefaultTableModel model3 = new DefaultTableModel(new Object[]{"ID","User","Room","Rating","Created At"}, 0);
-                        while (rs3.next()) {
-                            model3.addRow(new Object[]{rs3.getInt("id"), rs3.getString("user_name"), rs3.getString("room_number"), rs3.getInt("rating"), rs3.getTimestamp("created_at")});
-                        }
-                        reviewsTable.setModel(model3);
-                        return;
+        loader.load("reviews", () -> queryReviews(0), m -> {
+            reviewsTable.setModel(m);
+            reviewsListed = true;
+        }, null);
+    }
+
+    // Ranked full-text search; the matching rows are then fetched by id in one query
+    private void searchReviews(JTable reviewsTable, String query) {
+        if (query.trim().isEmpty()) { loadReviews(reviewsTable); return; }
+        loader.load("reviews", () -> {
+            List<ReviewSearchIndex.Hit> hits = ReviewSearchIndex.get().search(query, 200);
+            String textColumn = reviewTextColumn();
+            DefaultTableModel model = new DefaultTableModel(textColumn != null
+                    ? new Object[]{"ID","User","Room","Rating","Comment","Created At","Score"}
+                    : new Object[]{"ID","User","Room","Rating","Created At","Score"}, 0);
+            if (hits.isEmpty()) return model;
+            StringBuilder sql = new StringBuilder("SELECT r.id, u.name AS user_name, rm.room_number, r.rating, " + (textColumn != null ? "r." + textColumn + " AS comment_text, " : "")
+                    + "r.created_at FROM reviews r JOIN users u ON r.user_id=u.id JOIN rooms rm ON r.room_id=rm.id WHERE r.id IN (");
+            for (int i = 0; i < hits.size(); i++) sql.append(i == 0 ? "?" : ",?");
+            sql.append(')');
+            Map<Integer, Object[]> rows = new HashMap<>();
+            try (Connection conn = Database.connect(); PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < hits.size(); i++) ps.setInt(i + 1, hits.get(i).getReviewId());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (textColumn != null) rows.put(rs.getInt("id"), new Object[]{rs.getInt("id"), rs.getString("user_name"), rs.getString("room_number"), rs.getInt("rating"), rs.getString("comment_text"), rs.getTimestamp("created_at"), null});
+                        else rows.put(rs.getInt("id"), new Object[]{rs.getInt("id"), rs.getString("user_name"), rs.getString("room_number"), rs.getInt("rating"), rs.getTimestamp("created_at"), null});
                     }
                 }
             }
-        } catch (Exception ex) {
-            ex.printStackTrace();
+            for (ReviewSearchIndex.Hit hit : hits) {
+                Object[] row = rows.get(hit.getReviewId());
+                if (row == null) continue;
+                row[row.length - 1] = String.format("%.2f", hit.getScore());
+                model.addRow(row);
+            }
+            return model;
+        }, m -> {
+            reviewsTable.setModel(m);
+            reviewsListed = false;
+        }, "Review search error: ");
+    }
+
+    // Every review, newest first, or just the one with reviewId when it is non-zero
+    private DefaultTableModel queryReviews(int reviewId) throws Exception {
+        String textColumn = reviewTextColumn();
+        String sql = "SELECT r.id, u.name AS user_name, rm.room_number, r.rating, " + (textColumn != null ? "r." + textColumn + " AS comment_text, " : "")
+                + "r.created_at FROM reviews r JOIN users u ON r.user_id=u.id JOIN rooms rm ON r.room_id=rm.id"
+                + (reviewId != 0 ? " WHERE r.id=?" : "") + " ORDER BY r.created_at DESC";
+        DefaultTableModel model = new DefaultTableModel(textColumn != null
+                ? new Object[]{"ID","User","Room","Rating","Comment","Created At"}
+                : new Object[]{"ID","User","Room","Rating","Created At"}, 0);
+        try (Connection conn = Database.connect(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (reviewId != 0) ps.setInt(1, reviewId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (textColumn != null) model.addRow(new Object[]{rs.getInt("id"), rs.getString("user_name"), rs.getString("room_number"), rs.getInt("rating"), rs.getString("comment_text"), rs.getTimestamp("created_at")});
+                    else model.addRow(new Object[]{rs.getInt("id"), rs.getString("user_name"), rs.getString("room_number"), rs.getInt("rating"), rs.getTimestamp("created_at")});
+                }
+            }
         }
-        // If we reach here, set empty model
-        reviewsTable.setModel(new DefaultTableModel(new Object[]{"ID","User","Room","Rating","Comment","Created At"}, 0));
+        return model;
     }
 
-    private void addRoomDialog() {
+    // Older databases name the review text column "comment" or have none (null); read from the cached schema
+    private static String reviewTextColumn() throws Exception {
+        SchemaInfo schema = SchemaInfo.get();
+        return schema.hasColumn("reviews", "review_text") ? "review_text" : schema.hasColumn("reviews", "comment") ? "comment" : null;
+    }
+
+    private void addRoomDialog(JButton button) {
         JTextField numberField = new JTextField();
         JTextField typeField = new JTextField();
         JTextField priceField = new JTextField();
@@ -167,27 +362,43 @@ public class OwnerDashboardClean extends JFrame {
                 JOptionPane.showMessageDialog(this, "All fields required", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
+            Money price;
             try {
-                double price = Double.parseDouble(priceS);
+                price = Money.parse(priceS);
+            } catch (NumberFormatException nf) {
+                JOptionPane.showMessageDialog(this, "Price must be numeric", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            loader.submit(button, () -> {
                 try (Connection conn = Database.connect();
-                     PreparedStatement ps = conn.prepareStatement("INSERT INTO rooms(room_number, type, price, available) VALUES(?,?,?,1)")) {
+                     PreparedStatement ps = conn.prepareStatement("INSERT INTO rooms(room_number, type, price) VALUES(?,?,?)", Statement.RETURN_GENERATED_KEYS)) {
                     ps.setString(1, number);
                     ps.setString(2, type);
-                    ps.setDouble(3, price);
+                    ps.setBigDecimal(3, price.toBigDecimal());
                     ps.executeUpdate();
-                    JOptionPane.showMessageDialog(this, "Room added");
-                    loadRooms();
+                    try (ResultSet gk = ps.getGeneratedKeys()) {
+                        if (gk.next()) {
+                            AvailabilityIndex.get().addRoom(gk.getInt(1));
+                            RoomSearchIndex search = RoomSearchIndex.ifLoaded();
+                            if (search != null) search.put(new Room(gk.getInt(1), number, type, price, true));
+                        }
+                    }
+                    AnalyticsEngine.get().invalidate();
+                    return null;
                 }
-            } catch (NumberFormatException nf) {
-                JOptionPane.showMessageDialog(this, "Price must be numeric", "Error", JOptionPane.ERROR_MESSAGE);
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                JOptionPane.showMessageDialog(this, "DB error: "+ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            }, done -> {
+                JOptionPane.showMessageDialog(this, "Room added");
+                loadRooms();
+            }, this::showDbError);
         }
     }
 
-    private void updateRoomDialog() {
+    private void showDbError(Exception ex) {
+        ex.printStackTrace();
+        JOptionPane.showMessageDialog(this, "DB error: "+ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    private void updateRoomDialog(JButton button) {
         int sel = roomsTable.getSelectedRow();
         if (sel < 0) { JOptionPane.showMessageDialog(this, "Select a room first"); return; }
         DefaultTableModel m = (DefaultTableModel) roomsTable.getModel();
@@ -201,67 +412,93 @@ public class OwnerDashboardClean extends JFrame {
         JTextField numberField = new JTextField(currentNumber);
         JTextField typeField = new JTextField(currentType);
         JTextField priceField = new JTextField(currentPrice);
-        JCheckBox availableBox = new JCheckBox("Available", Boolean.parseBoolean(m.getValueAt(sel,4).toString()));
-        Object[] form = {"Room Number:", numberField, "Type:", typeField, "Price:", priceField, "", availableBox};
+        Object[] form = {"Room Number:", numberField, "Type:", typeField, "Price:", priceField};
         int ok = JOptionPane.showConfirmDialog(this, form, "Update Room", JOptionPane.OK_CANCEL_OPTION);
         if (ok == JOptionPane.OK_OPTION) {
+            Money price;
             try {
-                double price = Double.parseDouble(priceField.getText().trim());
-                boolean avail = availableBox.isSelected();
-                try (Connection conn = Database.connect();
-                     PreparedStatement ps = conn.prepareStatement("UPDATE rooms SET room_number=?, type=?, price=?, available=? WHERE id=?")) {
-                    ps.setString(1, numberField.getText().trim());
-                    ps.setString(2, typeField.getText().trim());
-                    ps.setDouble(3, price);
-                    ps.setBoolean(4, avail);
-                    ps.setInt(5, id);
-                    ps.executeUpdate();
-                    JOptionPane.showMessageDialog(this, "Room updated");
-                    loadRooms();
-                }
+                price = Money.parse(priceField.getText());
             } catch (NumberFormatException nf) {
                 JOptionPane.showMessageDialog(this, "Price must be numeric", "Error", JOptionPane.ERROR_MESSAGE);
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                JOptionPane.showMessageDialog(this, "DB error: "+ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
+            String number = numberField.getText().trim();
+            String type = typeField.getText().trim();
+            loader.submit(button, () -> {
+                try (Connection conn = Database.connect();
+                     PreparedStatement ps = conn.prepareStatement("UPDATE rooms SET room_number=?, type=?, price=? WHERE id=?")) {
+                    ps.setString(1, number);
+                    ps.setString(2, type);
+                    ps.setBigDecimal(3, price.toBigDecimal());
+                    ps.setInt(4, id);
+                    ps.executeUpdate();
+                    RoomSearchIndex search = RoomSearchIndex.ifLoaded();
+                    if (search != null) search.put(new Room(id, number, type, price, true));
+                    AnalyticsEngine.get().invalidate();
+                    return null;
+                }
+            }, done -> {
+                JOptionPane.showMessageDialog(this, "Room updated");
+                loadRooms();
+            }, this::showDbError);
         }
     }
     private void loadRooms() {
-        try (Connection c = Database.connect(); Statement s = c.createStatement(); ResultSet rs = s.executeQuery("SELECT id, room_number, type, price, available FROM rooms ORDER BY room_number")) {
-            DefaultTableModel m = new DefaultTableModel(new String[]{"ID","Room#","Type","Price","Available"},0);
-            while (rs.next()) m.addRow(new Object[]{rs.getInt("id"), rs.getString("room_number"), rs.getString("type"), rs.getDouble("price"), rs.getBoolean("available")});
+        loader.load("rooms", () -> {
+            RatingStore ratings = RatingStore.get();
+            // free tonight comes from the bookings, not the retired rooms.available flag
+            AvailabilityIndex availability = AvailabilityIndex.get();
+            LocalDate today = LocalDate.now();
+            try (Connection c = Database.connect(); Statement s = c.createStatement(); ResultSet rs = s.executeQuery("SELECT id, room_number, type, price FROM rooms ORDER BY room_number")) {
+                DefaultTableModel m = new DefaultTableModel(new String[]{"ID","Room#","Type","Price","Free Today","Rating"},0);
+                while (rs.next()) {
+                    int id = rs.getInt("id");
+                    m.addRow(new Object[]{id, rs.getString("room_number"), rs.getString("type"), Money.of(rs.getBigDecimal("price")), availability.isFree(id, today, today.plusDays(1)), ratings.of(id)});
+                }
+                return m;
+            }
+        }, m -> {
             roomsTable.setModel(m);
-        } catch (Exception ex) { ex.printStackTrace(); }
+            if (!firstRoomsLogged) {
+                firstRoomsLogged = true;
+                logStartup("rooms shown");
+            }
+        }, null);
     }
 
     private void loadBookings() {
-        try (Connection c = Database.connect(); Statement s = c.createStatement(); ResultSet rs = s.executeQuery("SELECT b.id, u.username, r.room_number, b.start_date, b.end_date FROM bookings b JOIN users u ON b.user_id=u.id JOIN rooms r ON b.room_id=r.id ORDER BY b.id DESC")) {
-            DefaultTableModel m = new DefaultTableModel(new String[]{"ID","User","Room#","Start","End"},0);
-            while (rs.next()) m.addRow(new Object[]{rs.getInt(1), rs.getString(2), rs.getString(3), rs.getDate(4), rs.getDate(5)});
-            bookingsTable.setModel(m);
-        } catch (Exception ex) { ex.printStackTrace(); }
+        bookingsModel.refresh();
     }
 
     private void loadCustomers() {
-        try (Connection c = Database.connect()) {
-            try (Statement st = c.createStatement()) { st.executeUpdate("ALTER TABLE users ADD COLUMN created_by_owner BOOLEAN NOT NULL DEFAULT FALSE"); } catch (SQLException ignore) {}
-            try (PreparedStatement ps = c.prepareStatement("SELECT id, name, username, COALESCE(created_by_owner, FALSE) AS created_by_owner FROM users WHERE user_type='CUSTOMER' ORDER BY username")) {
-                ResultSet rs = ps.executeQuery(); DefaultTableModel m = new DefaultTableModel(new String[]{"ID","Name","Username","SpotCreated"},0);
-                while (rs.next()) m.addRow(new Object[]{rs.getInt(1), rs.getString(2), rs.getString(3), rs.getBoolean(4)});
-                customersTable.setModel(m);
+        loader.load("customers", () -> {
+            String spotCreated = SchemaInfo.get().hasColumn("users", "created_by_owner") ? "COALESCE(created_by_owner, FALSE)" : "FALSE";
+            try (Connection c = Database.connect()) {
+                try (PreparedStatement ps = c.prepareStatement("SELECT id, name, username, " + spotCreated + " AS created_by_owner FROM users WHERE user_type='CUSTOMER' ORDER BY username")) {
+                    ResultSet rs = ps.executeQuery(); DefaultTableModel m = new DefaultTableModel(new String[]{"ID","Name","Username","SpotCreated"},0);
+                    while (rs.next()) m.addRow(new Object[]{rs.getInt(1), rs.getString(2), rs.getString(3), rs.getBoolean(4)});
+                    return m;
+                }
             }
-        } catch (Exception ex) { ex.printStackTrace(); }
+        }, customersTable::setModel, null);
     }
 
-    private void spotBookDialog() {
-        try (Connection conn = Database.connect()) {
-            DefaultComboBoxModel<String> custModel = new DefaultComboBoxModel<>();
-            try (PreparedStatement p = conn.prepareStatement("SELECT id, username FROM users WHERE user_type='CUSTOMER' ORDER BY username")) { try (ResultSet r = p.executeQuery()) { while (r.next()) custModel.addElement(r.getInt(1)+":"+r.getString(2)); } }
+    // Loads the customer and room pickers in the background, then opens the dialog on the EDT
+    private void spotBookDialog(JButton button) {
+        loader.load("spot book", () -> {
+            try (Connection conn = Database.connect()) {
+                DefaultComboBoxModel<String> custModel = new DefaultComboBoxModel<>();
+                try (PreparedStatement p = conn.prepareStatement("SELECT id, username FROM users WHERE user_type='CUSTOMER' ORDER BY username")) { try (ResultSet r = p.executeQuery()) { while (r.next()) custModel.addElement(r.getInt(1)+":"+r.getString(2)); } }
 
-            DefaultComboBoxModel<String> roomModel = new DefaultComboBoxModel<>();
-            try (PreparedStatement p = conn.prepareStatement("SELECT id, room_number, available, price FROM rooms ORDER BY room_number")) { try (ResultSet r = p.executeQuery()) { while (r.next()) roomModel.addElement(r.getInt(1)+":"+r.getString(2)+"|"+r.getBoolean(3)+"|"+r.getDouble(4)); } }
+                DefaultComboBoxModel<String> roomModel = new DefaultComboBoxModel<>();
+                try (PreparedStatement p = conn.prepareStatement("SELECT id, room_number, price FROM rooms ORDER BY room_number")) { try (ResultSet r = p.executeQuery()) { while (r.next()) roomModel.addElement(r.getInt(1)+":"+r.getString(2)+"|"+r.getBigDecimal(3)); } }
+                return java.util.List.of(custModel, roomModel);
+            }
+        }, models -> showSpotBookDialog(button, models.get(0), models.get(1)), "Spot booking error: ");
+    }
 
+    private void showSpotBookDialog(JButton button, DefaultComboBoxModel<String> custModel, DefaultComboBoxModel<String> roomModel) {
+        try {
             JComboBox<String> custCombo = new JComboBox<>(custModel);
             JButton newCustomerBtn = new JButton("New Customer");
             JComboBox<String> roomCombo = new JComboBox<>(roomModel);
@@ -290,10 +527,12 @@ public class OwnerDashboardClean extends JFrame {
                 String em = emailField.getText().trim();
                 String ph = phoneField.getText().trim();
                 if (nm.isEmpty() || un.isEmpty() || pw.isEmpty()) { JOptionPane.showMessageDialog(this, "Name, username and password required"); return; }
-                try (PreparedStatement ins = conn.prepareStatement("INSERT INTO users(name, username, password, email, phone, user_type, created_by_owner) VALUES(?,?,?,?,?,?,?)", Statement.RETURN_GENERATED_KEYS)) {
-                    ins.setString(1, nm); ins.setString(2, un); ins.setString(3, pw); ins.setString(4, em); ins.setString(5, ph); ins.setString(6, "CUSTOMER"); ins.setBoolean(7, true);
-                    ins.executeUpdate(); try (ResultSet gk = ins.getGeneratedKeys()) { if (gk.next()) { int newId = gk.getInt(1); custModel.addElement(newId + ":" + un); custCombo.setSelectedIndex(custModel.getSize()-1); loadCustomers(); } }
-                } catch (Exception ex) { ex.printStackTrace(); JOptionPane.showMessageDialog(this, "Create customer error: " + ex.getMessage()); }
+                loader.submit(newCustomerBtn, () -> {
+                    try (Connection conn = Database.connect(); PreparedStatement ins = conn.prepareStatement("INSERT INTO users(name, username, password, email, phone, user_type, created_by_owner) VALUES(?,?,?,?,?,?,?)", Statement.RETURN_GENERATED_KEYS)) {
+                        ins.setString(1, nm); ins.setString(2, un); ins.setString(3, pw); ins.setString(4, em); ins.setString(5, ph); ins.setString(6, "CUSTOMER"); ins.setBoolean(7, true);
+                        ins.executeUpdate(); try (ResultSet gk = ins.getGeneratedKeys()) { return gk.next() ? gk.getInt(1) : -1; }
+                    }
+                }, newId -> { if (newId > 0) { custModel.addElement(newId + ":" + un); custCombo.setSelectedIndex(custModel.getSize()-1); loadCustomers(); } }, "Create customer error: ");
             });
 
             int ok = JOptionPane.showConfirmDialog(this, ui, "Spot Book", JOptionPane.OK_CANCEL_OPTION);
@@ -301,23 +540,102 @@ public class OwnerDashboardClean extends JFrame {
             String cs = (String) custCombo.getSelectedItem(); String rs = (String) roomCombo.getSelectedItem(); if (cs==null||rs==null) { JOptionPane.showMessageDialog(this, "Select entries"); return; }
             int uid = Integer.parseInt(cs.split(":" )[0]); int rid = Integer.parseInt(rs.split(":" )[0]); java.sql.Date sd = java.sql.Date.valueOf(s.getText().trim()); java.sql.Date ed = java.sql.Date.valueOf(e.getText().trim());
 
-            try (PreparedStatement pin = conn.prepareStatement("INSERT INTO bookings(user_id, room_id, start_date, end_date, status, payment_status) VALUES(?,?,?,?,?,?)", Statement.RETURN_GENERATED_KEYS)) { pin.setInt(1, uid); pin.setInt(2, rid); pin.setDate(3, sd); pin.setDate(4, ed); pin.setString(5, "BOOKED"); pin.setString(6, markPaid.isSelected()?"PAID":"PENDING"); pin.executeUpdate(); }
-            try (PreparedStatement pup = conn.prepareStatement("UPDATE rooms SET available=FALSE WHERE id=?")) { pup.setInt(1, rid); pup.executeUpdate(); }
+            if (!ed.after(sd)) { JOptionPane.showMessageDialog(this, "End date must be after start date"); return; }
 
-            loadRooms(); loadBookings(); loadCustomers(); JOptionPane.showMessageDialog(this, "Spot booking saved");
+            // booking (and cash payment when marked paid) is written in one transaction that locks the room
+            String method = markPaid.isSelected() ? "CASH" : null;
+            loader.submit(button, () -> BookingService.get().reserve(uid, rid, sd.toLocalDate(), ed.toLocalDate(), method, null), res -> {
+                // the new booking (and payment) arrive through the event bus
+                loadRooms(); loadCustomers(); JOptionPane.showMessageDialog(this, "Spot booking saved");
+            }, ex -> {
+                if (ex instanceof BookingConflictException) { JOptionPane.showMessageDialog(this, ex.getMessage()); return; }
+                ex.printStackTrace(); JOptionPane.showMessageDialog(this, "Spot booking error: "+ex.getMessage());
+            });
         } catch (Exception ex) { ex.printStackTrace(); JOptionPane.showMessageDialog(this, "Spot booking error: "+ex.getMessage()); }
     }
 
+    // Group / walk-in bookings from a CSV file: customer,room,start,end,paid[,name[,phone]]
+    private void importBookingsDialog() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import bookings CSV");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        java.nio.file.Path file = chooser.getSelectedFile().toPath();
+        loader.load("import", () -> new BulkBookingImporter().importFile(file), result -> {
+            StringBuilder sb = new StringBuilder(result.summary());
+            int shown = 0;
+            for (BulkBookingImporter.RowError err : result.getErrors()) {
+                if (shown++ == 200) { sb.append("\n... ").append(result.getErrors().size() - 200).append(" more"); break; }
+                sb.append('\n').append(err);
+            }
+            JTextArea report = new JTextArea(sb.toString(), 15, 60);
+            report.setEditable(false);
+            JOptionPane.showMessageDialog(this, new JScrollPane(report), "Import Bookings", JOptionPane.INFORMATION_MESSAGE);
+            loadRooms(); loadBookings(); loadCustomers(); loadPayments();
+        }, "Import error: ");
+    }
+
+    // Streams bookings or payments to a CSV/JSON file in the background
+    private void exportDialog() {
+        JComboBox<ExportService.Dataset> what = new JComboBox<>(ExportService.Dataset.values());
+        JComboBox<ExportService.Format> format = new JComboBox<>(ExportService.Format.values());
+        java.time.LocalDate today = java.time.LocalDate.now();
+        JTextField fromField = new JTextField(today.withDayOfMonth(1).minusMonths(1).toString());
+        JTextField toField = new JTextField(today.withDayOfMonth(1).minusDays(1).toString());
+        JPanel p = new JPanel(new GridLayout(4,2,6,6));
+        p.add(new JLabel("Export:")); p.add(what);
+        p.add(new JLabel("Format:")); p.add(format);
+        p.add(new JLabel("From (YYYY-MM-DD, blank = all):")); p.add(fromField);
+        p.add(new JLabel("To (YYYY-MM-DD, blank = all):")); p.add(toField);
+        if (JOptionPane.showConfirmDialog(this, p, "Export", JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION) return;
+        java.time.LocalDate from, to;
+        try {
+            from = fromField.getText().trim().isEmpty() ? null : java.time.LocalDate.parse(fromField.getText().trim());
+            to = toField.getText().trim().isEmpty() ? null : java.time.LocalDate.parse(toField.getText().trim());
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, "Dates must be in YYYY-MM-DD format");
+            return;
+        }
+        ExportService.Dataset dataset = (ExportService.Dataset) what.getSelectedItem();
+        ExportService.Format fmt = (ExportService.Format) format.getSelectedItem();
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new java.io.File(dataset.name().toLowerCase() + (from != null ? "-" + from : "") + "." + fmt.name().toLowerCase()));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        java.nio.file.Path file = chooser.getSelectedFile().toPath();
+        long t0 = System.currentTimeMillis();
+        loader.load("export", () -> ExportService.get().export(dataset, fmt, from, to, file),
+                rows -> JOptionPane.showMessageDialog(this, String.format("Exported %d rows to %s in %.1f s", rows, file, (System.currentTimeMillis() - t0) / 1000.0)),
+                "Export error: ");
+    }
+
+    // Rollups are built once in the background; later refreshes are answered from the cached arrays
+    private void loadReport(String fromText, String toText, AnalyticsEngine.Period period) {
+        java.time.LocalDate from, to;
+        try {
+            from = java.time.LocalDate.parse(fromText.trim());
+            to = java.time.LocalDate.parse(toText.trim());
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, "Dates must be in YYYY-MM-DD format");
+            return;
+        }
+        loader.load("reports", () -> AnalyticsEngine.get().report(from, to, period), report -> {
+            DefaultTableModel m = new DefaultTableModel(new String[]{"Period","Type","Rooms","Nights Sold","Nights Available","Occupancy %","Revenue","ADR","RevPAR"}, 0);
+            for (AnalyticsEngine.Row r : report.getRows()) {
+                m.addRow(new Object[]{r.getPeriod(), r.getType(), r.getRooms(), r.getRoomNightsSold(), r.getRoomNightsAvailable(),
+                        String.format("%.1f", r.getOccupancy() * 100), r.getRevenue(), r.getAdr(), r.getRevPar()});
+            }
+            reportsTable.setModel(m);
+            reportsSummary.setText(report.getBuildMillis() > 0
+                    ? String.format("Rebuilt from bookings in %d ms, report in %.2f ms", report.getBuildMillis(), report.getQueryMicros() / 1000.0)
+                    : String.format("Report in %.2f ms (cached rollup)", report.getQueryMicros() / 1000.0));
+        }, "Report error: ");
+    }
+
     // Payments support for owner
-    private void loadPayments(JTable paymentsTable) {
-        DefaultTableModel model = new DefaultTableModel(new String[]{"ID","User","BookingID","Amount","Status","Method","GPay","QR","Created At"}, 0);
-        try (Connection conn = Database.connect(); Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT p.id, u.username, p.booking_id, p.amount, p.status, p.payment_method, p.googlepay_number, p.qr_code, p.created_at FROM payments p JOIN users u ON p.user_id=u.id ORDER BY p.created_at DESC")) {
-            while (rs.next()) model.addRow(new Object[]{rs.getInt("id"), rs.getString("username"), rs.getInt("booking_id"), rs.getDouble("amount"), rs.getString("status"), rs.getString("payment_method"), rs.getString("googlepay_number"), rs.getString("qr_code"), rs.getTimestamp("created_at")});
-            paymentsTable.setModel(model);
-        } catch (Exception ex) { ex.printStackTrace(); JOptionPane.showMessageDialog(this, "Error loading payments: " + ex.getMessage()); }
+    private void loadPayments() {
+        paymentsModel.refresh();
     }
 
-    private void addPaymentDialog() {
+    private void addPaymentDialog(JButton button) {
         JPanel p = new JPanel(new GridLayout(4,2,6,6));
         JTextField uidField = new JTextField();
         JTextField bookingField = new JTextField();
@@ -327,43 +645,72 @@ public class OwnerDashboardClean extends JFrame {
         p.add(new JLabel("Booking ID:")); p.add(bookingField);
         p.add(new JLabel("Amount:")); p.add(amountField);
         p.add(new JLabel("Method:")); p.add(pm);
+        enterPayment(button, p, uidField, bookingField, amountField, pm, new String[2]);
+    }
+
+    // Shows the payment form until it is cancelled or a payment is stored; the form reopens after an error.
+    // attempt is {key, values it was made for}: OK again with the same values cannot record the payment twice,
+    // while changing the user, booking, amount or method makes it a new payment with a new key
+    private void enterPayment(JButton button, JPanel p, JTextField uidField, JTextField bookingField, JTextField amountField, JComboBox<String> pm, String[] attempt) {
         int r = JOptionPane.showConfirmDialog(this, p, "Add Payment", JOptionPane.OK_CANCEL_OPTION);
         if (r != JOptionPane.OK_OPTION) return;
-        try (Connection conn = Database.connect(); PreparedStatement ps = conn.prepareStatement("INSERT INTO payments(user_id, booking_id, amount, status, payment_method, googlepay_number, qr_code, pin) VALUES(?,?,?,?,?,?,?,?)")) {
-            int uid = Integer.parseInt(uidField.getText().trim());
-            int bid = Integer.parseInt(bookingField.getText().trim());
-            double amt = Double.parseDouble(amountField.getText().trim());
-            String method = pm.getSelectedItem().toString();
-            ps.setInt(1, uid); ps.setInt(2, bid); ps.setDouble(3, amt); ps.setString(4, "PAID"); ps.setString(5, method); ps.setString(6, method.equals("GOOGLEPAY")?null:null); ps.setString(7, null); ps.setString(8, null);
-            ps.executeUpdate();
-            try (PreparedStatement p2 = conn.prepareStatement("UPDATE bookings SET payment_status='PAID' WHERE id=?")) { p2.setInt(1, bid); p2.executeUpdate(); }
-            JOptionPane.showMessageDialog(this, "Payment recorded");
-            // refresh payments table if visible
-        } catch (Exception ex) { ex.printStackTrace(); JOptionPane.showMessageDialog(this, "Add payment error: " + ex.getMessage()); }
+        int uid, bid;
+        Money amt;
+        try {
+            uid = Integer.parseInt(uidField.getText().trim());
+            bid = Integer.parseInt(bookingField.getText().trim());
+            amt = Money.parse(amountField.getText());
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, "Add payment error: " + ex.getMessage());
+            enterPayment(button, p, uidField, bookingField, amountField, pm, attempt);
+            return;
+        }
+        String method = pm.getSelectedItem().toString();
+        String entered = uid + "|" + bid + "|" + amt + "|" + method;
+        if (!entered.equals(attempt[1])) {
+            attempt[0] = PaymentService.newIdempotencyKey();
+            attempt[1] = entered;
+        }
+        String key = attempt[0];
+        // payment row and booking payment_status are written in one transaction
+        loader.submit(button, () -> PaymentService.get().pay(uid, bid, amt, method, null, key),
+                receipt -> JOptionPane.showMessageDialog(this, receipt.isReplayed() ? "Payment was already recorded" : "Payment recorded"), ex -> {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Add payment error: " + ex.getMessage());
+            enterPayment(button, p, uidField, bookingField, amountField, pm, attempt);
+        });
     }
 
-    private void markBookingPaid(JTable paymentsTable) {
+    private void markBookingPaid(JButton button, JTable paymentsTable) {
         int sel = paymentsTable.getSelectedRow();
         if (sel == -1) { JOptionPane.showMessageDialog(this, "Select a payment row (or use Add Payment to record) or select booking in Bookings tab."); return; }
-        DefaultTableModel m = (DefaultTableModel) paymentsTable.getModel();
+        TableModel m = paymentsTable.getModel();
         Object bidObj = m.getValueAt(sel, 2);
         if (bidObj == null) { JOptionPane.showMessageDialog(this, "Invalid booking id"); return; }
         int bid = Integer.parseInt(bidObj.toString());
-        try (Connection conn = Database.connect(); PreparedStatement p = conn.prepareStatement("UPDATE bookings SET payment_status='PAID' WHERE id=?")) { p.setInt(1, bid); p.executeUpdate(); JOptionPane.showMessageDialog(this, "Booking marked PAID"); } catch (Exception ex) { ex.printStackTrace(); JOptionPane.showMessageDialog(this, "Mark paid error: " + ex.getMessage()); }
-        loadPayments(paymentsTable);
+        markPaid(button, bid);
     }
 
-    private void viewBookingDialog() {
+    // Marks a booking paid without a payment row
+    private void markPaid(JButton button, int bid) {
+        loader.submit(button, () -> {
+            PaymentService.get().markPaid(bid);
+            return null;
+        }, done -> JOptionPane.showMessageDialog(this, "Booking marked PAID"), "Mark paid error: ");
+    }
+
+    private void viewBookingDialog(JButton button) {
         int sel = bookingsTable.getSelectedRow();
         if (sel == -1) { JOptionPane.showMessageDialog(this, "Select a booking to view"); return; }
-        DefaultTableModel m = (DefaultTableModel) bookingsTable.getModel();
+        TableModel m = bookingsTable.getModel();
         Object idObj = m.getValueAt(sel, 0);
         if (idObj == null) { JOptionPane.showMessageDialog(this, "Invalid selection"); return; }
         int bid = Integer.parseInt(idObj.toString());
-        try (Connection conn = Database.connect(); PreparedStatement ps = conn.prepareStatement("SELECT b.id, u.username, r.room_number, b.start_date, b.end_date, b.status, b.payment_status FROM bookings b JOIN users u ON b.user_id=u.id JOIN rooms r ON b.room_id=r.id WHERE b.id=?")) {
-            ps.setInt(1, bid);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
+        loader.submit(button, () -> {
+            try (Connection conn = Database.connect(); PreparedStatement ps = conn.prepareStatement("SELECT b.id, u.username, r.room_number, b.start_date, b.end_date, b.status, b.payment_status FROM bookings b JOIN users u ON b.user_id=u.id JOIN rooms r ON b.room_id=r.id WHERE b.id=?")) {
+                ps.setInt(1, bid);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) return null;
                     StringBuilder sb = new StringBuilder();
                     sb.append("Booking ID: ").append(rs.getInt("id")).append('\n');
                     sb.append("User: ").append(rs.getString("username")).append('\n');
@@ -372,21 +719,22 @@ public class OwnerDashboardClean extends JFrame {
                     sb.append("End: ").append(rs.getDate("end_date")).append('\n');
                     sb.append("Status: ").append(rs.getString("status")).append('\n');
                     sb.append("Payment: ").append(rs.getString("payment_status")).append('\n');
-                    JOptionPane.showMessageDialog(this, sb.toString(), "Booking Details", JOptionPane.INFORMATION_MESSAGE);
+                    return sb.toString();
                 }
             }
-        } catch (Exception ex) { ex.printStackTrace(); JOptionPane.showMessageDialog(this, "Error loading booking: " + ex.getMessage()); }
+        }, details -> {
+            if (details != null) JOptionPane.showMessageDialog(this, details, "Booking Details", JOptionPane.INFORMATION_MESSAGE);
+        }, "Error loading booking: ");
     }
 
     
 
-    private void markSelectedBookingPaid() {
+    private void markSelectedBookingPaid(JButton button) {
         int sel = bookingsTable.getSelectedRow();
         if (sel == -1) { JOptionPane.showMessageDialog(this, "Select a booking to mark paid"); return; }
-        DefaultTableModel m = (DefaultTableModel) bookingsTable.getModel();
+        TableModel m = bookingsTable.getModel();
         Object idObj = m.getValueAt(sel, 0); if (idObj==null) { JOptionPane.showMessageDialog(this, "Invalid selection"); return; }
         int bid = Integer.parseInt(idObj.toString());
-        try (Connection conn = Database.connect(); PreparedStatement p = conn.prepareStatement("UPDATE bookings SET payment_status='PAID' WHERE id=?")) { p.setInt(1, bid); p.executeUpdate(); JOptionPane.showMessageDialog(this, "Booking marked PAID"); } catch (Exception ex) { ex.printStackTrace(); JOptionPane.showMessageDialog(this, "Mark paid error: " + ex.getMessage()); }
-        loadBookings();
+        markPaid(button, bid);
     }
 }
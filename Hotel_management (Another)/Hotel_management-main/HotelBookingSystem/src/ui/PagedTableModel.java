@@ -0,0 +1,340 @@
+package ui;
+
+import db.Database;
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Virtualized table model for large, append-mostly tables. Rows are fetched a
+ * page at a time with keyset pagination as the table asks for them; only the
+ * most recently used pages are kept in memory. Cells of a page that is still
+ * loading read as null until the page arrives.
+ *
+ * Rows added or changed since the last refresh can be patched in by id
+ * (rowAdded / rowChanged): ids are collected for a moment, re-read in one
+ * query, and the rows updated in place or inserted at the top, since new
+ * rows sort first in these tables. The paged rows then start below the
+ * inserted ones. Ids marked while a refresh is still counting wait until the
+ * count is in, since the count may or may not include those rows.
+ *
+ * All state is confined to the EDT; queries run on the AsyncLoader pool.
+ */
+class PagedTableModel extends AbstractTableModel {
+    // a burst of changes bigger than this is cheaper to show with a refresh
+    private static final int MAX_DELTA_ROWS = 500;
+    private static final int DELTA_DELAY_MS = 150;
+
+    interface PageSource {
+        int count() throws Exception;
+        // up to limit rows positioned after the given key (null = from the top)
+        List<Object[]> fetch(Object[] after, int limit) throws Exception;
+        // key of the row sitting skip rows after the given key, or null past the end
+        Object[] seek(Object[] after, int skip) throws Exception;
+        Object[] keyOf(Object[] row);
+        // the rows with these ids (the first column), in table order
+        List<Object[]> fetchIds(Collection<Integer> ids) throws Exception;
+    }
+
+    private final String[] columns;
+    private final PageSource source;
+    private final int pageSize;
+    private final Map<Integer, List<Object[]>> pages;
+    // page number -> key of the row just before that page; page 0 starts at the top
+    private final Map<Integer, Object[]> pageStarts = new HashMap<>();
+    private final Set<Integer> pending = new HashSet<>();
+    // rows added since the last refresh, newest first, listed above the paged rows
+    private final List<Object[]> head = new ArrayList<>();
+    // ids waiting to be re-read -> true if the row is new
+    private final Map<Integer, Boolean> stale = new LinkedHashMap<>();
+    private final Timer deltaTimer = new Timer(DELTA_DELAY_MS, e -> flushDeltas());
+    private int rowCount;
+    private int generation;
+    private boolean counting;
+
+    PagedTableModel(String[] columns, PageSource source, int pageSize, int maxPages) {
+        this.columns = columns;
+        this.source = source;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<Integer, List<Object[]>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Object[]>> eldest) {
+                return size() > maxPages;
+            }
+        };
+        deltaTimer.setRepeats(false);
+    }
+
+    // Drops cached pages and re-reads the row count; rows reload as they are displayed
+    void refresh() {
+        int gen = ++generation;
+        pages.clear();
+        pageStarts.clear();
+        pending.clear();
+        head.clear();
+        stale.clear();
+        counting = true;
+        AsyncLoader.POOL.submit(() -> {
+            try {
+                int count = source.count();
+                SwingUtilities.invokeLater(() -> {
+                    if (gen != generation) return;
+                    rowCount = count;
+                    counting = false;
+                    fireTableDataChanged();
+                    if (!stale.isEmpty() && !deltaTimer.isRunning()) deltaTimer.start();
+                });
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        });
+    }
+
+    // Shows a row that was just stored; it is listed at the top
+    void rowAdded(int id) {
+        markStale(id, true);
+    }
+
+    // Re-reads a row that has changed, if it is loaded; rows not loaded pick the change up when they are
+    void rowChanged(int id) {
+        markStale(id, false);
+    }
+
+    private void markStale(int id, boolean added) {
+        stale.merge(id, added, Boolean::logicalOr);
+        if (!deltaTimer.isRunning()) deltaTimer.start();
+    }
+
+    private void flushDeltas() {
+        if (stale.isEmpty() || counting) return;
+        if (stale.size() > MAX_DELTA_ROWS) {
+            refresh();
+            return;
+        }
+        Map<Integer, Boolean> batch = new LinkedHashMap<>(stale);
+        stale.clear();
+        int gen = generation;
+        AsyncLoader.POOL.submit(() -> {
+            try {
+                List<Object[]> rows = source.fetchIds(batch.keySet());
+                SwingUtilities.invokeLater(() -> applyDeltas(gen, batch, rows));
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        });
+    }
+
+    private void applyDeltas(int gen, Map<Integer, Boolean> batch, List<Object[]> rows) {
+        // a refresh since then has re-read everything
+        if (gen != generation) return;
+        List<Object[]> added = new ArrayList<>();
+        for (Object[] row : rows) {
+            int id = ((Number) row[0]).intValue();
+            int at = indexOf(id);
+            if (at >= 0) {
+                replace(at, row);
+                fireTableRowsUpdated(at, at);
+            } else if (batch.get(id)) {
+                // a refresh started meanwhile; its count may have been taken before this row was stored
+                if (counting) stale.merge(id, true, Boolean::logicalOr);
+                else added.add(row);
+            }
+        }
+        if (added.isEmpty()) return;
+        // page 0 now starts below the oldest inserted row, so reloading it cannot list them twice
+        if (head.isEmpty()) pageStarts.put(0, source.keyOf(added.get(added.size() - 1)));
+        head.addAll(0, added);
+        fireTableRowsInserted(0, added.size() - 1);
+    }
+
+    // Table row showing this id among the inserted and loaded rows, or -1
+    private int indexOf(int id) {
+        for (int i = 0; i < head.size(); i++) if (((Number) head.get(i)[0]).intValue() == id) return i;
+        for (Map.Entry<Integer, List<Object[]>> e : pages.entrySet()) {
+            List<Object[]> rows = e.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (((Number) rows.get(i)[0]).intValue() == id) return head.size() + e.getKey() * pageSize + i;
+            }
+        }
+        return -1;
+    }
+
+    private void replace(int rowIndex, Object[] row) {
+        if (rowIndex < head.size()) {
+            head.set(rowIndex, row);
+            return;
+        }
+        int paged = rowIndex - head.size();
+        pages.get(paged / pageSize).set(paged % pageSize, row);
+    }
+
+    @Override
+    public int getRowCount() { return head.size() + rowCount; }
+
+    @Override
+    public int getColumnCount() { return columns.length; }
+
+    @Override
+    public String getColumnName(int column) { return columns[column]; }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        if (rowIndex < head.size()) return head.get(rowIndex)[columnIndex];
+        rowIndex -= head.size();
+        int page = rowIndex / pageSize;
+        List<Object[]> rows = pages.get(page);
+        if (rows == null) {
+            request(page);
+            return null;
+        }
+        int offset = rowIndex % pageSize;
+        return offset < rows.size() ? rows.get(offset)[columnIndex] : null;
+    }
+
+    private void request(int page) {
+        if (!pending.add(page)) return;
+        int gen = generation;
+        // nearest earlier page whose start key is already known
+        int known = page;
+        while (known > 0 && !pageStarts.containsKey(known)) known--;
+        Object[] knownKey = pageStarts.get(known);
+        int skip = (page - known) * pageSize;
+        AsyncLoader.POOL.submit(() -> {
+            try {
+                Object[] start = knownKey;
+                if (skip > 0) {
+                    start = source.seek(knownKey, skip);
+                    if (start == null) {
+                        SwingUtilities.invokeLater(() -> { if (gen == generation) pending.remove(page); });
+                        return;
+                    }
+                }
+                List<Object[]> rows = source.fetch(start, pageSize);
+                Object[] startKey = start;
+                SwingUtilities.invokeLater(() -> loaded(gen, page, startKey, rows));
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                SwingUtilities.invokeLater(() -> { if (gen == generation) pending.remove(page); });
+            }
+        });
+    }
+
+    private void loaded(int gen, int page, Object[] startKey, List<Object[]> rows) {
+        if (gen != generation) return;
+        pending.remove(page);
+        if (page == 0 && startKey == null && pageStarts.containsKey(0)) {
+            // read from the top before rows were inserted above it; read again from below them
+            request(0);
+            return;
+        }
+        pages.put(page, rows);
+        if (page > 0) pageStarts.put(page, startKey);
+        int end = page * pageSize + rows.size();
+        if (rows.size() < pageSize && end < rowCount) {
+            // the count included rows that are now listed at the top, or that were deleted
+            int from = head.size() + end;
+            int to = head.size() + rowCount - 1;
+            rowCount = end;
+            fireTableRowsDeleted(from, to);
+        }
+        if (rows.size() == pageSize) pageStarts.put(page + 1, source.keyOf(rows.get(rows.size() - 1)));
+        int first = head.size() + page * pageSize;
+        int last = Math.min(head.size() + rowCount, first + pageSize) - 1;
+        if (last >= first) fireTableRowsUpdated(first, last);
+    }
+
+    /**
+     * PageSource over a single SQL query ordered by a unique key. The first selected
+     * column is the row id, idColumn. keyFilter is the WHERE clause selecting rows
+     * after a key, with keyBind mapping each of its placeholders to a key column,
+     * e.g. "(a < ? OR (a = ? AND id < ?))" with {0, 0, 1}.
+     */
+    static PageSource keyset(String selectColumns, String from, String idColumn, String keyColumns, int[] keyColumnIndexes,
+                             String keyFilter, int[] keyBind, String orderBy, String countSql) {
+        return new PageSource() {
+            @Override
+            public int count() throws Exception {
+                try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(countSql); ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+
+            @Override
+            public List<Object[]> fetch(Object[] after, int limit) throws Exception {
+                String sql = "SELECT " + selectColumns + " FROM " + from + (after == null ? "" : " WHERE " + keyFilter) + " ORDER BY " + orderBy + " LIMIT ?";
+                try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(sql)) {
+                    int i = bind(ps, after);
+                    ps.setInt(i, limit);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rows(rs, limit);
+                    }
+                }
+            }
+
+            @Override
+            public List<Object[]> fetchIds(Collection<Integer> ids) throws Exception {
+                if (ids.isEmpty()) return new ArrayList<>();
+                StringBuilder sql = new StringBuilder("SELECT ").append(selectColumns).append(" FROM ").append(from)
+                        .append(" WHERE ").append(idColumn).append(" IN (");
+                for (int k = 0; k < ids.size(); k++) sql.append(k == 0 ? "?" : ",?");
+                sql.append(") ORDER BY ").append(orderBy);
+                try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(sql.toString())) {
+                    int i = 1;
+                    for (int id : ids) ps.setInt(i++, id);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rows(rs, ids.size());
+                    }
+                }
+            }
+
+            @Override
+            public Object[] seek(Object[] after, int skip) throws Exception {
+                String sql = "SELECT " + keyColumns + " FROM " + from + (after == null ? "" : " WHERE " + keyFilter) + " ORDER BY " + orderBy + " LIMIT 1 OFFSET ?";
+                try (Connection c = Database.connect(); PreparedStatement ps = c.prepareStatement(sql)) {
+                    int i = bind(ps, after);
+                    ps.setInt(i, skip - 1);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) return null;
+                        Object[] key = new Object[keyColumnIndexes.length];
+                        for (int k = 0; k < key.length; k++) key[k] = rs.getObject(k + 1);
+                        return key;
+                    }
+                }
+            }
+
+            @Override
+            public Object[] keyOf(Object[] row) {
+                Object[] key = new Object[keyColumnIndexes.length];
+                for (int k = 0; k < key.length; k++) key[k] = row[keyColumnIndexes[k]];
+                return key;
+            }
+
+            private List<Object[]> rows(ResultSet rs, int expected) throws Exception {
+                int n = rs.getMetaData().getColumnCount();
+                List<Object[]> rows = new ArrayList<>(expected);
+                while (rs.next()) {
+                    Object[] row = new Object[n];
+                    for (int col = 0; col < n; col++) row[col] = rs.getObject(col + 1);
+                    rows.add(row);
+                }
+                return rows;
+            }
+
+            private int bind(PreparedStatement ps, Object[] after) throws Exception {
+                int i = 1;
+                if (after != null) for (int k : keyBind) ps.setObject(i++, after[k]);
+                return i;
+            }
+        };
+    }
+}